@@ -0,0 +1,66 @@
+package geometries;
+
+import geometries.Intersectable.HitRecord;
+import org.openjdk.jmh.annotations.*;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark comparing the acceleration structures of {@link Geometries} - the bounding volume hierarchy
+ * and the uniform grid - on a dense array of equal spheres, measured with a fixed set of random rays.
+ *
+ * @author Isca Fitousi and Avital Orenstin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccelerationBenchmark {
+    /** The acceleration structure */
+    @Param({"bvh", "grid"})
+    public String structure;
+    /** Amount of spheres along each side of the array */
+    @Param({"20", "50"})
+    public int side;
+
+    /** The array of spheres */
+    private Geometries geometries;
+    /** The rays of a measurement */
+    private Ray[] rays;
+    /** Reusable hit record for the closest hit queries */
+    private final HitRecord hit = new HitRecord();
+
+    /**
+     * Builds the array of spheres and the rays for the benchmark parameters
+     */
+    @Setup
+    public void setup() {
+        geometries = new Geometries();
+        for (int i = 0; i < side; ++i)
+            for (int j = 0; j < side; ++j)
+                for (int k = 0; k < side / 4; ++k)
+                    geometries.add(new Sphere(new Point(3 * i, 3 * j, -3 * k), 1d));
+        if (structure.equals("grid")) geometries.buildGrid();
+        else geometries.buildBVH();
+
+        Random random = new Random(1);
+        rays = new Ray[1000];
+        for (int i = 0; i < rays.length; ++i)
+            rays[i] = new Ray(new Point(random.nextDouble() * 3 * side, random.nextDouble() * 3 * side, 10),
+                    new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, -1));
+    }
+
+    @Benchmark
+    public int closestHits() {
+        int hits = 0;
+        for (Ray ray : rays)
+            if (geometries.findClosestHit(ray, hit.reset(Double.POSITIVE_INFINITY))) ++hits;
+        return hits;
+    }
+}
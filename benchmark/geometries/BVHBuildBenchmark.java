@@ -0,0 +1,53 @@
+package geometries;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the construction of the bounding volume hierarchy of a triangle mesh, which is a part
+ * of the startup latency of every rendering job. The triangles are a random soup with a fixed seed.
+ *
+ * @author Isca Fitousi and Avital Orenstin
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BVHBuildBenchmark {
+    /** Amount of triangles */
+    @Param({"10000", "1000000"})
+    public int triangles;
+
+    /** The vertex positions of the mesh */
+    private double[] vertices;
+    /** The triangle indices of the mesh */
+    private int[] indices;
+
+    /**
+     * Generates the triangles for the benchmark parameters
+     */
+    @Setup
+    public void setup() {
+        Random random = new Random(5);
+        vertices = new double[9 * triangles];
+        indices = new int[3 * triangles];
+        for (int tri = 0; tri < triangles; ++tri) {
+            double cx = random.nextGaussian() * 100, cy = random.nextGaussian() * 30, cz = random.nextDouble() * 500;
+            for (int v = 0; v < 3; ++v) {
+                vertices[9 * tri + 3 * v] = cx + random.nextDouble();
+                vertices[9 * tri + 3 * v + 1] = cy + random.nextDouble();
+                vertices[9 * tri + 3 * v + 2] = cz + random.nextDouble();
+                indices[3 * tri + v] = 3 * tri + v;
+            }
+        }
+    }
+
+    @Benchmark
+    public TriangleMesh buildMesh() {
+        return new TriangleMesh(vertices, indices);
+    }
+}
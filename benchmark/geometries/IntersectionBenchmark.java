@@ -0,0 +1,68 @@
+package geometries;
+
+import geometries.Intersectable.GeoPoint;
+import geometries.Intersectable.HitRecord;
+import org.openjdk.jmh.annotations.*;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro benchmarks of the ray intersection of the basic geometries.
+ * Each geometry is measured both with the intersections list query and with the
+ * allocation-free closest hit query.
+ *
+ * @author Isca Fitousi and Avital Orenstin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntersectionBenchmark {
+    /** Sphere in front of the ray */
+    private final Sphere sphere = new Sphere(new Point(0, 0, -100), 50d);
+    /** Triangle in front of the ray */
+    private final Triangle triangle = new Triangle(
+            new Point(-50, -50, -100), new Point(50, -50, -100), new Point(0, 50, -100));
+    /** Plane in front of the ray */
+    private final Plane plane = new Plane(new Point(0, 0, -100), new Vector(0, 0, 1));
+    /** Ray that hits all the geometries */
+    private final Ray ray = new Ray(new Point(1, 2, 0), new Vector(0.01, 0.02, -1));
+    /** Reusable hit record for the closest hit queries */
+    private final HitRecord hit = new HitRecord();
+
+    @Benchmark
+    public List<GeoPoint> sphereIntersections() {
+        return sphere.findGeoIntersections(ray);
+    }
+
+    @Benchmark
+    public boolean sphereClosestHit() {
+        return sphere.findClosestHit(ray, hit.reset(Double.POSITIVE_INFINITY));
+    }
+
+    @Benchmark
+    public List<GeoPoint> triangleIntersections() {
+        return triangle.findGeoIntersections(ray);
+    }
+
+    @Benchmark
+    public boolean triangleClosestHit() {
+        return triangle.findClosestHit(ray, hit.reset(Double.POSITIVE_INFINITY));
+    }
+
+    @Benchmark
+    public List<GeoPoint> planeIntersections() {
+        return plane.findGeoIntersections(ray);
+    }
+
+    @Benchmark
+    public boolean planeClosestHit() {
+        return plane.findClosestHit(ray, hit.reset(Double.POSITIVE_INFINITY));
+    }
+}
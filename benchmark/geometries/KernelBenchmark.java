@@ -0,0 +1,81 @@
+package geometries;
+
+import org.openjdk.jmh.annotations.*;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Vector;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark comparing the intersection kernels on runs of triangles of the size of a mesh leaf.
+ * The benchmark JVM is started with the vector module, so the kernel of the JVM is the SIMD kernel.
+ *
+ * @author Isca Fitousi and Avital Orenstin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class KernelBenchmark {
+    /** The amount of triangles */
+    private static final int COUNT = 4096;
+    /** The amount of triangles in a run */
+    @Param({"4", "8"})
+    public int run;
+
+    /** The triangles */
+    private TriangleArrays triangles;
+    /** The head of the rays */
+    private final Double3 head = new Point(0, 0, 10).xyz;
+    /** The directions of the rays */
+    private final Double3[] directions = new Double3[64];
+    /** The distances of a run */
+    private final double[] distances = new double[16];
+
+    /**
+     * Builds random triangles and rays
+     */
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        double[] vertices = new double[9 * COUNT];
+        int[] indices = new int[3 * COUNT];
+        int[] order = new int[COUNT];
+        for (int i = 0; i < vertices.length; ++i) vertices[i] = random.nextDouble() * 10 - 5;
+        for (int i = 0; i < indices.length; ++i) indices[i] = i;
+        for (int i = 0; i < COUNT; ++i) order[i] = i;
+        triangles = new TriangleArrays(vertices, indices, order, 16);
+        for (int i = 0; i < directions.length; ++i)
+            directions[i] = new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, -1).normalize().xyz;
+    }
+
+    /**
+     * Intersects all the rays with all the runs of triangles.
+     *
+     * @param kernel the kernel
+     * @return the sum of the distances
+     */
+    private double intersectAll(IntersectionKernel kernel) {
+        double sum = 0;
+        for (Double3 d : directions)
+            for (int k = 0; k + run <= COUNT; k += run) {
+                kernel.intersectTriangles(triangles, k, run, head, d, Double.POSITIVE_INFINITY, distances);
+                sum += distances[0];
+            }
+        return sum;
+    }
+
+    @Benchmark
+    public double scalar() {
+        return intersectAll(IntersectionKernel.SCALAR);
+    }
+
+    @Benchmark
+    public double vector() {
+        return intersectAll(IntersectionKernel.INSTANCE);
+    }
+}
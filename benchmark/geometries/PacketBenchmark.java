@@ -0,0 +1,93 @@
+package geometries;
+
+import geometries.Intersectable.HitRecord;
+import org.openjdk.jmh.annotations.*;
+import primitives.Point;
+import primitives.Ray;
+import primitives.RayPacket;
+import primitives.Vector;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark comparing packet tracing of coherent rays with tracing them one by one, on a hierarchy of
+ * random spheres and triangles. The rays are grouped as the 8x8 anti-aliasing samples of pixels.
+ *
+ * @author Isca Fitousi and Avital Orenstin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PacketBenchmark {
+    /** Amount of geometries */
+    @Param({"1000", "100000"})
+    public int count;
+
+    /** The hierarchy of geometries */
+    private Geometries geometries;
+    /** The rays of a measurement, 64 per pixel */
+    private Ray[] rays;
+    /** The packets of the rays */
+    private RayPacket[] packets;
+    /** Reusable hit records */
+    private final HitRecord[] hits = new HitRecord[RayPacket.MAX_SIZE];
+
+    /**
+     * Builds the geometries and the rays for the benchmark parameters
+     */
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        double size = 4 * Math.cbrt(count);
+        geometries = new Geometries();
+        for (int i = 0; i < count; ++i) {
+            Point center = new Point((random.nextDouble() - 0.5) * size, (random.nextDouble() - 0.5) * size,
+                    -random.nextDouble() * size);
+            geometries.add(i % 2 == 0 ? new Sphere(center, 1d)
+                    : new Triangle(center, center.add(new Vector(2, 0.5, 0)), center.add(new Vector(0.5, 2, -1))));
+        }
+        geometries.buildBVH();
+        for (int i = 0; i < hits.length; ++i) hits[i] = new HitRecord();
+
+        // 100 pixels of 8x8 samples, seen from a common head
+        Point head = new Point(0, 0, size);
+        double pixel = 1.0 / 200;
+        rays = new Ray[100 * 64];
+        packets = new RayPacket[rays.length / RayPacket.MAX_SIZE];
+        for (int p = 0; p < 100; ++p) {
+            double x = random.nextDouble() - 0.5, y = random.nextDouble() - 0.5;
+            for (int s = 0; s < 64; ++s)
+                rays[64 * p + s] = new Ray(head, new Vector(x + (s % 8 + random.nextDouble()) * pixel / 8,
+                        y + (s / 8 + random.nextDouble()) * pixel / 8, -1));
+        }
+        for (int k = 0; k < packets.length; ++k) {
+            Ray[] group = new Ray[RayPacket.MAX_SIZE];
+            System.arraycopy(rays, k * RayPacket.MAX_SIZE, group, 0, group.length);
+            packets[k] = new RayPacket(group);
+        }
+    }
+
+    @Benchmark
+    public int singleRays() {
+        int found = 0;
+        for (Ray ray : rays)
+            if (geometries.findClosestHit(ray, hits[0].reset(Double.POSITIVE_INFINITY))) ++found;
+        return found;
+    }
+
+    @Benchmark
+    public int packets() {
+        int found = 0;
+        for (RayPacket packet : packets) {
+            for (HitRecord hit : hits) hit.reset(Double.POSITIVE_INFINITY);
+            geometries.findClosestHits(packet, hits);
+            for (HitRecord hit : hits)
+                if (hit.geometry != null) ++found;
+        }
+        return found;
+    }
+}
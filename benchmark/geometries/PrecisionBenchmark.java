@@ -0,0 +1,90 @@
+package geometries;
+
+import geometries.Intersectable.HitRecord;
+import org.openjdk.jmh.annotations.*;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark comparing the closest hit and the shadow queries of a large mesh in double and in single precision,
+ * with incoherent rays, so the traversal reads the memory of the mesh rather than its cache.
+ *
+ * @author Isca Fitousi and Avital Orenstin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "--add-modules=jdk.incubator.vector"})
+public class PrecisionBenchmark {
+    /** The amount of segments along each side of the tessellated sphere (2 * 700 * 700 triangles) */
+    private static final int SEGMENTS = 700;
+    /** Whether the queries are in single precision */
+    @Param({"false", "true"})
+    public boolean single;
+
+    /** The mesh */
+    private TriangleMesh mesh;
+    /** The rays */
+    private final Ray[] rays = new Ray[10_000];
+    /** The hit record */
+    private final HitRecord hit = new HitRecord();
+
+    /**
+     * Builds a tessellated sphere and random rays from its center
+     */
+    @Setup
+    public void setup() {
+        double[] vertices = new double[3 * (SEGMENTS + 1) * (SEGMENTS + 1)];
+        int k = 0;
+        for (int i = 0; i <= SEGMENTS; ++i)
+            for (int j = 0; j <= SEGMENTS; ++j) {
+                double theta = Math.PI * i / SEGMENTS, phi = 2 * Math.PI * j / SEGMENTS;
+                vertices[k++] = 10 * Math.sin(theta) * Math.cos(phi);
+                vertices[k++] = 10 * Math.sin(theta) * Math.sin(phi);
+                vertices[k++] = 10 * Math.cos(theta);
+            }
+        int[] indices = new int[6 * SEGMENTS * SEGMENTS];
+        k = 0;
+        for (int i = 0; i < SEGMENTS; ++i)
+            for (int j = 0; j < SEGMENTS; ++j) {
+                int p = i * (SEGMENTS + 1) + j;
+                indices[k++] = p;
+                indices[k++] = p + 1;
+                indices[k++] = p + SEGMENTS + 1;
+                indices[k++] = p + 1;
+                indices[k++] = p + SEGMENTS + 2;
+                indices[k++] = p + SEGMENTS + 1;
+            }
+        mesh = new TriangleMesh(vertices, indices);
+        Random random = new Random(1);
+        for (int i = 0; i < rays.length; ++i)
+            rays[i] = new Ray(new Point(0, 0, 0),
+                    new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, random.nextDouble() - 0.5));
+        hit.singlePrecision = single;
+    }
+
+    @Benchmark
+    public double closestHit() {
+        double sum = 0;
+        for (Ray ray : rays)
+            if (mesh.findClosestHit(ray, hit.reset(Double.POSITIVE_INFINITY))) sum += hit.t;
+        return sum;
+    }
+
+    @Benchmark
+    public double shadow() {
+        double sum = 0;
+        for (Ray ray : rays) {
+            Double3 ktr = mesh.findTransparency(ray, 100, 0.001, hit.reset(100));
+            sum += ktr.d1;
+        }
+        return sum;
+    }
+}
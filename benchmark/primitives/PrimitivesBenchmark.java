@@ -0,0 +1,64 @@
+package primitives;
+
+import geometries.Intersectable.GeoPoint;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro benchmarks of the basic vector, color and ray operations.
+ *
+ * @author Isca Fitousi and Avital Orenstin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrimitivesBenchmark {
+    /** First operand vector */
+    private final Vector v1 = new Vector(1, 2, 3);
+    /** Second operand vector */
+    private final Vector v2 = new Vector(-2, 0.5, 4);
+    /** First operand color */
+    private final Color c1 = new Color(10, 20, 30);
+    /** Second operand color */
+    private final Color c2 = new Color(40, 50, 60);
+    /** Ray for the closest point search */
+    private final Ray ray = new Ray(Point.ZERO, new Vector(0, 0, -1));
+    /** Intersection points along the ray, in no particular order */
+    private final List<GeoPoint> intersections = new ArrayList<>();
+
+    /**
+     * Prepares the intersection points for the closest point search
+     */
+    @Setup
+    public void setup() {
+        for (int i = 8; i > 0; i--) {
+            intersections.add(new GeoPoint(null, new Point(0, 0, -10 * ((i * 3) % 8 + 1))));
+        }
+    }
+
+    @Benchmark
+    public Vector vectorNormalize() {
+        return v1.normalize();
+    }
+
+    @Benchmark
+    public Vector vectorCrossProduct() {
+        return v1.crossProduct(v2);
+    }
+
+    @Benchmark
+    public Color colorAdd() {
+        return c1.add(c2);
+    }
+
+    @Benchmark
+    public GeoPoint rayFindClosestGeoPoint() {
+        return ray.findClosestGeoPoint(intersections);
+    }
+}
@@ -0,0 +1,62 @@
+package renderer;
+
+import org.openjdk.jmh.annotations.*;
+import primitives.Point;
+import primitives.Vector;
+import scene.Scene;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Macro benchmark rendering the house scene of {@link ReflectionRefractionTests} at fixed
+ * resolutions and sample counts. The stars of the scene are generated with a fixed seed
+ * and the rendering is single-threaded, so the numbers are reproducible between runs.
+ *
+ * @author Isca Fitousi and Avital Orenstin
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RenderBenchmark {
+    /** Image resolution (pixels per side) */
+    @Param({"100", "200"})
+    public int resolution;
+    /** Anti-aliasing samples per pixel side */
+    @Param({"1", "3"})
+    public int samples;
+    /** Soft shadow samples per light side */
+    @Param({"1", "4"})
+    public int lightSamples;
+
+    /** The camera rendering the scene */
+    private Camera camera;
+
+    /**
+     * Builds the scene and the camera for the benchmark parameters
+     */
+    @Setup
+    public void setup() {
+        Scene scene = new Scene("Benchmark house scene");
+        ReflectionRefractionTests.houseWithImprovementsScene(scene, new Random(1));
+        scene.geometries.buildBVH();
+
+        camera = Camera.getBuilder()
+                .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setLocation(new Point(0, 0, 1000))
+                .setVpDistance(1000)
+                .setVpSize(25, 25)
+                .setRayTracer(new SimpleRayTracer(scene).setNy_NX_of_light(lightSamples, lightSamples))
+                .setImageWriter(new ImageWriter("benchmark", resolution, resolution))
+                .setAntiAliasing(samples, samples)
+                .build();
+    }
+
+    @Benchmark
+    public Camera renderHouse() {
+        return camera.renderImage();
+    }
+}
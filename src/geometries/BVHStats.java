@@ -0,0 +1,17 @@
+package geometries;
+
+/**
+ * BVHStats holds the statistics of the construction of a bounding volume hierarchy and of its quality.
+ *
+ * @param buildNanos      the construction time, in nanoseconds
+ * @param nodes           the amount of nodes
+ * @param leaves          the amount of leaves
+ * @param maxDepth        the depth of the deepest leaf (0 for a hierarchy of a single leaf)
+ * @param averageLeafSize the average amount of primitives in a leaf
+ * @param sahCost         the cost of the hierarchy by the surface area heuristic - the expected amount of node
+ *                        visits and primitive tests of a ray which hits the root, lower is better
+ * @author Isca Fitousi and Avital Orenstin
+ */
+public record BVHStats(long buildNanos, int nodes, int leaves, int maxDepth, double averageLeafSize,
+                       double sahCost) {
+}
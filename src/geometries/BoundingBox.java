@@ -0,0 +1,148 @@
+package geometries;
+
+import primitives.Point;
+import primitives.Ray;
+
+/**
+ * The BoundingBox class represents an axis-aligned bounding box (AABB) in three-dimensional space.
+ * It is used by the acceleration structure of {@link Geometries} for cheap rejection of rays
+ * that cannot hit the geometries enclosed by the box.
+ *
+ * @author Isca Fitousi and Avital Orenstin
+ */
+public class BoundingBox {
+
+    /**
+     * The minimal coordinates of the box.
+     */
+    public final double minX, minY, minZ;
+
+    /**
+     * The maximal coordinates of the box.
+     */
+    public final double maxX, maxY, maxZ;
+
+    /**
+     * Constructs a bounding box from its minimal and maximal coordinates.
+     *
+     * @param minX minimal x coordinate
+     * @param minY minimal y coordinate
+     * @param minZ minimal z coordinate
+     * @param maxX maximal x coordinate
+     * @param maxY maximal y coordinate
+     * @param maxZ maximal z coordinate
+     */
+    public BoundingBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+    }
+
+    /**
+     * Constructs the smallest bounding box that contains all the given points.
+     *
+     * @param points the points to enclose
+     * @return the bounding box of the points
+     */
+    public static BoundingBox of(Iterable<Point> points) {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (Point p : points) {
+            minX = Math.min(minX, p.xyz.d1);
+            minY = Math.min(minY, p.xyz.d2);
+            minZ = Math.min(minZ, p.xyz.d3);
+            maxX = Math.max(maxX, p.xyz.d1);
+            maxY = Math.max(maxY, p.xyz.d2);
+            maxZ = Math.max(maxZ, p.xyz.d3);
+        }
+        return new BoundingBox(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * Returns the smallest bounding box that contains both this box and the other box.
+     *
+     * @param other the other box
+     * @return the union of the two boxes
+     */
+    public BoundingBox union(BoundingBox other) {
+        return new BoundingBox(
+                Math.min(minX, other.minX), Math.min(minY, other.minY), Math.min(minZ, other.minZ),
+                Math.max(maxX, other.maxX), Math.max(maxY, other.maxY), Math.max(maxZ, other.maxZ));
+    }
+
+    /**
+     * Returns the center coordinate of the box along the given axis.
+     *
+     * @param axis 0 for x, 1 for y and 2 for z
+     * @return the center coordinate along the axis
+     */
+    public double center(int axis) {
+        return switch (axis) {
+            case 0 -> (minX + maxX) / 2;
+            case 1 -> (minY + maxY) / 2;
+            default -> (minZ + maxZ) / 2;
+        };
+    }
+
+    /**
+     * Returns the axis along which the box is the longest.
+     *
+     * @return 0 for x, 1 for y and 2 for z
+     */
+    public int longestAxis() {
+        double dx = maxX - minX, dy = maxY - minY, dz = maxZ - minZ;
+        if (dx >= dy && dx >= dz) return 0;
+        return dy >= dz ? 1 : 2;
+    }
+
+    /**
+     * Checks whether the ray hits the box before the given distance (slab test).
+     *
+     * @param ray         the ray to test
+     * @param maxDistance the maximal distance along the ray
+     * @return true if the ray hits the box within the distance, false otherwise
+     */
+    public boolean intersects(Ray ray, double maxDistance) {
+        double ox = ray.head.xyz.d1, oy = ray.head.xyz.d2, oz = ray.head.xyz.d3;
+        double dx = ray.direction.xyz.d1, dy = ray.direction.xyz.d2, dz = ray.direction.xyz.d3;
+
+        double tNear = 0, tFar = maxDistance;
+
+        // x slab
+        double inv = 1 / dx;
+        double t1 = (minX - ox) * inv, t2 = (maxX - ox) * inv;
+        if (t1 > t2) { double tmp = t1; t1 = t2; t2 = tmp; }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        if (tNear > tFar) return false;
+
+        // y slab
+        inv = 1 / dy;
+        t1 = (minY - oy) * inv;
+        t2 = (maxY - oy) * inv;
+        if (t1 > t2) { double tmp = t1; t1 = t2; t2 = tmp; }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        if (tNear > tFar) return false;
+
+        // z slab
+        inv = 1 / dz;
+        t1 = (minZ - oz) * inv;
+        t2 = (maxZ - oz) * inv;
+        if (t1 > t2) { double tmp = t1; t1 = t2; t2 = tmp; }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        return tNear <= tFar;
+    }
+
+    @Override
+    public String toString() {
+        return "BoundingBox{" +
+                "min=(" + minX + "," + minY + "," + minZ + ")" +
+                ", max=(" + maxX + "," + maxY + "," + maxZ + ")" +
+                '}';
+    }
+}
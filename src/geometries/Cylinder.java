@@ -1,8 +1,13 @@
 package geometries;
 
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
+import primitives.VectorMath;
+
+import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
 
 /**
  * The Cylinder class represents a cylinder in three-dimensional space.
@@ -28,6 +33,21 @@ Cylinder extends Tube {
     public Cylinder(Ray ray, Double radius, Double height) {
         super(radius, ray);
         this.height = height;
+
+        // The caps are discs perpendicular to the axis, so along each coordinate axis
+        // the cylinder extends radius * sqrt(1 - d^2) beyond the axis end points
+        Point bottom = axis.head;
+        Point top = axis.getPoint(height);
+        double ex = radius * Math.sqrt(Math.max(0, 1 - axis.direction.xyz.d1 * axis.direction.xyz.d1));
+        double ey = radius * Math.sqrt(Math.max(0, 1 - axis.direction.xyz.d2 * axis.direction.xyz.d2));
+        double ez = radius * Math.sqrt(Math.max(0, 1 - axis.direction.xyz.d3 * axis.direction.xyz.d3));
+        this.box = new BoundingBox(
+                Math.min(bottom.xyz.d1, top.xyz.d1) - ex,
+                Math.min(bottom.xyz.d2, top.xyz.d2) - ey,
+                Math.min(bottom.xyz.d3, top.xyz.d3) - ez,
+                Math.max(bottom.xyz.d1, top.xyz.d1) + ex,
+                Math.max(bottom.xyz.d2, top.xyz.d2) + ey,
+                Math.max(bottom.xyz.d3, top.xyz.d3) + ez);
     }
 
     /**
@@ -37,6 +57,116 @@ Cylinder extends Tube {
      * @return The normal vector to the given point on the surface of the cylinder.
      */
     public Vector getNormal(Point point) {
+        // The point is on a cap if its projection on the axis is at one of the ends
+        double s = VectorMath.dot(point.xyz.d1 - axis.head.xyz.d1, point.xyz.d2 - axis.head.xyz.d2,
+                point.xyz.d3 - axis.head.xyz.d3, axis.direction.xyz.d1, axis.direction.xyz.d2, axis.direction.xyz.d3);
+        if (isZero(s)) return axis.direction.scale(-1);
+        if (isZero(s - height)) return axis.direction;
         return super.getNormal(point);
     }
-}
\ No newline at end of file
+
+    @Override
+    protected int findIntersectionDistances(Ray ray, double maxDistance, double[] distances) {
+        if (!box.intersects(ray, maxDistance)) return 0;
+
+        double dv = axisDot(ray.direction.xyz.d1, ray.direction.xyz.d2, ray.direction.xyz.d3);
+        double pv = axisDot(ray.head.xyz.d1 - axis.head.xyz.d1, ray.head.xyz.d2 - axis.head.xyz.d2,
+                ray.head.xyz.d3 - axis.head.xyz.d3);
+
+        // The side: intersections with the tube between the caps
+        int count = 0;
+        double t = sideDistance(ray, maxDistance, false, pv, dv);
+        if (t > 0) distances[count++] = t;
+        t = sideDistance(ray, maxDistance, true, pv, dv);
+        if (t > 0) distances[count++] = t;
+
+        // The caps: intersections with the planes of the caps inside the discs
+        if (count < 2 && !isZero(dv)) {
+            t = capDistance(ray, -pv / dv, maxDistance);
+            if (t > 0) distances[count++] = t;
+            if (count < 2) {
+                t = capDistance(ray, (height - pv) / dv, maxDistance);
+                if (t > 0) distances[count++] = t;
+            }
+        }
+
+        if (count == 2 && distances[0] > distances[1]) {
+            double tmp = distances[0];
+            distances[0] = distances[1];
+            distances[1] = tmp;
+        }
+        return count;
+    }
+
+    @Override
+    protected double findClosestDistance(Ray ray, double maxDistance) {
+        if (!box.intersects(ray, maxDistance)) return 0;
+
+        double dv = axisDot(ray.direction.xyz.d1, ray.direction.xyz.d2, ray.direction.xyz.d3);
+        double pv = axisDot(ray.head.xyz.d1 - axis.head.xyz.d1, ray.head.xyz.d2 - axis.head.xyz.d2,
+                ray.head.xyz.d3 - axis.head.xyz.d3);
+
+        // A ray which enters the side cannot meet a cap before, as the discs are inside the tube
+        double closest = sideDistance(ray, maxDistance, false, pv, dv);
+        if (closest > 0) return closest;
+        closest = sideDistance(ray, maxDistance, true, pv, dv);
+        if (!isZero(dv)) {
+            double t = capDistance(ray, -pv / dv, maxDistance);
+            if (t > 0 && (closest == 0 || t < closest)) closest = t;
+            t = capDistance(ray, (height - pv) / dv, maxDistance);
+            if (t > 0 && (closest == 0 || t < closest)) closest = t;
+        }
+        return closest;
+    }
+
+    /**
+     * Calculates the dot product of a vector with the direction of the axis.
+     *
+     * @param x the x coordinate of the vector
+     * @param y the y coordinate of the vector
+     * @param z the z coordinate of the vector
+     * @return the projection of the vector on the axis
+     */
+    private double axisDot(double x, double y, double z) {
+        return VectorMath.dot(x, y, z, axis.direction.xyz.d1, axis.direction.xyz.d2, axis.direction.xyz.d3);
+    }
+
+    /**
+     * Calculates one of the intersections of the ray with the side of the cylinder, the tube between the caps.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance along the ray
+     * @param far         false for the nearer intersection with the tube, true for the farther one
+     * @param pv          the projection on the axis of the ray head, from the head of the axis
+     * @param dv          the projection on the axis of the ray direction
+     * @return the distance along the ray to the intersection, 0 if there is none or it is beyond a cap
+     */
+    private double sideDistance(Ray ray, double maxDistance, boolean far, double pv, double dv) {
+        double t = tubeRoot(ray, maxDistance, far);
+        if (t == 0) return 0;
+        double s = pv + t * dv; // the projection of the point on the axis
+        return alignZero(s) > 0 && alignZero(s - height) < 0 ? t : 0;
+    }
+
+    /**
+     * Calculates the intersection with the plane of a cap if it is inside the disc of the cap.
+     *
+     * @param ray         the ray
+     * @param t           the distance along the ray to the plane of the cap
+     * @param maxDistance the maximal distance along the ray
+     * @return the distance, 0 if the intersection is not ahead within the maximal distance or is outside the disc
+     */
+    private double capDistance(Ray ray, double t, double maxDistance) {
+        t = alignZero(t);
+        if (t <= 0 || alignZero(t - maxDistance) > 0) return 0;
+        Double3 v = axis.direction.xyz;
+        Double3 d = ray.direction.xyz;
+        // Vector from the head of the axis to the point, without its component along the axis
+        double qx = ray.head.xyz.d1 + t * d.d1 - axis.head.xyz.d1;
+        double qy = ray.head.xyz.d2 + t * d.d2 - axis.head.xyz.d2;
+        double qz = ray.head.xyz.d3 + t * d.d3 - axis.head.xyz.d3;
+        double s = VectorMath.dot(qx, qy, qz, v.d1, v.d2, v.d3);
+        double distanceSquared = VectorMath.dot(qx, qy, qz, qx, qy, qz) - s * s;
+        return alignZero(distanceSquared - radius * radius) < 0 ? t : 0;
+    }
+}
@@ -0,0 +1,537 @@
+package geometries;
+
+import java.io.Serial;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * FlatBVH is a bounding volume hierarchy over primitives given by their bounding boxes,
+ * stored in flat primitive arrays instead of a tree of objects.<br/>
+ * The nodes are kept in depth-first order: the left child of an inner node is the next node,
+ * and the node keeps the index of its right child. A leaf keeps a range in the array of the
+ * ordered primitive indices. The owner of the hierarchy traverses it with an explicit stack
+ * (see {@link #stack()}) and tests its own primitives in the leaves.<br/>
+ * The hierarchy is built by the surface area heuristic over binned centers, and large subtrees are
+ * built in parallel on the common fork-join pool.
+ *
+ * @author Isca Fitousi and Avital Orenstin
+ */
+final class FlatBVH {
+    /**
+     * The maximal depth of the hierarchy, which is also the size of the traversal stack.
+     */
+    static final int MAX_DEPTH = 64;
+    /**
+     * The amount of bins per axis for the evaluation of the split candidates.
+     */
+    private static final int BINS = 16;
+    /**
+     * The amount of primitives from which a subtree is built in a separate fork-join task.
+     */
+    private static final int PARALLEL_THRESHOLD = 4096;
+    /**
+     * The enlargement of the exit distances of the single precision slab test - a few units of rounding
+     * error of a float, which cover the rounding of the slab distances.
+     */
+    private static final float SLAB_ERROR = 1 + 0x1p-20f;
+
+    /**
+     * The bounds of the nodes - 6 numbers per node (min x, y, z and max x, y, z).
+     */
+    final double[] bounds;
+    /**
+     * Per node: the index of the right child for an inner node, or the first position in
+     * {@link #primitives} for a leaf.
+     */
+    final int[] offsets;
+    /**
+     * Per node: the amount of primitives of a leaf, 0 for an inner node.
+     */
+    final int[] counts;
+    /**
+     * The primitive indices ordered by the leaves of the hierarchy.
+     */
+    final int[] primitives;
+    /**
+     * The amount of nodes in the hierarchy.
+     */
+    final int nodeCount;
+    /**
+     * The statistics of the construction and the quality of the hierarchy.
+     */
+    final BVHStats stats;
+
+    /**
+     * The boxes of the primitives during the construction, null after it.
+     */
+    private double[] boxes;
+    /**
+     * The centers of the primitives' boxes during the construction (3 numbers per primitive), null after it.
+     */
+    private double[] centers;
+    /**
+     * The maximal amount of primitives in a leaf.
+     */
+    private final int leafSize;
+    /**
+     * Traversal stack of each thread.
+     */
+    private final ThreadLocal<int[]> stack = ThreadLocal.withInitial(() -> new int[MAX_DEPTH]);
+
+    /**
+     * Builds the hierarchy. A node is split by the binned surface area heuristic until it holds at most
+     * the leaf size of primitives, or its primitives cannot be separated.
+     *
+     * @param boxes    the bounding boxes of the primitives - 6 numbers per primitive
+     *                 (min x, y, z and max x, y, z)
+     * @param count    the amount of primitives
+     * @param leafSize the maximal amount of primitives in a leaf
+     */
+    FlatBVH(double[] boxes, int count, int leafSize) {
+        long start = System.nanoTime();
+        this.leafSize = Math.max(1, leafSize);
+        this.boxes = boxes;
+        primitives = new int[count];
+        centers = new double[3 * count];
+        for (int i = 0; i < count; ++i) {
+            primitives[i] = i;
+            for (int axis = 0; axis < 3; ++axis)
+                centers[3 * i + axis] = (boxes[6 * i + axis] + boxes[6 * i + 3 + axis]) / 2;
+        }
+
+        Node root = null;
+        if (count > 0) {
+            root = count >= PARALLEL_THRESHOLD
+                    ? ForkJoinPool.commonPool().invoke(new BuildTask(0, count, 0))
+                    : build(0, count, 0);
+        }
+
+        // Lay the nodes out in depth-first order
+        int nodes = root == null ? 0 : root.size;
+        bounds = new double[6 * nodes];
+        offsets = new int[nodes];
+        counts = new int[nodes];
+        Flattener flattener = new Flattener(root);
+        nodeCount = flattener.next;
+        // The build data is not needed by the traversal
+        this.boxes = null;
+        centers = null;
+        stats = new BVHStats(System.nanoTime() - start, nodeCount, flattener.leaves, flattener.maxDepth,
+                flattener.leaves == 0 ? 0 : (double) count / flattener.leaves, flattener.cost);
+    }
+
+    /**
+     * A node of the hierarchy during the construction.
+     */
+    private static final class Node {
+        /**
+         * The bounds of the node (min x, y, z and max x, y, z).
+         */
+        private final double[] bounds;
+        /**
+         * The range of the node's primitives in the primitives array.
+         */
+        private final int start, end;
+        /**
+         * The children of an inner node, null for a leaf.
+         */
+        private final Node left, right;
+        /**
+         * The amount of nodes in the subtree.
+         */
+        private final int size;
+
+        /**
+         * Constructs a node.
+         *
+         * @param bounds the bounds of the node
+         * @param start  the first position of the node's primitives
+         * @param end    the position after the node's primitives
+         * @param left   the left child, null for a leaf
+         * @param right  the right child, null for a leaf
+         */
+        private Node(double[] bounds, int start, int end, Node left, Node right) {
+            this.bounds = bounds;
+            this.start = start;
+            this.end = end;
+            this.left = left;
+            this.right = right;
+            this.size = left == null ? 1 : 1 + left.size + right.size;
+        }
+    }
+
+    /**
+     * Builds a large subtree, building its children in parallel.
+     */
+    private final class BuildTask extends RecursiveTask<Node> {
+        /**
+         * The serialization version of the task, which is never serialized.
+         */
+        @Serial
+        private static final long serialVersionUID = 1L;
+        /**
+         * The range of the primitives and the depth of the subtree.
+         */
+        private final int start, end, depth;
+
+        /**
+         * Constructs the task of a subtree.
+         *
+         * @param start the first position of the range in the primitives array
+         * @param end   the position after the range
+         * @param depth the depth of the subtree's root
+         */
+        private BuildTask(int start, int end, int depth) {
+            this.start = start;
+            this.end = end;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Node compute() {
+            return build(start, end, depth);
+        }
+    }
+
+    /**
+     * Builds the subtree of a range of primitives. The range is partitioned in place, so the subtrees of
+     * disjoint ranges may be built concurrently.
+     *
+     * @param start the first position of the range in the primitives array
+     * @param end   the position after the range
+     * @param depth the depth of the subtree's root
+     * @return the root of the subtree
+     */
+    private Node build(int start, int end, int depth) {
+        double[] box = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        double[] centerBox = box.clone();
+        for (int i = start; i < end; ++i) {
+            int p = primitives[i];
+            for (int k = 0; k < 3; ++k) {
+                box[k] = Math.min(box[k], boxes[6 * p + k]);
+                box[k + 3] = Math.max(box[k + 3], boxes[6 * p + 3 + k]);
+                centerBox[k] = Math.min(centerBox[k], centers[3 * p + k]);
+                centerBox[k + 3] = Math.max(centerBox[k + 3], centers[3 * p + k]);
+            }
+        }
+
+        if (end - start <= leafSize || depth >= MAX_DEPTH - 1) {
+            return new Node(box, start, end, null, null);
+        }
+        int middle = split(start, end, centerBox);
+        if (middle < 0) {
+            // All the centers coincide - the primitives cannot be separated
+            return new Node(box, start, end, null, null);
+        }
+
+        Node left, right;
+        if (end - start >= PARALLEL_THRESHOLD) {
+            BuildTask task = new BuildTask(start, middle, depth + 1);
+            task.fork();
+            right = build(middle, end, depth + 1);
+            left = task.join();
+        } else {
+            left = build(start, middle, depth + 1);
+            right = build(middle, end, depth + 1);
+        }
+        return new Node(box, start, end, left, right);
+    }
+
+    /**
+     * Partitions a range of primitives by the cheapest split of the surface area heuristic. The centers
+     * are binned along each axis, and the cost of a split between bins is the surface area of each side
+     * multiplied by its amount of primitives.
+     *
+     * @param start     the first position of the range in the primitives array
+     * @param end       the position after the range
+     * @param centerBox the bounds of the centers of the range's primitives
+     * @return the position of the split, or -1 if the centers coincide
+     */
+    private int split(int start, int end, double[] centerBox) {
+        int[] binCounts = new int[BINS];
+        double[] binBounds = new double[6 * BINS];
+        double[] rightArea = new double[BINS];
+        double bestCost = Double.POSITIVE_INFINITY;
+        int bestAxis = -1, bestBin = -1;
+
+        for (int axis = 0; axis < 3; ++axis) {
+            double min = centerBox[axis], extent = centerBox[axis + 3] - min;
+            if (!(extent > 0)) continue;
+            double scale = BINS / extent;
+
+            Arrays.fill(binCounts, 0);
+            for (int b = 0; b < BINS; ++b) {
+                for (int k = 0; k < 3; ++k) {
+                    binBounds[6 * b + k] = Double.POSITIVE_INFINITY;
+                    binBounds[6 * b + 3 + k] = Double.NEGATIVE_INFINITY;
+                }
+            }
+            for (int i = start; i < end; ++i) {
+                int p = primitives[i];
+                int b = bin(centers[3 * p + axis], min, scale);
+                ++binCounts[b];
+                for (int k = 0; k < 3; ++k) {
+                    binBounds[6 * b + k] = Math.min(binBounds[6 * b + k], boxes[6 * p + k]);
+                    binBounds[6 * b + 3 + k] = Math.max(binBounds[6 * b + 3 + k], boxes[6 * p + 3 + k]);
+                }
+            }
+
+            // Sweep from the right for the areas of the right sides, then from the left for the costs
+            double[] sweep = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                    Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+            for (int b = BINS - 1; b > 0; --b) {
+                grow(sweep, binBounds, b);
+                rightArea[b] = area(sweep);
+            }
+            Arrays.fill(sweep, 0, 3, Double.POSITIVE_INFINITY);
+            Arrays.fill(sweep, 3, 6, Double.NEGATIVE_INFINITY);
+            int leftCount = 0;
+            for (int b = 0; b < BINS - 1; ++b) {
+                grow(sweep, binBounds, b);
+                leftCount += binCounts[b];
+                int rightCount = end - start - leftCount;
+                if (leftCount == 0 || rightCount == 0) continue;
+                double cost = area(sweep) * leftCount + rightArea[b + 1] * rightCount;
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestAxis = axis;
+                    bestBin = b;
+                }
+            }
+        }
+        if (bestAxis < 0) return -1;
+
+        // Move the primitives of the bins up to the best one to the left side
+        double min = centerBox[bestAxis], scale = BINS / (centerBox[bestAxis + 3] - min);
+        int i = start, j = end - 1;
+        while (i <= j) {
+            if (bin(centers[3 * primitives[i] + bestAxis], min, scale) <= bestBin) {
+                ++i;
+            } else {
+                int tmp = primitives[i];
+                primitives[i] = primitives[j];
+                primitives[j--] = tmp;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Calculates the bin of a center coordinate.
+     *
+     * @param value the coordinate
+     * @param min   the minimal coordinate of the centers
+     * @param scale the amount of bins per unit
+     * @return the index of the bin
+     */
+    private static int bin(double value, double min, double scale) {
+        return Math.min(BINS - 1, (int) ((value - min) * scale));
+    }
+
+    /**
+     * Extends bounds to contain a box.
+     *
+     * @param bounds the bounds to extend (min x, y, z and max x, y, z)
+     * @param boxes  the array of the box
+     * @param index  the index of the box in the array
+     */
+    private static void grow(double[] bounds, double[] boxes, int index) {
+        for (int k = 0; k < 3; ++k) {
+            bounds[k] = Math.min(bounds[k], boxes[6 * index + k]);
+            bounds[k + 3] = Math.max(bounds[k + 3], boxes[6 * index + 3 + k]);
+        }
+    }
+
+    /**
+     * Calculates half of the surface area of bounds, 0 for empty bounds.
+     *
+     * @param bounds the bounds (min x, y, z and max x, y, z)
+     * @return half of the surface area
+     */
+    private static double area(double[] bounds) {
+        double dx = bounds[3] - bounds[0], dy = bounds[4] - bounds[1], dz = bounds[5] - bounds[2];
+        if (!(dx >= 0 && dy >= 0 && dz >= 0)) return 0;
+        return dx * dy + dy * dz + dz * dx;
+    }
+
+    /**
+     * Lays the built nodes out in depth-first order, and collects the statistics of the hierarchy.
+     */
+    private final class Flattener {
+        /**
+         * The index of the next node.
+         */
+        private int next = 0;
+        /**
+         * The amount of leaves.
+         */
+        private int leaves = 0;
+        /**
+         * The maximal depth of a leaf.
+         */
+        private int maxDepth = 0;
+        /**
+         * The surface area heuristic cost of the hierarchy.
+         */
+        private double cost = 0;
+        /**
+         * The surface area of the root.
+         */
+        private final double rootArea;
+
+        /**
+         * Lays out a hierarchy.
+         *
+         * @param root the root of the hierarchy, null for an empty hierarchy
+         */
+        private Flattener(Node root) {
+            rootArea = root == null ? 0 : area(root.bounds);
+            if (root != null) flatten(root, 0);
+        }
+
+        /**
+         * Lays out a subtree.
+         *
+         * @param node  the root of the subtree
+         * @param depth the depth of the subtree's root
+         */
+        private void flatten(Node node, int depth) {
+            int index = next++;
+            System.arraycopy(node.bounds, 0, bounds, 6 * index, 6);
+            // The probability to visit a node is relative to its area; a leaf costs a test per primitive
+            double probability = rootArea > 0 ? area(node.bounds) / rootArea : 1;
+            if (node.left == null) {
+                offsets[index] = node.start;
+                counts[index] = node.end - node.start;
+                ++leaves;
+                maxDepth = Math.max(maxDepth, depth);
+                cost += probability * counts[index];
+                return;
+            }
+            cost += probability;
+            flatten(node.left, depth + 1);
+            offsets[index] = next;
+            counts[index] = 0;
+            flatten(node.right, depth + 1);
+        }
+    }
+
+    /**
+     * Calculates the distance along a ray to the entry into the box of a node (slab test).
+     *
+     * @param node        the node
+     * @param ox          x of the head of the ray
+     * @param oy          y of the head of the ray
+     * @param oz          z of the head of the ray
+     * @param invX        1 / x of the direction of the ray
+     * @param invY        1 / y of the direction of the ray
+     * @param invZ        1 / z of the direction of the ray
+     * @param maxDistance the maximal distance along the ray
+     * @return the entry distance (0 if the head is inside the box),
+     * or positive infinity if the ray misses the box within the distance
+     */
+    double entry(int node, double ox, double oy, double oz, double invX, double invY, double invZ,
+                 double maxDistance) {
+        int b = 6 * node;
+        double tNear = 0, tFar = maxDistance;
+
+        // x slab
+        double t1 = (bounds[b] - ox) * invX, t2 = (bounds[b + 3] - ox) * invX;
+        if (t1 > t2) { double tmp = t1; t1 = t2; t2 = tmp; }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        if (tNear > tFar) return Double.POSITIVE_INFINITY;
+
+        // y slab
+        t1 = (bounds[b + 1] - oy) * invY;
+        t2 = (bounds[b + 4] - oy) * invY;
+        if (t1 > t2) { double tmp = t1; t1 = t2; t2 = tmp; }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        if (tNear > tFar) return Double.POSITIVE_INFINITY;
+
+        // z slab
+        t1 = (bounds[b + 2] - oz) * invZ;
+        t2 = (bounds[b + 5] - oz) * invZ;
+        if (t1 > t2) { double tmp = t1; t1 = t2; t2 = tmp; }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        return tNear <= tFar ? tNear : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Copies the bounds of the nodes to single precision, rounded outwards, so every box still contains
+     * its primitives (see {@link #entry(float[], int, float, float, float, float, float, float, float)}).
+     *
+     * @return the bounds of the nodes in single precision - 6 numbers per node
+     */
+    float[] singleBounds() {
+        float[] result = new float[bounds.length];
+        for (int b = 0; b < bounds.length; b += 6) {
+            for (int k = 0; k < 3; ++k) {
+                float min = (float) bounds[b + k], max = (float) bounds[b + 3 + k];
+                result[b + k] = min > bounds[b + k] ? Math.nextDown(min) : min;
+                result[b + 3 + k] = max < bounds[b + 3 + k] ? Math.nextUp(max) : max;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tests a ray against the box of a node in single precision, like
+     * {@link #entry(int, double, double, double, double, double, double, double)}. The exit distance is
+     * enlarged by a few units of rounding error, so the rounding of the slab distances never misses a box
+     * the ray grazes - including the boxes of no thickness around flat primitives.
+     *
+     * @param bounds      the bounds of the nodes in single precision (see {@link #singleBounds()})
+     * @param node        the node
+     * @param ox          x of the head of the ray
+     * @param oy          y of the head of the ray
+     * @param oz          z of the head of the ray
+     * @param invX        1 / x of the direction of the ray
+     * @param invY        1 / y of the direction of the ray
+     * @param invZ        1 / z of the direction of the ray
+     * @param maxDistance the maximal distance along the ray
+     * @return the entry distance (0 if the head is inside the box),
+     * or positive infinity if the ray misses the box within the distance
+     */
+    static float entry(float[] bounds, int node, float ox, float oy, float oz, float invX, float invY, float invZ,
+                       float maxDistance) {
+        int b = 6 * node;
+        float tNear = 0, tFar = maxDistance;
+
+        // x slab
+        float t1 = (bounds[b] - ox) * invX, t2 = (bounds[b + 3] - ox) * invX;
+        if (t1 > t2) { float tmp = t1; t1 = t2; t2 = tmp; }
+        if (t1 > tNear) tNear = t1;
+        if (t2 * SLAB_ERROR < tFar) tFar = t2 * SLAB_ERROR;
+        if (tNear > tFar) return Float.POSITIVE_INFINITY;
+
+        // y slab
+        t1 = (bounds[b + 1] - oy) * invY;
+        t2 = (bounds[b + 4] - oy) * invY;
+        if (t1 > t2) { float tmp = t1; t1 = t2; t2 = tmp; }
+        if (t1 > tNear) tNear = t1;
+        if (t2 * SLAB_ERROR < tFar) tFar = t2 * SLAB_ERROR;
+        if (tNear > tFar) return Float.POSITIVE_INFINITY;
+
+        // z slab
+        t1 = (bounds[b + 2] - oz) * invZ;
+        t2 = (bounds[b + 5] - oz) * invZ;
+        if (t1 > t2) { float tmp = t1; t1 = t2; t2 = tmp; }
+        if (t1 > tNear) tNear = t1;
+        if (t2 * SLAB_ERROR < tFar) tFar = t2 * SLAB_ERROR;
+        return tNear <= tFar ? tNear : Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the traversal stack of the current thread.
+     *
+     * @return an array of {@link #MAX_DEPTH} node indices
+     */
+    int[] stack() {
+        return stack.get();
+    }
+}
@@ -0,0 +1,77 @@
+package geometries;
+
+/**
+ * FloatTriangleArrays keeps triangles in a structure of arrays of single precision numbers, like
+ * {@link TriangleArrays} does in double precision - so a run of triangles takes half of the memory traffic,
+ * and a vector of a given width holds twice the triangles.<br/>
+ * Besides the coordinates, the arrays keep the inverse of the smallest altitude of each triangle, which converts
+ * a rounding error in units of distance to units of the barycentric coordinates of the triangle (see
+ * {@link IntersectionKernel#intersect(FloatTriangleArrays, int, float, float, float, float, float, float, float,
+ * float)}).<br/>
+ * The arrays are padded with empty triangles like those of {@link TriangleArrays}.
+ *
+ * @author Isca Fitousi and Avital Orenstin
+ */
+final class FloatTriangleArrays {
+    /**
+     * The first vertices of the triangles.
+     */
+    final float[] p0x, p0y, p0z;
+    /**
+     * The edges from the first vertices to the second ones.
+     */
+    final float[] e1x, e1y, e1z;
+    /**
+     * The edges from the first vertices to the third ones.
+     */
+    final float[] e2x, e2y, e2z;
+    /**
+     * The inverses of the smallest altitudes of the triangles (the largest float for degenerate triangles).
+     */
+    final float[] inverseAltitude;
+    /**
+     * The amount of triangles.
+     */
+    final int size;
+
+    /**
+     * Rounds triangles of double precision to single precision, in the same order and with the same padding.
+     *
+     * @param triangles the triangles in double precision
+     */
+    FloatTriangleArrays(TriangleArrays triangles) {
+        size = triangles.size;
+        p0x = round(triangles.p0x);
+        p0y = round(triangles.p0y);
+        p0z = round(triangles.p0z);
+        e1x = round(triangles.e1x);
+        e1y = round(triangles.e1y);
+        e1z = round(triangles.e1z);
+        e2x = round(triangles.e2x);
+        e2y = round(triangles.e2y);
+        e2z = round(triangles.e2z);
+        inverseAltitude = new float[p0x.length];
+        for (int i = 0; i < inverseAltitude.length; ++i) {
+            double ax = triangles.e1x[i], ay = triangles.e1y[i], az = triangles.e1z[i];
+            double bx = triangles.e2x[i], by = triangles.e2y[i], bz = triangles.e2z[i];
+            // The smallest altitude is twice the area divided by the longest edge
+            double cx = ay * bz - az * by, cy = az * bx - ax * bz, cz = ax * by - ay * bx;
+            double area = Math.sqrt(cx * cx + cy * cy + cz * cz);
+            double longest = Math.sqrt(Math.max(ax * ax + ay * ay + az * az, Math.max(bx * bx + by * by + bz * bz,
+                    (bx - ax) * (bx - ax) + (by - ay) * (by - ay) + (bz - az) * (bz - az))));
+            inverseAltitude[i] = area > 0 ? (float) Math.min(longest / area, Float.MAX_VALUE) : Float.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Rounds an array of numbers to single precision.
+     *
+     * @param values the numbers
+     * @return the rounded numbers
+     */
+    private static float[] round(double[] values) {
+        float[] result = new float[values.length];
+        for (int i = 0; i < values.length; ++i) result[i] = (float) values[i];
+        return result;
+    }
+}
@@ -1,7 +1,10 @@
 package geometries;
 
+import primitives.Double3;
 import primitives.Ray;
+import primitives.RayPacket;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -9,13 +12,48 @@ import java.util.List;
 /**
  * The `Geometries` class represents a collection of geometric objects in 3D space.
  * It inherits from the `Intersectable` interface and implements its methods to perform ray-tracing intersection calculations on the entire collection of geometries.
+ * The collection can be organized as a bounding volume hierarchy (BVH) by {@link #buildBVH()}.
+ * The hierarchy is kept in a flat, depth-first layout of primitive arrays (see {@link FlatBVH}) and is
+ * traversed with an explicit stack, without recursion and without allocations.
+ * Alternatively, dense scenes of evenly distributed geometries may be organized as a uniform grid
+ * by {@link #buildGrid()}.
  */
 
 public class Geometries extends Intersectable{
+    /**
+     * The maximal amount of geometries in a leaf of the bounding volume hierarchy.
+     */
+    private static final int MAX_LEAF_SIZE = 2;
+
     /**
      * A list of `Intersectable` objects representing the individual geometric shapes in the collection.
      */
-    List<Intersectable> geometries=new LinkedList<Intersectable>();
+    List<Intersectable> geometries=new ArrayList<Intersectable>();
+
+    /**
+     * Whether the collection contains an unbounded geometry (and therefore has no bounding box).
+     */
+    private boolean unbounded = false;
+
+    /**
+     * The bounding volume hierarchy over {@link #items}, null if the hierarchy was not built.
+     */
+    private FlatBVH bvh = null;
+
+    /**
+     * The uniform grid over {@link #items}, null if the grid was not built.
+     */
+    private UniformGrid grid = null;
+
+    /**
+     * The bounded geometries of the acceleration structure, indexed by its primitives.
+     */
+    private Intersectable[] items = null;
+
+    /**
+     * The statistics of the last {@link #buildBVH()}, null if the collection is not organized as a hierarchy.
+     */
+    private BVHStats bvhStats = null;
 
     /**
      * Default constructor that creates an empty collection of geometries.
@@ -41,6 +79,111 @@ public class Geometries extends Intersectable{
     public void add(Intersectable ... geometries)
     {
         Collections.addAll(this.geometries,geometries);
+        for (Intersectable geometry : geometries) {
+            BoundingBox geometryBox = geometry.getBoundingBox();
+            if (geometryBox == null) {
+                unbounded = true;
+                box = null;
+            } else if (!unbounded) {
+                box = box == null ? geometryBox : box.union(geometryBox);
+            }
+        }
+    }
+
+    /**
+     * Organizes the collection as a bounding volume hierarchy.
+     * Nested collections are flattened, the bounded geometries are arranged in a binary hierarchy
+     * split by the surface area heuristic (built in parallel for large scenes), and unbounded geometries
+     * (such as planes) are kept outside the hierarchy and tested for every ray.
+     * Geometries added after the call are tested linearly until the next call.
+     *
+     * @return this collection
+     */
+    public Geometries buildBVH() {
+        double[] boxes = collectItems();
+        FlatBVH hierarchy = new FlatBVH(boxes, items.length, MAX_LEAF_SIZE);
+        bvh = items.length > 0 ? hierarchy : null;
+        bvhStats = hierarchy.stats;
+        return this;
+    }
+
+    /**
+     * Organizes the collection as a uniform grid - an alternative to {@link #buildBVH()} for dense scenes
+     * of evenly distributed geometries of similar sizes, such as arrays of spheres.
+     * Nested collections are flattened, the bounded geometries are listed in the cells of a grid whose
+     * resolution is chosen from their amount and bounds, and unbounded geometries (such as planes) are kept
+     * outside the grid and tested for every ray.
+     * Geometries added after the call are tested linearly until the next call.
+     *
+     * @return this collection
+     */
+    public Geometries buildGrid() {
+        double[] boxes = collectItems();
+        grid = items.length > 0 ? new UniformGrid(boxes, items.length) : null;
+        return this;
+    }
+
+    /**
+     * Collects the geometries of the collection for a new acceleration structure: the unbounded geometries
+     * stay in the list, and the bounded ones become the {@link #items} of the structure.
+     * The previous structure is discarded.
+     *
+     * @return the bounding boxes of the items - 6 numbers per item (min x, y, z and max x, y, z)
+     */
+    private double[] collectItems() {
+        List<Intersectable> bounded = new ArrayList<>();
+        List<Intersectable> infinite = new ArrayList<>();
+        collect(this, bounded, infinite);
+
+        geometries = infinite;
+        items = bounded.toArray(new Intersectable[0]);
+        bvh = null;
+        grid = null;
+        bvhStats = null;
+        double[] boxes = new double[6 * items.length];
+        for (int i = 0; i < items.length; ++i) {
+            BoundingBox b = items[i].getBoundingBox();
+            boxes[6 * i] = b.minX;
+            boxes[6 * i + 1] = b.minY;
+            boxes[6 * i + 2] = b.minZ;
+            boxes[6 * i + 3] = b.maxX;
+            boxes[6 * i + 4] = b.maxY;
+            boxes[6 * i + 5] = b.maxZ;
+        }
+        return boxes;
+    }
+
+    /**
+     * Returns the statistics of the construction and the quality of the bounding volume hierarchy.
+     *
+     * @return the statistics of the last {@link #buildBVH()}, or null if the collection is not organized as a
+     * hierarchy
+     */
+    public BVHStats getBVHStats() {
+        return bvhStats;
+    }
+
+    /**
+     * Collects all the geometries of a collection (recursively) into bounded and unbounded lists.
+     *
+     * @param collection the collection to scan
+     * @param bounded    the list of the bounded geometries
+     * @param infinite   the list of the unbounded geometries
+     */
+    private static void collect(Geometries collection, List<Intersectable> bounded, List<Intersectable> infinite) {
+        // The geometries of a hierarchy built before are all bounded
+        if (collection.items != null) {
+            Collections.addAll(bounded, collection.items);
+        }
+        for (Intersectable geometry : collection.geometries) {
+            if (geometry instanceof Geometries nested) {
+                collect(nested, bounded, infinite);
+            } else if (geometry.getBoundingBox() == null) {
+                infinite.add(geometry);
+            } else {
+                bounded.add(geometry);
+            }
+        }
     }
 
     @Override
@@ -48,12 +191,271 @@ public class Geometries extends Intersectable{
         List<GeoPoint> allIntersections = new LinkedList<>();
 
         for (Intersectable geometry : geometries) {
+            // Skip the geometry if the ray misses its bounding box
+            if (geometry.box != null && !geometry.box.intersects(ray, maxDistance)) {
+                continue;
+            }
             List<GeoPoint> geometryIntersections = geometry.findGeoIntersectionsHelper(ray, maxDistance);
             if (geometryIntersections != null) {
                 allIntersections.addAll(geometryIntersections);
             }
         }
+
+        if (grid != null) {
+            UniformGrid.Walker walker = grid.walk(ray, maxDistance);
+            while (walker.next()) {
+                for (int i = walker.first(), end = walker.end(); i < end; ++i) {
+                    int item = grid.primitives[i];
+                    if (!walker.mark(item)) continue;
+                    List<GeoPoint> geometryIntersections = items[item].findGeoIntersectionsHelper(ray, maxDistance);
+                    if (geometryIntersections != null) {
+                        allIntersections.addAll(geometryIntersections);
+                    }
+                }
+            }
+        }
+        if (bvh != null) {
+            Double3 o = ray.head.xyz, d = ray.direction.xyz;
+            double invX = 1 / d.d1, invY = 1 / d.d2, invZ = 1 / d.d3;
+            int[] stack = bvh.stack();
+            int top = 0;
+            stack[top++] = 0;
+            while (top > 0) {
+                int node = stack[--top];
+                if (bvh.entry(node, o.d1, o.d2, o.d3, invX, invY, invZ, maxDistance) == Double.POSITIVE_INFINITY)
+                    continue;
+                int count = bvh.counts[node];
+                if (count == 0) {
+                    stack[top++] = bvh.offsets[node];
+                    stack[top++] = node + 1;
+                    continue;
+                }
+                for (int i = bvh.offsets[node], end = i + count; i < end; ++i) {
+                    Intersectable geometry = items[bvh.primitives[i]];
+                    // A single geometry of a leaf has the box of the leaf
+                    if (count > 1 && !geometry.box.intersects(ray, maxDistance)) continue;
+                    List<GeoPoint> geometryIntersections = geometry.findGeoIntersectionsHelper(ray, maxDistance);
+                    if (geometryIntersections != null) {
+                        allIntersections.addAll(geometryIntersections);
+                    }
+                }
+            }
+        }
         return allIntersections.isEmpty() ? null : allIntersections;
     }
-}
 
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 ktr, double minK,
+                                             HitRecord occluder) {
+        for (int i = 0; i < geometries.size(); i++) {
+            Intersectable geometry = geometries.get(i);
+            if (geometry.box != null && !geometry.box.intersects(ray, maxDistance)) {
+                continue;
+            }
+            ktr = geometry.findTransparencyHelper(ray, maxDistance, ktr, minK, occluder);
+            // Stop at the first occluder that blocks the ray
+            if (ktr.lowerThan(minK)) {
+                return ktr;
+            }
+        }
+        if (grid != null) {
+            UniformGrid.Walker walker = grid.walk(ray, maxDistance);
+            while (walker.next()) {
+                for (int i = walker.first(), end = walker.end(); i < end; ++i) {
+                    int item = grid.primitives[i];
+                    if (!walker.mark(item)) continue;
+                    ktr = items[item].findTransparencyHelper(ray, maxDistance, ktr, minK, occluder);
+                    if (ktr.lowerThan(minK)) {
+                        return ktr;
+                    }
+                }
+            }
+            return ktr;
+        }
+        if (bvh == null) {
+            return ktr;
+        }
+
+        Double3 o = ray.head.xyz, d = ray.direction.xyz;
+        double invX = 1 / d.d1, invY = 1 / d.d2, invZ = 1 / d.d3;
+        int[] stack = bvh.stack();
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (bvh.entry(node, o.d1, o.d2, o.d3, invX, invY, invZ, maxDistance) == Double.POSITIVE_INFINITY)
+                continue;
+            int count = bvh.counts[node];
+            if (count == 0) {
+                stack[top++] = bvh.offsets[node];
+                stack[top++] = node + 1;
+                continue;
+            }
+            for (int i = bvh.offsets[node], end = i + count; i < end; ++i) {
+                Intersectable geometry = items[bvh.primitives[i]];
+                if (count > 1 && !geometry.box.intersects(ray, maxDistance)) continue;
+                ktr = geometry.findTransparencyHelper(ray, maxDistance, ktr, minK, occluder);
+                if (ktr.lowerThan(minK)) {
+                    return ktr;
+                }
+            }
+        }
+        return ktr;
+    }
+
+    @Override
+    protected boolean findClosestHitHelper(Ray ray, HitRecord hit) {
+        boolean found = false;
+        for (int i = 0; i < geometries.size(); i++) {
+            Intersectable geometry = geometries.get(i);
+            // Skip the geometry if the ray misses its bounding box before the closest hit so far
+            if (geometry.box != null && !geometry.box.intersects(ray, hit.t)) {
+                continue;
+            }
+            if (geometry.findClosestHitHelper(ray, hit)) {
+                found = true;
+            }
+        }
+        if (grid != null) {
+            UniformGrid.Walker walker = grid.walk(ray, hit.t);
+            while (walker.next()) {
+                for (int i = walker.first(), end = walker.end(); i < end; ++i) {
+                    int item = grid.primitives[i];
+                    if (walker.mark(item) && items[item].findClosestHitHelper(ray, hit)) {
+                        found = true;
+                    }
+                }
+                // A hit before the exit from the cell is closer than anything in the next cells
+                if (hit.t <= walker.exit()) {
+                    break;
+                }
+            }
+            return found;
+        }
+        if (bvh == null) {
+            return found;
+        }
+
+        Double3 o = ray.head.xyz, d = ray.direction.xyz;
+        double invX = 1 / d.d1, invY = 1 / d.d2, invZ = 1 / d.d3;
+        int[] stack = bvh.stack();
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (bvh.entry(node, o.d1, o.d2, o.d3, invX, invY, invZ, hit.t) == Double.POSITIVE_INFINITY)
+                continue;
+            int count = bvh.counts[node];
+            if (count == 0) {
+                // Visit the nearer child first, so the farther one is culled by a closer hit
+                int left = node + 1, right = bvh.offsets[node];
+                double tLeft = bvh.entry(left, o.d1, o.d2, o.d3, invX, invY, invZ, hit.t);
+                double tRight = bvh.entry(right, o.d1, o.d2, o.d3, invX, invY, invZ, hit.t);
+                if (tLeft <= tRight) {
+                    if (tRight != Double.POSITIVE_INFINITY) stack[top++] = right;
+                    if (tLeft != Double.POSITIVE_INFINITY) stack[top++] = left;
+                } else {
+                    if (tLeft != Double.POSITIVE_INFINITY) stack[top++] = left;
+                    stack[top++] = right;
+                }
+                continue;
+            }
+            for (int i = bvh.offsets[node], end = i + count; i < end; ++i) {
+                Intersectable geometry = items[bvh.primitives[i]];
+                if (count > 1 && !geometry.box.intersects(ray, hit.t)) continue;
+                if (geometry.findClosestHitHelper(ray, hit)) {
+                    found = true;
+                }
+            }
+        }
+        return found;
+    }
+
+    @Override
+    protected boolean findClosestHitsHelper(RayPacket packet, HitRecord[] hits) {
+        // The cells of the grid are walked by each ray on its own
+        if (grid != null) {
+            return super.findClosestHitsHelper(packet, hits);
+        }
+        if (box != null && packet.missesBox(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ,
+                farthest(packet, hits))) {
+            return false;
+        }
+        boolean found = false;
+        for (int i = 0; i < geometries.size(); i++) {
+            Intersectable geometry = geometries.get(i);
+            if (geometry.findClosestHitsHelper(packet, hits)) {
+                found = true;
+            }
+        }
+        if (bvh == null) {
+            return found;
+        }
+
+        double far = farthest(packet, hits);
+        double[] bounds = bvh.bounds;
+        int[] stack = bvh.stack();
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            // Reject the node for the whole packet by its frustum, then find the first ray entering the node
+            int b = 6 * node;
+            if (packet.missesBox(bounds[b], bounds[b + 1], bounds[b + 2], bounds[b + 3], bounds[b + 4],
+                    bounds[b + 5], far))
+                continue;
+            int first = firstEntering(packet, hits, node);
+            if (first < 0)
+                continue;
+            int count = bvh.counts[node];
+            if (count == 0) {
+                // Visit first the child which the first entering ray meets first
+                int left = node + 1, right = bvh.offsets[node];
+                if (entry(packet, hits, first, left) <= entry(packet, hits, first, right)) {
+                    stack[top++] = right;
+                    stack[top++] = left;
+                } else {
+                    stack[top++] = left;
+                    stack[top++] = right;
+                }
+                continue;
+            }
+            for (int i = bvh.offsets[node], end = i + count; i < end; ++i) {
+                if (items[bvh.primitives[i]].findClosestHitsHelper(packet, hits)) {
+                    found = true;
+                    far = farthest(packet, hits);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Finds the first ray of a packet which enters a node of the hierarchy before its closest hit so far.
+     *
+     * @param packet the rays
+     * @param hits   the hit records of the rays
+     * @param node   the node
+     * @return the index of the ray, or -1 if no ray enters the node
+     */
+    private int firstEntering(RayPacket packet, HitRecord[] hits, int node) {
+        for (int r = 0; r < packet.size; ++r) {
+            if (entry(packet, hits, r, node) != Double.POSITIVE_INFINITY) return r;
+        }
+        return -1;
+    }
+
+    /**
+     * Calculates the entry distance of a ray of a packet into a node of the hierarchy.
+     *
+     * @param packet the rays
+     * @param hits   the hit records of the rays
+     * @param r      the index of the ray
+     * @param node   the node
+     * @return the entry distance, or positive infinity if the ray misses the node before its closest hit
+     */
+    private double entry(RayPacket packet, HitRecord[] hits, int r, int node) {
+        return bvh.entry(node, packet.ox, packet.oy, packet.oz, packet.inverseX[r], packet.inverseY[r],
+                packet.inverseZ[r], hits[r].t);
+    }
+}
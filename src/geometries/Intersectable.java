@@ -1,7 +1,9 @@
 package geometries;
 
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
+import primitives.RayPacket;
 
 import java.util.List;
 import java.util.Objects;
@@ -11,6 +13,20 @@ import java.util.Objects;
  */
 public abstract class Intersectable {
 
+    /**
+     * The axis-aligned bounding box of the intersectable object,
+     * or null if the object is unbounded (e.g. a plane or an infinite tube).
+     */
+    protected BoundingBox box = null;
+
+    /**
+     * Returns the bounding box of the intersectable object.
+     *
+     * @return the bounding box, or null if the object is unbounded
+     */
+    public BoundingBox getBoundingBox() {
+        return box;
+    }
 
     protected abstract List<GeoPoint>
     findGeoIntersectionsHelper(Ray ray, double maxDistance);
@@ -23,6 +39,129 @@ public abstract class Intersectable {
         return findGeoIntersectionsHelper(ray, maxDistance);
     }
 
+    /**
+     * Finds the closest intersection of the ray that is closer than the distance kept in the hit record,
+     * and stores it in the record. The record shrinks its distance with every closer intersection,
+     * so farther geometries are rejected early and no intersection lists are allocated.
+     *
+     * @param ray the ray to intersect
+     * @param hit the hit record to fill, its distance is the maximal distance for the intersection
+     * @return true if a closer intersection was found, false otherwise
+     */
+    public final boolean findClosestHit(Ray ray, HitRecord hit) {
+        if (!findClosestHitHelper(ray, hit)) {
+            return false;
+        }
+        if (hit.point == null) {
+            hit.point = ray.getPoint(hit.t);
+        }
+        return true;
+    }
+
+    /**
+     * Helper for {@link #findClosestHit(Ray, HitRecord)}. The default implementation picks the closest
+     * point of the intersections list, geometries override it with allocation-free calculations which
+     * set the distance and the geometry of the record and leave its point null.
+     *
+     * @param ray the ray to intersect
+     * @param hit the hit record to update
+     * @return true if a closer intersection was found, false otherwise
+     */
+    protected boolean findClosestHitHelper(Ray ray, HitRecord hit) {
+        List<GeoPoint> intersections = findGeoIntersectionsHelper(ray, hit.t);
+        if (intersections == null) {
+            return false;
+        }
+        boolean found = false;
+        for (GeoPoint geoPoint : intersections) {
+            double t = ray.head.distance(geoPoint.point);
+            if (t < hit.t) {
+                hit.t = t;
+                hit.geometry = geoPoint.geometry;
+                hit.point = geoPoint.point;
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Finds the closest intersection of each ray of a packet, like {@link #findClosestHit(Ray, HitRecord)}
+     * for all the rays together. The records are matched to the rays by their index.
+     *
+     * @param packet the rays to intersect
+     * @param hits   the hit records to fill, one per ray, their distances are the maximal distances
+     * @return true if a closer intersection was found for any of the rays, false otherwise
+     */
+    public final boolean findClosestHits(RayPacket packet, HitRecord[] hits) {
+        if (!findClosestHitsHelper(packet, hits)) {
+            return false;
+        }
+        for (int i = 0; i < packet.size; ++i) {
+            HitRecord hit = hits[i];
+            if (hit.geometry != null && hit.point == null) {
+                hit.point = packet.rays[i].getPoint(hit.t);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Helper for {@link #findClosestHits(RayPacket, HitRecord[])}. The default implementation rejects the
+     * whole packet by the bounding box and otherwise intersects the rays one by one, geometries override it
+     * with calculations which share the terms of the common head of the rays.
+     *
+     * @param packet the rays to intersect
+     * @param hits   the hit records to update, one per ray
+     * @return true if a closer intersection was found for any of the rays, false otherwise
+     */
+    protected boolean findClosestHitsHelper(RayPacket packet, HitRecord[] hits) {
+        if (box != null && packet.missesBox(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ,
+                farthest(packet, hits))) {
+            return false;
+        }
+        boolean found = false;
+        for (int i = 0; i < packet.size; ++i) {
+            if (findClosestHitHelper(packet.rays[i], hits[i])) {
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Calculates the maximal distance of the intersections which may still be found for a packet.
+     *
+     * @param packet the rays
+     * @param hits   the hit records of the rays
+     * @return the farthest distance of the records
+     */
+    static double farthest(RayPacket packet, HitRecord[] hits) {
+        double far = 0;
+        for (int i = 0; i < packet.size; ++i) {
+            if (hits[i].t > far) far = hits[i].t;
+        }
+        return far;
+    }
+
+    /**
+     * Records a closer intersection of a ray, found by the packet calculations of a geometry.
+     *
+     * @param hit      the hit record of the ray
+     * @param t        the distance of the intersection, not positive if there is none
+     * @param geometry the intersected geometry
+     * @return true if the intersection is closer than the record, false otherwise
+     */
+    static boolean record(HitRecord hit, double t, Geometry geometry) {
+        if (t <= 0 || t >= hit.t) {
+            return false;
+        }
+        hit.t = t;
+        hit.geometry = geometry;
+        hit.point = null;
+        return true;
+    }
+
     /**
      * Represents a geometric point with an associated geometry and position.
      * This is an internal class and should not be used directly.*
@@ -37,6 +176,107 @@ public abstract class Intersectable {
     }
 
 
+    /**
+     * Calculates the transparency (transmission factor) of the geometries along a shadow ray up to
+     * the maximal distance. The query stops as soon as the accumulated transmission falls below the
+     * given threshold, so an opaque occluder ends it at the first hit.
+     *
+     * @param ray         the shadow ray
+     * @param maxDistance the maximal distance (e.g. the distance to the light source)
+     * @param minK        the transmission threshold below which the ray is considered blocked
+     * @return the accumulated transmission factor (lower than minK if the ray is blocked)
+     */
+    public final Double3 findTransparency(Ray ray, double maxDistance, double minK) {
+        return findTransparencyHelper(ray, maxDistance, Double3.ONE, minK, null);
+    }
+
+    /**
+     * Calculates the transparency along a shadow ray like {@link #findTransparency(Ray, double, double)},
+     * and reports the geometry whose intersection blocked the ray, so it can be tested first by the
+     * following queries (e.g. of neighbouring points).
+     *
+     * @param ray         the shadow ray
+     * @param maxDistance the maximal distance (e.g. the distance to the light source)
+     * @param minK        the transmission threshold below which the ray is considered blocked
+     * @param occluder    a record whose geometry is set to the blocking geometry if the ray is blocked
+     * @return the accumulated transmission factor (lower than minK if the ray is blocked)
+     */
+    public final Double3 findTransparency(Ray ray, double maxDistance, double minK, HitRecord occluder) {
+        return findTransparencyHelper(ray, maxDistance, Double3.ONE, minK, occluder);
+    }
+
+    /**
+     * Helper for {@link #findTransparency(Ray, double, double, HitRecord)}. The default implementation
+     * multiplies the transparency coefficients of the intersections list.
+     *
+     * @param ray         the shadow ray
+     * @param maxDistance the maximal distance
+     * @param ktr         the transmission factor accumulated so far
+     * @param minK        the transmission threshold below which the ray is considered blocked
+     * @param occluder    a record for the blocking geometry, or null if it is not required
+     * @return the updated transmission factor
+     */
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 ktr, double minK,
+                                             HitRecord occluder) {
+        List<GeoPoint> intersections = findGeoIntersectionsHelper(ray, maxDistance);
+        if (intersections == null) {
+            return ktr;
+        }
+        for (GeoPoint geoPoint : intersections) {
+            ktr = ktr.product(geoPoint.geometry.getMaterial().getkT());
+            if (ktr.lowerThan(minK)) {
+                if (occluder != null) occluder.geometry = geoPoint.geometry;
+                return ktr;
+            }
+        }
+        return ktr;
+    }
+
+    /**
+     * Mutable record of the closest intersection found so far along a ray.
+     * A record is meant to be reused for many queries (e.g. one record per rendering thread).
+     */
+    public static class HitRecord {
+
+        /**
+         * The distance along the ray of the closest intersection found so far,
+         * which is the maximal distance for the following intersections.
+         */
+        public double t;
+
+        /**
+         * The geometry of the closest intersection, null if no intersection was found.
+         */
+        public Geometry geometry;
+
+        /**
+         * The point of the closest intersection, calculated when the query is finished.
+         */
+        public Point point;
+
+        /**
+         * Whether the geometries may search the intersections in single precision (e.g. for camera rays and
+         * shadow rays), which is kept by {@link #reset(double)}. The distance and the point of a closest hit
+         * are calculated in double precision all the same; a single precision search may only miss a hit,
+         * or take a hit of another geometry, within its rounding error - so the heads of the shadow rays
+         * should be offset beyond that error (see {@link Ray#SINGLE_PRECISION_ERROR}).
+         */
+        public boolean singlePrecision;
+
+        /**
+         * Resets the record before a new query.
+         *
+         * @param maxDistance the maximal distance for the intersection
+         * @return the record itself
+         */
+        public HitRecord reset(double maxDistance) {
+            this.t = maxDistance;
+            this.geometry = null;
+            this.point = null;
+            return this;
+        }
+    }
+
     public static class GeoPoint {
 
         /**
@@ -0,0 +1,199 @@
+package geometries;
+
+import primitives.Double3;
+
+/**
+ * IntersectionKernel intersects a ray with a run of triangles kept in a {@link TriangleArrays}.<br/>
+ * The kernel of the running JVM is chosen once: the SIMD kernel of the Vector API ({@code VectorKernel}, in the
+ * {@code vector} source root, which is compiled with {@code --add-modules jdk.incubator.vector}) if it is compiled
+ * and the {@code jdk.incubator.vector} module is present (e.g. the JVM was started with
+ * {@code --add-modules jdk.incubator.vector}), otherwise the scalar kernel. Both kernels give the same
+ * distances as {@link Triangle#intersect}, to the last bit.<br/>
+ * The kernels also intersect triangles of single precision ({@link FloatTriangleArrays}) by the same
+ * Möller–Trumbore test (see {@link #intersect(FloatTriangleArrays, int, float, float, float, float, float,
+ * float, float, float)}), which is conservative: the triangles are enlarged by the rounding error of the
+ * calculation in single precision, so a ray which hits a triangle in double precision hits it in single
+ * precision too, and neighbouring triangles leave no gaps between them.
+ *
+ * @author Isca Fitousi and Avital Orenstin
+ */
+abstract class IntersectionKernel {
+    /**
+     * The name of the vector module.
+     */
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    /**
+     * The least enlargement of the triangles in the single precision test, in barycentric coordinates.
+     */
+    static final float SINGLE_MARGIN = 0x1p-16f;
+    /**
+     * The largest enlargement of the triangles in the single precision test, in barycentric coordinates,
+     * which bounds the enlargement of degenerate triangles.
+     */
+    static final float MAX_SINGLE_MARGIN = 0.5f;
+    /**
+     * The relative rounding error of the single precision test, with a margin for its few operations
+     * (see {@link #singleError(double)}).
+     */
+    private static final double SINGLE_ERROR = 0x1p-21;
+
+    /**
+     * The scalar kernel.
+     */
+    static final IntersectionKernel SCALAR = new IntersectionKernel() {
+        @Override
+        int lanes() {
+            return 1;
+        }
+
+        @Override
+        void intersectTriangles(TriangleArrays triangles, int start, int count, Double3 o, Double3 d,
+                                double maxDistance, double[] distances) {
+            for (int i = 0; i < count; ++i) {
+                int k = start + i;
+                distances[i] = Triangle.intersect(o, d, triangles.p0x[k], triangles.p0y[k], triangles.p0z[k],
+                        triangles.e1x[k], triangles.e1y[k], triangles.e1z[k],
+                        triangles.e2x[k], triangles.e2y[k], triangles.e2z[k], maxDistance, null);
+            }
+        }
+
+        @Override
+        void intersectTriangles(FloatTriangleArrays triangles, int start, int count, float ox, float oy, float oz,
+                                float dx, float dy, float dz, float maxDistance, float error, float[] distances) {
+            for (int i = 0; i < count; ++i) {
+                distances[i] = intersect(triangles, start + i, ox, oy, oz, dx, dy, dz, maxDistance, error);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "scalar";
+        }
+    };
+
+    /**
+     * The kernel of the running JVM.
+     */
+    static final IntersectionKernel INSTANCE = select();
+
+    /**
+     * Chooses the kernel of the running JVM.
+     *
+     * @return the vector kernel if it is compiled, the vector module is present and the kernel works, the scalar
+     * kernel otherwise
+     */
+    private static IntersectionKernel select() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return SCALAR;
+        }
+        try {
+            // Loaded by name, so the classes of the module are never linked without it, and the vector source
+            // root may be left out of the build
+            return (IntersectionKernel) Class.forName("geometries.VectorKernel").getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return SCALAR;
+        }
+    }
+
+    /**
+     * Returns the amount of triangles the kernel intersects together, which is the padding the arrays need.
+     *
+     * @return the amount of lanes of a vector
+     */
+    abstract int lanes();
+
+    /**
+     * Intersects a ray with a run of triangles.
+     *
+     * @param triangles   the triangles
+     * @param start       the first triangle of the run
+     * @param count       the amount of triangles in the run
+     * @param o           the head of the ray
+     * @param d           the direction of the ray
+     * @param maxDistance the maximal distance along the ray
+     * @param distances   an array to fill with the distance of each triangle of the run, or 0 if the ray does
+     *                    not intersect it within the maximal distance - at least {@code count} rounded up to
+     *                    whole {@link #lanes()} long
+     */
+    abstract void intersectTriangles(TriangleArrays triangles, int start, int count, Double3 o, Double3 d,
+                                     double maxDistance, double[] distances);
+
+    /**
+     * Intersects a ray with a run of triangles in single precision.
+     *
+     * @param triangles   the triangles
+     * @param start       the first triangle of the run
+     * @param count       the amount of triangles in the run
+     * @param ox          x of the head of the ray
+     * @param oy          y of the head of the ray
+     * @param oz          z of the head of the ray
+     * @param dx          x of the direction of the ray
+     * @param dy          y of the direction of the ray
+     * @param dz          z of the direction of the ray
+     * @param maxDistance the maximal distance along the ray
+     * @param error       the rounding error of the calculations along the ray (see {@link #singleError(double)})
+     * @param distances   an array to fill with the distance of each triangle of the run, or 0 if the ray does
+     *                    not intersect it within the maximal distance - at least {@code count} rounded up to
+     *                    whole {@link #lanes()} long
+     */
+    abstract void intersectTriangles(FloatTriangleArrays triangles, int start, int count, float ox, float oy,
+                                     float oz, float dx, float dy, float dz, float maxDistance, float error,
+                                     float[] distances);
+
+    /**
+     * Calculates the rounding error of the single precision tests along a ray, in units of distance.
+     * The heads of the rays, the vertices and the differences between them are rounded to floats, so the error
+     * is relative to the largest of their coordinates.
+     *
+     * @param magnitude the largest absolute coordinate of the head of the ray and of the triangles
+     * @return the rounding error of the tests
+     */
+    static float singleError(double magnitude) {
+        return (float) (SINGLE_ERROR * magnitude);
+    }
+
+    /**
+     * Calculates the distance along a ray to its intersection with a triangle in single precision, by the
+     * Möller–Trumbore test of {@link Triangle#intersect}. The barycentric coordinates are checked with a
+     * margin instead of the alignment to zero, so the test is conservative: the rounding error divided by the
+     * smallest altitude of the triangle, and at least {@link #SINGLE_MARGIN}.
+     *
+     * @param triangles   the triangles
+     * @param k           the index of the triangle
+     * @param ox          x of the head of the ray
+     * @param oy          y of the head of the ray
+     * @param oz          z of the head of the ray
+     * @param dx          x of the direction of the ray
+     * @param dy          y of the direction of the ray
+     * @param dz          z of the direction of the ray
+     * @param maxDistance the maximal distance along the ray
+     * @param error       the rounding error of the calculations along the ray (see {@link #singleError(double)})
+     * @return the distance, or 0 if the ray does not intersect the triangle within the maximal distance
+     */
+    static float intersect(FloatTriangleArrays triangles, int k, float ox, float oy, float oz,
+                           float dx, float dy, float dz, float maxDistance, float error) {
+        float e1x = triangles.e1x[k], e1y = triangles.e1y[k], e1z = triangles.e1z[k];
+        float e2x = triangles.e2x[k], e2y = triangles.e2y[k], e2z = triangles.e2z[k];
+
+        // p = d x e2, the determinant is zero if the ray is parallel to the triangle
+        float px = e2z * dy - e2y * dz, py = e2x * dz - e2z * dx, pz = e2y * dx - e2x * dy;
+        float det = e1x * px + e1y * py + e1z * pz;
+        if (!(Math.abs(det) > 0)) return 0;
+        float inverse = 1 / det;
+        float margin = Math.min(error * triangles.inverseAltitude[k] + SINGLE_MARGIN, MAX_SINGLE_MARGIN);
+
+        // Vector from the first vertex to the head of the ray
+        float sx = ox - triangles.p0x[k], sy = oy - triangles.p0y[k], sz = oz - triangles.p0z[k];
+        float u = (sx * px + sy * py + sz * pz) * inverse;
+        if (!(u >= -margin && u <= 1 + margin)) return 0;
+
+        // q = s x e1
+        float qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+        float v = (qx * dx + qy * dy + qz * dz) * inverse;
+        if (!(v >= -margin && u + v <= 1 + margin)) return 0;
+
+        float t = (e2x * qx + e2y * qy + e2z * qz) * inverse;
+        return t > 0 && t <= maxDistance ? t : 0;
+    }
+}
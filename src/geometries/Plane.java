@@ -1,8 +1,11 @@
 package geometries;
 
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
+import primitives.RayPacket;
 import primitives.Vector;
+import primitives.VectorMath;
 
 import java.util.List;
 
@@ -80,20 +83,73 @@ public class Plane extends Geometry {
 
     @Override
     protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
-        double t_denominator = normal.dotProduct(ray.getDirection());
+        double t = findIntersectionDistance(ray);
 
-        // If the denominator is close to zero or the ray starts from the point on the plane, there is no intersection.
-        if (isZero(t_denominator) || point.equals(ray.getHead())) {
+        if (t <= 0 || alignZero(t - maxDistance) > 0) {
             return null;
         }
 
-        double t = alignZero(normal.dotProduct(point.subtract(ray.getHead())) / t_denominator);
+        return List.of(new GeoPoint(this, ray.getPoint(t)));
+    }
 
-        if (t <= 0 || alignZero(t - maxDistance) > 0) {
-            return null;
+    @Override
+    protected boolean findClosestHitHelper(Ray ray, HitRecord hit) {
+        double t = findIntersectionDistance(ray);
+
+        if (t <= 0 || t >= hit.t) {
+            return false;
         }
+        hit.t = t;
+        hit.geometry = this;
+        hit.point = null;
+        return true;
+    }
 
-        return List.of(new GeoPoint(this, ray.getPoint(t)));
+    @Override
+    protected boolean findClosestHitsHelper(RayPacket packet, HitRecord[] hits) {
+        Double3 n = normal.xyz;
+        // Vector from the common head to the point of the plane
+        double px = point.xyz.d1 - packet.ox;
+        double py = point.xyz.d2 - packet.oy;
+        double pz = point.xyz.d3 - packet.oz;
+        if (isZero(px) && isZero(py) && isZero(pz)) {
+            return false;
+        }
+
+        double numerator = VectorMath.dot(n.d1, n.d2, n.d3, px, py, pz);
+        boolean found = false;
+        for (int i = 0; i < packet.size; ++i) {
+            double t_denominator = VectorMath.dot(n.d1, n.d2, n.d3, packet.dx[i], packet.dy[i], packet.dz[i]);
+            if (!isZero(t_denominator) && record(hits[i], alignZero(numerator / t_denominator), this)) {
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Calculates the distance along the ray to its intersection with the plane, without allocations.
+     *
+     * @param ray the ray to intersect
+     * @return the distance (may be negative if the plane is behind the ray), or 0 if the ray is
+     * parallel to the plane or starts from the point of the plane
+     */
+    double findIntersectionDistance(Ray ray) {
+        Double3 n = normal.xyz;
+        Double3 d = ray.direction.xyz;
+        double t_denominator = VectorMath.dot(n.d1, n.d2, n.d3, d.d1, d.d2, d.d3);
+
+        // Vector from the head of the ray to the point of the plane
+        double px = point.xyz.d1 - ray.head.xyz.d1;
+        double py = point.xyz.d2 - ray.head.xyz.d2;
+        double pz = point.xyz.d3 - ray.head.xyz.d3;
+
+        // If the denominator is close to zero or the ray starts from the point on the plane, there is no intersection.
+        if (isZero(t_denominator) || (isZero(px) && isZero(py) && isZero(pz))) {
+            return 0;
+        }
+
+        return alignZero(VectorMath.dot(n.d1, n.d2, n.d3, px, py, pz) / t_denominator);
     }
 
 
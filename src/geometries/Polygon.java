@@ -1,11 +1,14 @@
 package geometries;
 
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
+import primitives.VectorMath;
 
 import java.util.List;
 
+import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
 
 /**
@@ -47,6 +50,7 @@ public class Polygon extends Geometry {
             throw new IllegalArgumentException("A polygon can't have less than 3 vertices");
         this.vertices = List.of(vertices);
         size          = vertices.length;
+        box           = BoundingBox.of(this.vertices);
 
         // Generate the plane according to the first three vertices and associate the
         // polygon with this plane.
@@ -85,7 +89,52 @@ public class Polygon extends Geometry {
 
 
     @Override
-    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double minDistance) {
-        return null;
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        double t = findIntersectionDistance(ray, maxDistance);
+        return t <= 0 ? null : List.of(new GeoPoint(this, ray.getPoint(t)));
+    }
+
+    @Override
+    protected boolean findClosestHitHelper(Ray ray, HitRecord hit) {
+        double t = findIntersectionDistance(ray, hit.t);
+        if (t <= 0 || t >= hit.t) return false;
+        hit.t = t;
+        hit.geometry = this;
+        hit.point = null;
+        return true;
+    }
+
+    /**
+     * Calculates the distance along the ray to its intersection with the polygon, without allocations.
+     * The ray is rejected by the bounding box first, then the distance is found on the plane of the
+     * polygon, and the point is inside the (convex) polygon if the ray direction is on the same side
+     * of all the planes through the head of the ray and the polygon's sides.
+     * @param  ray         the ray to intersect
+     * @param  maxDistance the maximal distance along the ray
+     * @return             the distance, or 0 if the ray does not intersect the polygon within the
+     *                     maximal distance
+     */
+    private double findIntersectionDistance(Ray ray, double maxDistance) {
+        if (!box.intersects(ray, maxDistance)) return 0;
+        double t = plane.findIntersectionDistance(ray);
+        if (t <= 0 || alignZero(t - maxDistance) > 0) return 0;
+
+        Double3 head = ray.head.xyz;
+        Double3 d    = ray.direction.xyz;
+        Double3 last = vertices.get(size - 1).xyz;
+        double  ax   = last.d1 - head.d1, ay = last.d2 - head.d2, az = last.d3 - head.d3;
+        boolean positive = false;
+        for (int i = 0; i < size; ++i) {
+            Double3 p    = vertices.get(i).xyz;
+            double  bx   = p.d1 - head.d1, by = p.d2 - head.d2, bz = p.d3 - head.d3;
+            double  sign = alignZero(VectorMath.tripleProduct(d.d1, d.d2, d.d3, ax, ay, az, bx, by, bz));
+            if (sign == 0) return 0; // on a side or its continuation
+            if (i == 0) positive = sign > 0;
+            else if (positive != sign > 0) return 0;
+            ax = bx;
+            ay = by;
+            az = bz;
+        }
+        return t;
     }
 }
\ No newline at end of file
@@ -1,12 +1,16 @@
 package geometries;
 
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
+import primitives.RayPacket;
 import primitives.Vector;
+import primitives.VectorMath;
 
 import java.util.List;
 
 import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
 
 /**
  * The Sphere class represents a sphere in three-dimensional space.
@@ -29,6 +33,9 @@ public class Sphere extends RadialGeometry {
     public Sphere(Point center,double radius) {
         super(radius);
         this.center = center;
+        this.box = new BoundingBox(
+                center.xyz.d1 - radius, center.xyz.d2 - radius, center.xyz.d3 - radius,
+                center.xyz.d1 + radius, center.xyz.d2 + radius, center.xyz.d3 + radius);
     }
 
 
@@ -50,7 +57,7 @@ public class Sphere extends RadialGeometry {
             cTOs = center.subtract(p0);
             //if p0 == _center it is illegal
         } catch (IllegalArgumentException e) {
-            return List.of(new GeoPoint(this, (ray.getPoint(radius))));
+            return alignZero(radius - maxDistance) < 0 ? List.of(new GeoPoint(this, (ray.getPoint(radius)))) : null;
         }
         double tm = alignZero(v.dotProduct(cTOs));
         double dSquared = (tm == 0) ? cTOs.lengthSquared() : cTOs.lengthSquared() - tm * tm;
@@ -69,8 +76,11 @@ public class Sphere extends RadialGeometry {
         // ray constructed outside sphere
         // two intersection points
         if (t1 > 0 && t2 > 0) {
-
-            return List.of(new GeoPoint(this, P1), new GeoPoint(this, P2));
+            if (alignZero(t2 - maxDistance) < 0) {
+                return List.of(new GeoPoint(this, P1), new GeoPoint(this, P2));
+            }
+            // only the closer point is before the maximal distance
+            return alignZero(t1 - maxDistance) < 0 ? List.of(new GeoPoint(this, P1)) : null;
         }
         // ray constructed inside sphere and intersect in back direction
         if (t1 > 0 && alignZero(t1 - maxDistance) < 0) {
@@ -86,4 +96,73 @@ public class Sphere extends RadialGeometry {
         return null;
     }
 
+    @Override
+    protected boolean findClosestHitHelper(Ray ray, HitRecord hit) {
+        Double3 v = ray.direction.xyz;
+        //vector from camera to center of sphere
+        double lx = center.xyz.d1 - ray.head.xyz.d1;
+        double ly = center.xyz.d2 - ray.head.xyz.d2;
+        double lz = center.xyz.d3 - ray.head.xyz.d3;
+
+        double t;
+        if (isZero(lx) && isZero(ly) && isZero(lz)) {
+            // the ray starts at the center of the sphere
+            t = radius;
+        } else {
+            double lSquared = VectorMath.dot(lx, ly, lz, lx, ly, lz);
+            double tm = alignZero(VectorMath.dot(v.d1, v.d2, v.d3, lx, ly, lz));
+            double dSquared = (tm == 0) ? lSquared : lSquared - tm * tm;
+            double thSquared = alignZero(radius * radius - dSquared);
+            if (thSquared <= 0) return false;
+
+            double th = alignZero(Math.sqrt(thSquared));
+            if (th == 0) return false;
+
+            double t1 = alignZero(tm - th);
+            // the closer point if it is in front of the ray, otherwise the farther one
+            t = t1 > 0 ? t1 : alignZero(tm + th);
+        }
+
+        if (t <= 0 || t >= hit.t) {
+            return false;
+        }
+        hit.t = t;
+        hit.geometry = this;
+        hit.point = null;
+        return true;
+    }
+
+    @Override
+    protected boolean findClosestHitsHelper(RayPacket packet, HitRecord[] hits) {
+        //vector from the common head to center of sphere
+        double lx = center.xyz.d1 - packet.ox;
+        double ly = center.xyz.d2 - packet.oy;
+        double lz = center.xyz.d3 - packet.oz;
+        if (isZero(lx) && isZero(ly) && isZero(lz)) {
+            return super.findClosestHitsHelper(packet, hits);
+        }
+        if (packet.missesBox(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ, farthest(packet, hits))) {
+            return false;
+        }
+
+        double lSquared = VectorMath.dot(lx, ly, lz, lx, ly, lz);
+        double rSquared = radius * radius;
+        boolean found = false;
+        for (int i = 0; i < packet.size; ++i) {
+            double tm = alignZero(VectorMath.dot(packet.dx[i], packet.dy[i], packet.dz[i], lx, ly, lz));
+            double dSquared = (tm == 0) ? lSquared : lSquared - tm * tm;
+            double thSquared = alignZero(rSquared - dSquared);
+            if (thSquared <= 0) continue;
+
+            double th = alignZero(Math.sqrt(thSquared));
+            if (th == 0) continue;
+
+            double t1 = alignZero(tm - th);
+            if (record(hits[i], t1 > 0 ? t1 : alignZero(tm + th), this)) {
+                found = true;
+            }
+        }
+        return found;
+    }
+
 }
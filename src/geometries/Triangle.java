@@ -1,12 +1,16 @@
 package geometries;
 
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
-import primitives.Vector;
+import primitives.RayPacket;
+import primitives.VectorMath;
 
-import java.util.ArrayList;
 import java.util.List;
 
+import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
+
 /**
  * The Triangle class represents a triangle in three-dimensional space.
  * A triangle is a polygon with three vertices.
@@ -14,6 +18,19 @@ import java.util.List;
  */
 public class Triangle extends Polygon {
 
+    /**
+     * The first vertex of the triangle.
+     */
+    private final double p0x, p0y, p0z;
+    /**
+     * The edge from the first vertex to the second.
+     */
+    private final double e1x, e1y, e1z;
+    /**
+     * The edge from the first vertex to the third.
+     */
+    private final double e2x, e2y, e2z;
+
     /**
      * Constructs a triangle with the specified vertices.
      *
@@ -21,45 +38,142 @@ public class Triangle extends Polygon {
      */
     public Triangle(Point... vertices) {
         super(vertices);
+        Double3 p1 = this.vertices.get(0).xyz, p2 = this.vertices.get(1).xyz, p3 = this.vertices.get(2).xyz;
+        p0x = p1.d1;
+        p0y = p1.d2;
+        p0z = p1.d3;
+        e1x = p2.d1 - p1.d1;
+        e1y = p2.d2 - p1.d2;
+        e1z = p2.d3 - p1.d3;
+        e2x = p3.d1 - p1.d1;
+        e2y = p3.d2 - p1.d2;
+        e2z = p3.d3 - p1.d3;
     }
 
     @Override
     protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        double t = findIntersectionDistance(ray, maxDistance, null);
+        if (t <= 0) {
+            return null; // No intersection with triangle
+        }
+        return List.of(new GeoPoint(this, ray.getPoint(t)));
+    }
 
-        // Step 1: Check for intersection with the plane containing the triangle
+    @Override
+    protected boolean findClosestHitHelper(Ray ray, HitRecord hit) {
+        double t = findIntersectionDistance(ray, hit.t, null);
+        if (t <= 0 || t >= hit.t) {
+            return false;
+        }
+        hit.t = t;
+        hit.geometry = this;
+        hit.point = null;
+        return true;
+    }
 
-        List<GeoPoint> planeIntersections = plane.findGeoIntersections(ray, maxDistance);
-        if (planeIntersections == null) {
-            return null; // No intersection with plane - no intersection with triangle
+    @Override
+    protected boolean findClosestHitsHelper(RayPacket packet, HitRecord[] hits) {
+        if (box != null && packet.missesBox(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ,
+                farthest(packet, hits))) {
+            return false;
         }
-        // Get the first intersection point (may need to adjust if multiple)
-
-        // Vectors representing the triangle's edges
-        Vector v1 = vertices.get(0).subtract(ray.head);
-        Vector v2 = vertices.get(1).subtract(ray.head);
-        Vector v3 = vertices.get(2).subtract(ray.head);
-
-        // Normal vectors to the triangle's edges
-        Vector N1 = v1.crossProduct(v2).normalize();
-        Vector N2 = v2.crossProduct(v3).normalize();
-        Vector N3 = v3.crossProduct(v1).normalize();
-
-        // Calculate dot product between ray direction and normal vectors
-        double sign1 = ray.direction.dotProduct(N1);
-        double sign2 = ray.direction.dotProduct(N2);
-        double sign3 = ray.direction.dotProduct(N3);
-
-        // Check if all signs are the same (point inside triangle)
-        if ((sign1 > 0 && sign2 > 0 && sign3 > 0) || (sign1 < 0 && sign2 < 0 && sign3 < 0)) {
-            // Intersection point is inside the triangle
-            List<GeoPoint> geoPoints = new ArrayList<>();
-            Point point1 = planeIntersections.getFirst().point;
-            geoPoints.add(new GeoPoint(this, point1)); // Add only the first valid point
-            return geoPoints;
+        // The terms of the common head: s = o - p0, q = s x e1 and e2 . q
+        double sx = packet.ox - p0x, sy = packet.oy - p0y, sz = packet.oz - p0z;
+        double qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+        double e2q = VectorMath.dot(e2x, e2y, e2z, qx, qy, qz);
+
+        boolean found = false;
+        for (int i = 0; i < packet.size; ++i) {
+            double dx = packet.dx[i], dy = packet.dy[i], dz = packet.dz[i];
+            // p = d x e2, the determinant is zero if the ray is parallel to the triangle
+            double px = dy * e2z - dz * e2y, py = dz * e2x - dx * e2z, pz = dx * e2y - dy * e2x;
+            double det = VectorMath.dot(e1x, e1y, e1z, px, py, pz);
+            if (isZero(det)) continue;
+            double inverse = 1 / det;
+
+            double u = alignZero(VectorMath.dot(sx, sy, sz, px, py, pz) * inverse);
+            if (u <= 0 || alignZero(u - 1) >= 0) continue;
+            double v = alignZero(VectorMath.dot(dx, dy, dz, qx, qy, qz) * inverse);
+            if (v <= 0 || alignZero(u + v - 1) >= 0) continue;
+
+            if (record(hits[i], alignZero(e2q * inverse), this)) {
+                found = true;
+            }
         }
+        return found;
+    }
 
-        return null; // No intersection with triangle
+    /**
+     * Calculates the intersection of the ray with the triangle in a single pass, without allocations.
+     * The barycentric coordinates (u, v) of the intersection point are relative to the first vertex:
+     * the point is p1 + u(p2 - p1) + v(p3 - p1).
+     *
+     * @param ray         the ray to intersect
+     * @param maxDistance the maximal distance along the ray
+     * @param uv          an array to fill with the barycentric coordinates (u, v), or null if not needed
+     * @return the distance, or 0 if the ray does not intersect the triangle within the maximal distance
+     */
+    public double findIntersectionDistance(Ray ray, double maxDistance, double[] uv) {
+        return intersect(ray.head.xyz, ray.direction.xyz, p0x, p0y, p0z, e1x, e1y, e1z, e2x, e2y, e2z,
+                maxDistance, uv);
     }
 
-}
+    /**
+     * Möller–Trumbore ray-triangle intersection. The triangle is given by a vertex and the two edges
+     * from it, and the edges and the vertices themselves are not considered a part of the triangle.
+     * The calculation rejects the ray as soon as one of the barycentric coordinates is out of range.
+     *
+     * @param o           the head of the ray
+     * @param d           the direction of the ray
+     * @param p0x         x of the first vertex
+     * @param p0y         y of the first vertex
+     * @param p0z         z of the first vertex
+     * @param e1x         x of the edge from the first vertex to the second
+     * @param e1y         y of the edge from the first vertex to the second
+     * @param e1z         z of the edge from the first vertex to the second
+     * @param e2x         x of the edge from the first vertex to the third
+     * @param e2y         y of the edge from the first vertex to the third
+     * @param e2z         z of the edge from the first vertex to the third
+     * @param maxDistance the maximal distance along the ray
+     * @param uv          an array to fill with the barycentric coordinates (u, v), or null if not needed
+     * @return the distance, or 0 if the ray does not intersect the triangle within the maximal distance
+     */
+    static double intersect(Double3 o, Double3 d,
+                            double p0x, double p0y, double p0z,
+                            double e1x, double e1y, double e1z,
+                            double e2x, double e2y, double e2z,
+                            double maxDistance, double[] uv) {
+        // p = d x e2, the determinant is zero if the ray is parallel to the triangle
+        double px = d.d2 * e2z - d.d3 * e2y, py = d.d3 * e2x - d.d1 * e2z, pz = d.d1 * e2y - d.d2 * e2x;
+        double det = VectorMath.dot(e1x, e1y, e1z, px, py, pz);
+        if (isZero(det)) {
+            return 0;
+        }
+        double inverse = 1 / det;
 
+        // Vector from the first vertex to the head of the ray
+        double sx = o.d1 - p0x, sy = o.d2 - p0y, sz = o.d3 - p0z;
+        double u = alignZero(VectorMath.dot(sx, sy, sz, px, py, pz) * inverse);
+        if (u <= 0 || alignZero(u - 1) >= 0) {
+            return 0;
+        }
+
+        // q = s x e1
+        double qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+        double v = alignZero(VectorMath.dot(d.d1, d.d2, d.d3, qx, qy, qz) * inverse);
+        if (v <= 0 || alignZero(u + v - 1) >= 0) {
+            return 0;
+        }
+
+        double t = alignZero(VectorMath.dot(e2x, e2y, e2z, qx, qy, qz) * inverse);
+        if (t <= 0 || alignZero(t - maxDistance) > 0) {
+            return 0;
+        }
+        if (uv != null) {
+            uv[0] = u;
+            uv[1] = v;
+        }
+        return t;
+    }
+
+}
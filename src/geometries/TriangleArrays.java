@@ -0,0 +1,64 @@
+package geometries;
+
+/**
+ * TriangleArrays keeps triangles in a structure of arrays: each coordinate of the first vertex and of the two
+ * edges from it has an array of its own, so an intersection kernel loads the same coordinate of neighbouring
+ * triangles together (see {@link IntersectionKernel}).<br/>
+ * The arrays are padded with empty triangles up to whole vectors of the kernel, so a kernel may load a full
+ * vector from any triangle without checking the end of the arrays.
+ *
+ * @author Isca Fitousi and Avital Orenstin
+ */
+final class TriangleArrays {
+    /**
+     * The first vertices of the triangles.
+     */
+    final double[] p0x, p0y, p0z;
+    /**
+     * The edges from the first vertices to the second ones.
+     */
+    final double[] e1x, e1y, e1z;
+    /**
+     * The edges from the first vertices to the third ones.
+     */
+    final double[] e2x, e2y, e2z;
+    /**
+     * The amount of triangles.
+     */
+    final int size;
+
+    /**
+     * Copies triangles of indexed vertices into arrays, in the given order.
+     *
+     * @param vertices the vertex positions - 3 numbers (x, y, z) per vertex
+     * @param indices  the triangles - 3 vertex indices per triangle
+     * @param order    the triangles to copy, by the order of the arrays
+     * @param padding  the amount of empty triangles to add at the end of the arrays
+     */
+    TriangleArrays(double[] vertices, int[] indices, int[] order, int padding) {
+        size = order.length;
+        int length = size + padding;
+        p0x = new double[length];
+        p0y = new double[length];
+        p0z = new double[length];
+        e1x = new double[length];
+        e1y = new double[length];
+        e1z = new double[length];
+        e2x = new double[length];
+        e2y = new double[length];
+        e2z = new double[length];
+        for (int i = 0; i < size; ++i) {
+            int tri = order[i];
+            int i1 = 3 * indices[3 * tri], i2 = 3 * indices[3 * tri + 1], i3 = 3 * indices[3 * tri + 2];
+            p0x[i] = vertices[i1];
+            p0y[i] = vertices[i1 + 1];
+            p0z[i] = vertices[i1 + 2];
+            e1x[i] = vertices[i2] - p0x[i];
+            e1y[i] = vertices[i2 + 1] - p0y[i];
+            e1z[i] = vertices[i2 + 2] - p0z[i];
+            e2x[i] = vertices[i3] - p0x[i];
+            e2y[i] = vertices[i3 + 1] - p0y[i];
+            e2z[i] = vertices[i3 + 2] - p0z[i];
+        }
+    }
+}
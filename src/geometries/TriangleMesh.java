@@ -0,0 +1,582 @@
+package geometries;
+
+import primitives.*;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * The TriangleMesh class represents a large set of triangles which share one material and emission.
+ * Instead of a {@link Triangle} object per face, the mesh keeps a single copy of its triangles, in primitive
+ * arrays ordered by the leaves of an internal {@link FlatBVH}, which are intersected by the
+ * {@link IntersectionKernel}. The vertex and index arrays of the constructor are not kept, and a triangle is
+ * identified by its position in the leaf order. A mesh costs 100 to 120 bytes per triangle: 72 for the
+ * triangle (a vertex and two edges in double precision), 4 for the order of the leaves and 28 to 44 for the
+ * nodes of the hierarchy, by how full its leaves are (see {@link #footprint()}).<br/>
+ * Queries which allow single precision (see {@link HitRecord#singlePrecision}) traverse a copy of the
+ * hierarchy and of the triangles in single precision, built on the first such query, which takes half of
+ * the memory traffic and adds 40 bytes per triangle and 24 per node. The single precision tests are
+ * conservative, and the closest hit they find is recalculated in double precision, so its distance and point
+ * are those of the double precision query.<br/>
+ * A face is materialized as a lightweight geometry only when it is the result of an intersection.
+ *
+ * @author Isca Fitousi and Avital Orenstin
+ */
+public class TriangleMesh extends Geometry {
+
+    /**
+     * The maximal amount of triangles in a leaf of the internal hierarchy.
+     */
+    private static final int MAX_LEAF_SIZE = 4;
+    /**
+     * The kernel which intersects the rays with the triangles of the leaves.
+     */
+    private static final IntersectionKernel KERNEL = IntersectionKernel.INSTANCE;
+
+    /**
+     * The internal acceleration structure over the triangles.
+     */
+    private final FlatBVH bvh;
+    /**
+     * The triangles in the order of the leaves of the hierarchy - the only copy of the triangles of the mesh.
+     */
+    private final TriangleArrays triangles;
+    /**
+     * The distances of the triangles of a leaf, one array per rendering thread.
+     */
+    private final ThreadLocal<double[]> distances;
+    /**
+     * The hierarchy and the triangles in single precision, null until the first query which allows them.
+     */
+    private volatile SinglePrecision single;
+    /**
+     * The distances of the triangles of a leaf in single precision, one array per rendering thread.
+     */
+    private final ThreadLocal<float[]> singleDistances;
+
+    /**
+     * Constructs a mesh from vertex positions and triangle indices.
+     * The triangles are copied, so the arrays are not referenced by the mesh after the construction.
+     *
+     * @param vertices the vertex positions - 3 numbers (x, y, z) per vertex
+     * @param indices  the triangles - 3 vertex indices per triangle
+     * @throws IllegalArgumentException if the array lengths are not multiples of 3,
+     *                                  there are no triangles or an index is out of range
+     */
+    public TriangleMesh(double[] vertices, int[] indices) {
+        if (vertices.length % 3 != 0)
+            throw new IllegalArgumentException("The vertices array must hold 3 coordinates per vertex");
+        if (indices.length == 0 || indices.length % 3 != 0)
+            throw new IllegalArgumentException("The indices array must hold 3 indices per triangle");
+        int vertexCount = vertices.length / 3;
+        for (int index : indices)
+            if (index < 0 || index >= vertexCount)
+                throw new IllegalArgumentException("Vertex index out of range: " + index);
+
+        int count = indices.length / 3;
+        double[] boxes = new double[6 * count];
+        for (int tri = 0; tri < count; ++tri) {
+            for (int axis = 0; axis < 3; ++axis) {
+                double a = vertices[3 * indices[3 * tri] + axis];
+                double b = vertices[3 * indices[3 * tri + 1] + axis];
+                double c = vertices[3 * indices[3 * tri + 2] + axis];
+                boxes[6 * tri + axis] = Math.min(a, Math.min(b, c));
+                boxes[6 * tri + 3 + axis] = Math.max(a, Math.max(b, c));
+            }
+        }
+        bvh = new FlatBVH(boxes, count, MAX_LEAF_SIZE);
+        int lanes = KERNEL.lanes();
+        triangles = new TriangleArrays(vertices, indices, bvh.primitives, lanes);
+        distances = ThreadLocal.withInitial(() -> new double[(MAX_LEAF_SIZE + lanes - 1) / lanes * lanes]);
+        singleDistances = ThreadLocal.withInitial(() -> new float[(MAX_LEAF_SIZE + lanes - 1) / lanes * lanes]);
+        double[] root = bvh.bounds;
+        box = new BoundingBox(root[0], root[1], root[2], root[3], root[4], root[5]);
+    }
+
+    /**
+     * Returns the amount of triangles in the mesh.
+     *
+     * @return the amount of triangles
+     */
+    public int getTriangleCount() {
+        return triangles.size;
+    }
+
+    /**
+     * Returns the statistics of the construction and the quality of the mesh's internal hierarchy.
+     *
+     * @return the statistics of the hierarchy
+     */
+    public BVHStats getBVHStats() {
+        return bvh.stats;
+    }
+
+    /**
+     * Returns the amount of bytes which the arrays of the mesh take, including the single precision copy
+     * if it has been built - without the headers of the arrays and of the objects.
+     *
+     * @return the footprint of the mesh in bytes
+     */
+    long footprint() {
+        long bytes = 9L * Double.BYTES * triangles.p0x.length
+                + (long) Double.BYTES * bvh.bounds.length
+                + (long) Integer.BYTES * (bvh.offsets.length + bvh.counts.length + bvh.primitives.length);
+        SinglePrecision copy = single;
+        if (copy != null)
+            bytes += 10L * Float.BYTES * copy.triangles.p0x.length + (long) Float.BYTES * copy.bounds.length;
+        return bytes;
+    }
+
+    /**
+     * The normal of a mesh at a point is the normal of the face which contains the point, found through the
+     * hierarchy as the face nearest to it - so a point near the mesh gets the normal of its nearest face.
+     *
+     * @param point a point on the mesh
+     * @return the normal of the face of the point
+     */
+    @Override
+    public Vector getNormal(Point point) {
+        return new Face(findNearestFace(point.xyz)).getNormal(point);
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        Double3 o = ray.head.xyz, d = ray.direction.xyz;
+        double invX = 1 / d.d1, invY = 1 / d.d2, invZ = 1 / d.d3;
+        List<GeoPoint> result = null;
+
+        int[] stack = bvh.stack();
+        double[] distance = distances.get();
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (bvh.entry(node, o.d1, o.d2, o.d3, invX, invY, invZ, maxDistance) == Double.POSITIVE_INFINITY)
+                continue;
+            int count = bvh.counts[node];
+            if (count == 0) {
+                stack[top++] = bvh.offsets[node];
+                stack[top++] = node + 1;
+                continue;
+            }
+            int first = bvh.offsets[node];
+            KERNEL.intersectTriangles(triangles, first, count, o, d, maxDistance, distance);
+            for (int i = 0; i < count; ++i) {
+                double t = distance[i];
+                if (t <= 0) continue;
+                if (result == null) result = new LinkedList<>();
+                result.add(new GeoPoint(new Face(first + i), ray.getPoint(t)));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    protected boolean findClosestHitHelper(Ray ray, HitRecord hit) {
+        Double3 o = ray.head.xyz, d = ray.direction.xyz;
+        if (hit.singlePrecision) {
+            int tri = findClosestSingle(o, d, hit.t);
+            if (tri < 0) return false;
+            double t = intersect(tri, o, d, hit.t);
+            if (t > 0) {
+                hit.t = t;
+                hit.geometry = new Face(tri);
+                hit.point = null;
+                return true;
+            }
+            // The ray passes through the margin of the closest triangle - find the hit in double precision
+        }
+        double invX = 1 / d.d1, invY = 1 / d.d2, invZ = 1 / d.d3;
+        int closest = -1;
+
+        int[] stack = bvh.stack();
+        double[] distance = distances.get();
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (bvh.entry(node, o.d1, o.d2, o.d3, invX, invY, invZ, hit.t) == Double.POSITIVE_INFINITY)
+                continue;
+            int count = bvh.counts[node];
+            if (count == 0) {
+                // Visit the nearer child first, so the farther one is culled by a closer hit
+                int left = node + 1, right = bvh.offsets[node];
+                double tLeft = bvh.entry(left, o.d1, o.d2, o.d3, invX, invY, invZ, hit.t);
+                double tRight = bvh.entry(right, o.d1, o.d2, o.d3, invX, invY, invZ, hit.t);
+                if (tLeft <= tRight) {
+                    if (tRight != Double.POSITIVE_INFINITY) stack[top++] = right;
+                    if (tLeft != Double.POSITIVE_INFINITY) stack[top++] = left;
+                } else {
+                    if (tLeft != Double.POSITIVE_INFINITY) stack[top++] = left;
+                    stack[top++] = right;
+                }
+                continue;
+            }
+            int first = bvh.offsets[node];
+            KERNEL.intersectTriangles(triangles, first, count, o, d, hit.t, distance);
+            for (int i = 0; i < count; ++i) {
+                double t = distance[i];
+                if (t > 0 && t < hit.t) {
+                    hit.t = t;
+                    closest = first + i;
+                }
+            }
+        }
+        if (closest < 0) return false;
+        hit.geometry = new Face(closest);
+        hit.point = null;
+        return true;
+    }
+
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 ktr, double minK,
+                                             HitRecord occluder) {
+        Double3 kT = getMaterial().getkT();
+        Double3 o = ray.head.xyz, d = ray.direction.xyz;
+        if (occluder != null && occluder.singlePrecision && ktr.product(kT).lowerThan(minK)) {
+            // The first hit blocks the ray, so any hit of the single precision test will do
+            int tri = findAnySingle(o, d, maxDistance);
+            if (tri < 0) return ktr;
+            occluder.geometry = new Face(tri);
+            return ktr.product(kT);
+        }
+        double invX = 1 / d.d1, invY = 1 / d.d2, invZ = 1 / d.d3;
+
+        int[] stack = bvh.stack();
+        double[] distance = distances.get();
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (bvh.entry(node, o.d1, o.d2, o.d3, invX, invY, invZ, maxDistance) == Double.POSITIVE_INFINITY)
+                continue;
+            int count = bvh.counts[node];
+            if (count == 0) {
+                stack[top++] = bvh.offsets[node];
+                stack[top++] = node + 1;
+                continue;
+            }
+            int first = bvh.offsets[node];
+            KERNEL.intersectTriangles(triangles, first, count, o, d, maxDistance, distance);
+            for (int i = 0; i < count; ++i) {
+                if (distance[i] <= 0) continue;
+                // All the faces share the material, so every hit multiplies the same coefficient
+                ktr = ktr.product(kT);
+                if (ktr.lowerThan(minK)) {
+                    if (occluder != null) occluder.geometry = new Face(first + i);
+                    return ktr;
+                }
+            }
+        }
+        return ktr;
+    }
+
+    /**
+     * Finds the triangle nearest to a point, visiting only the nodes whose boxes are nearer than the nearest
+     * triangle found so far.
+     *
+     * @param p the point
+     * @return the position of the nearest triangle
+     */
+    private int findNearestFace(Double3 p) {
+        double[] bounds = bvh.bounds;
+        double nearest = Double.POSITIVE_INFINITY;
+        int face = 0;
+
+        int[] stack = bvh.stack();
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            int b = 6 * node;
+            double dx = Math.max(0, Math.max(bounds[b] - p.d1, p.d1 - bounds[b + 3]));
+            double dy = Math.max(0, Math.max(bounds[b + 1] - p.d2, p.d2 - bounds[b + 4]));
+            double dz = Math.max(0, Math.max(bounds[b + 2] - p.d3, p.d3 - bounds[b + 5]));
+            if (dx * dx + dy * dy + dz * dz >= nearest) continue;
+            int count = bvh.counts[node];
+            if (count == 0) {
+                stack[top++] = bvh.offsets[node];
+                stack[top++] = node + 1;
+                continue;
+            }
+            int first = bvh.offsets[node];
+            for (int tri = first; tri < first + count; ++tri) {
+                double distance = distanceSquared(tri, p);
+                if (distance < nearest) {
+                    nearest = distance;
+                    face = tri;
+                }
+            }
+        }
+        return face;
+    }
+
+    /**
+     * Calculates the squared distance from a point to the closest point of a triangle of the mesh, by the
+     * region of the triangle (vertex, edge or face) which the point projects to.
+     *
+     * @param tri the position of the triangle in the leaf order
+     * @param p   the point
+     * @return the squared distance, NaN for a degenerate triangle
+     */
+    private double distanceSquared(int tri, Double3 p) {
+        TriangleArrays t = triangles;
+        double abx = t.e1x[tri], aby = t.e1y[tri], abz = t.e1z[tri];
+        double acx = t.e2x[tri], acy = t.e2y[tri], acz = t.e2z[tri];
+        double apx = p.d1 - t.p0x[tri], apy = p.d2 - t.p0y[tri], apz = p.d3 - t.p0z[tri];
+        double d1 = abx * apx + aby * apy + abz * apz, d2 = acx * apx + acy * apy + acz * apz;
+        // d3, d4 and d5, d6 are the products of the edges with the vectors from the other vertices to the point
+        double ab2 = abx * abx + aby * aby + abz * abz, ac2 = acx * acx + acy * acy + acz * acz;
+        double abac = abx * acx + aby * acy + abz * acz;
+        double d3 = d1 - ab2, d4 = d2 - abac, d5 = d1 - abac, d6 = d2 - ac2;
+
+        // The closest point is the first vertex plus v times the first edge plus w times the second one
+        double v, w;
+        double vc = d1 * d4 - d3 * d2, vb = d5 * d2 - d1 * d6, va = d3 * d6 - d5 * d4;
+        if (d1 <= 0 && d2 <= 0) {
+            v = 0;
+            w = 0;
+        } else if (d3 >= 0 && d4 <= d3) {
+            v = 1;
+            w = 0;
+        } else if (vc <= 0 && d1 >= 0 && d3 <= 0) {
+            v = d1 / (d1 - d3);
+            w = 0;
+        } else if (d6 >= 0 && d5 <= d6) {
+            v = 0;
+            w = 1;
+        } else if (vb <= 0 && d2 >= 0 && d6 <= 0) {
+            v = 0;
+            w = d2 / (d2 - d6);
+        } else if (va <= 0 && d4 >= d3 && d5 >= d6) {
+            w = (d4 - d3) / ((d4 - d3) + (d5 - d6));
+            v = 1 - w;
+        } else {
+            double sum = va + vb + vc;
+            v = vb / sum;
+            w = vc / sum;
+        }
+        double x = apx - v * abx - w * acx, y = apy - v * aby - w * acy, z = apz - v * abz - w * acz;
+        return x * x + y * y + z * z;
+    }
+
+    /**
+     * Returns the hierarchy and the triangles in single precision, building them on the first use.
+     *
+     * @return the single precision copy of the mesh
+     */
+    private SinglePrecision single() {
+        SinglePrecision copy = single;
+        if (copy == null) {
+            synchronized (this) {
+                if (single == null) {
+                    double magnitude = 0;
+                    for (double bound : bvh.bounds) magnitude = Math.max(magnitude, Math.abs(bound));
+                    single = new SinglePrecision(bvh.singleBounds(), new FloatTriangleArrays(triangles), magnitude);
+                }
+                copy = single;
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Finds the closest triangle along a ray in single precision.
+     *
+     * @param o           the head of the ray
+     * @param d           the direction of the ray
+     * @param maxDistance the maximal distance along the ray
+     * @return the position of the closest triangle, or -1 if the ray does not hit the mesh within the distance
+     */
+    private int findClosestSingle(Double3 o, Double3 d, double maxDistance) {
+        SinglePrecision copy = single();
+        float[] bounds = copy.bounds;
+        float ox = (float) o.d1, oy = (float) o.d2, oz = (float) o.d3;
+        float dx = (float) d.d1, dy = (float) d.d2, dz = (float) d.d3;
+        float invX = 1 / dx, invY = 1 / dy, invZ = 1 / dz;
+        float closestT = Math.nextUp((float) maxDistance);
+        float error = copy.error(o);
+        int closest = -1;
+
+        int[] stack = bvh.stack();
+        float[] distance = singleDistances.get();
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (FlatBVH.entry(bounds, node, ox, oy, oz, invX, invY, invZ, closestT) == Float.POSITIVE_INFINITY)
+                continue;
+            int count = bvh.counts[node];
+            if (count == 0) {
+                // Visit the nearer child first, so the farther one is culled by a closer hit
+                int left = node + 1, right = bvh.offsets[node];
+                float tLeft = FlatBVH.entry(bounds, left, ox, oy, oz, invX, invY, invZ, closestT);
+                float tRight = FlatBVH.entry(bounds, right, ox, oy, oz, invX, invY, invZ, closestT);
+                if (tLeft <= tRight) {
+                    if (tRight != Float.POSITIVE_INFINITY) stack[top++] = right;
+                    if (tLeft != Float.POSITIVE_INFINITY) stack[top++] = left;
+                } else {
+                    if (tLeft != Float.POSITIVE_INFINITY) stack[top++] = left;
+                    stack[top++] = right;
+                }
+                continue;
+            }
+            int first = bvh.offsets[node];
+            KERNEL.intersectTriangles(copy.triangles, first, count, ox, oy, oz, dx, dy, dz, closestT, error,
+                    distance);
+            for (int i = 0; i < count; ++i) {
+                float t = distance[i];
+                if (t > 0 && t < closestT) {
+                    closestT = t;
+                    closest = first + i;
+                }
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Finds any triangle along a ray in single precision.
+     *
+     * @param o           the head of the ray
+     * @param d           the direction of the ray
+     * @param maxDistance the maximal distance along the ray
+     * @return the position of a triangle which the ray hits, or -1 if it does not hit the mesh within the distance
+     */
+    private int findAnySingle(Double3 o, Double3 d, double maxDistance) {
+        SinglePrecision copy = single();
+        float[] bounds = copy.bounds;
+        float ox = (float) o.d1, oy = (float) o.d2, oz = (float) o.d3;
+        float dx = (float) d.d1, dy = (float) d.d2, dz = (float) d.d3;
+        float invX = 1 / dx, invY = 1 / dy, invZ = 1 / dz;
+        float max = Math.nextUp((float) maxDistance);
+        float error = copy.error(o);
+
+        int[] stack = bvh.stack();
+        float[] distance = singleDistances.get();
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (FlatBVH.entry(bounds, node, ox, oy, oz, invX, invY, invZ, max) == Float.POSITIVE_INFINITY)
+                continue;
+            int count = bvh.counts[node];
+            if (count == 0) {
+                stack[top++] = bvh.offsets[node];
+                stack[top++] = node + 1;
+                continue;
+            }
+            int first = bvh.offsets[node];
+            KERNEL.intersectTriangles(copy.triangles, first, count, ox, oy, oz, dx, dy, dz, max, error, distance);
+            for (int i = 0; i < count; ++i) {
+                if (distance[i] > 0) return first + i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The hierarchy and the triangles of the mesh in single precision.
+     *
+     * @param bounds    the bounds of the nodes of the hierarchy (see {@link FlatBVH#singleBounds()})
+     * @param triangles the triangles in the order of the leaves of the hierarchy
+     * @param magnitude the largest absolute coordinate of the mesh
+     */
+    private record SinglePrecision(float[] bounds, FloatTriangleArrays triangles, double magnitude) {
+
+        /**
+         * Calculates the rounding error of the single precision tests along a ray.
+         *
+         * @param o the head of the ray
+         * @return the rounding error (see {@link IntersectionKernel#singleError(double)})
+         */
+        private float error(Double3 o) {
+            return IntersectionKernel.singleError(Math.max(magnitude,
+                    Math.max(Math.abs(o.d1), Math.max(Math.abs(o.d2), Math.abs(o.d3)))));
+        }
+    }
+
+    /**
+     * Calculates the distance along a ray to its intersection with a triangle of the mesh, without allocations
+     * (see {@link Triangle#intersect}).
+     *
+     * @param tri         the position of the triangle in the leaf order
+     * @param o           the head of the ray
+     * @param d           the direction of the ray
+     * @param maxDistance the maximal distance along the ray
+     * @return the distance, or 0 if the ray does not intersect the triangle within the maximal distance
+     */
+    private double intersect(int tri, Double3 o, Double3 d, double maxDistance) {
+        TriangleArrays t = triangles;
+        return Triangle.intersect(o, d, t.p0x[tri], t.p0y[tri], t.p0z[tri],
+                t.e1x[tri], t.e1y[tri], t.e1z[tri], t.e2x[tri], t.e2y[tri], t.e2z[tri], maxDistance, null);
+    }
+
+    /**
+     * Face is a lightweight view of one triangle of the mesh, created for intersection results.
+     * It keeps the position of the triangle in the leaf order and takes the material and the emission from the mesh.
+     */
+    private final class Face extends Geometry {
+        /**
+         * The position of the triangle in the leaf order of the mesh.
+         */
+        private final int tri;
+
+        /**
+         * Constructs a view of a triangle of the mesh.
+         *
+         * @param tri the position of the triangle
+         */
+        private Face(int tri) {
+            this.tri = tri;
+        }
+
+        @Override
+        public Vector getNormal(Point point) {
+            TriangleArrays t = triangles;
+            double[] e1 = {t.e1x[tri], t.e1y[tri], t.e1z[tri]};
+            double[] e2 = {t.e2x[tri], t.e2y[tri], t.e2z[tri]};
+            double[] n = VectorMath.cross(e1, e2, new double[3]);
+            return new Vector(n[0], n[1], n[2]).normalize();
+        }
+
+        @Override
+        public Color getEmission() {
+            return TriangleMesh.this.getEmission();
+        }
+
+        @Override
+        public Material getMaterial() {
+            return TriangleMesh.this.getMaterial();
+        }
+
+        @Override
+        protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+            double t = intersect(tri, ray.head.xyz, ray.direction.xyz, maxDistance);
+            if (t <= 0) {
+                return null;
+            }
+            return List.of(new GeoPoint(this, ray.getPoint(t)));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            return o instanceof Face face && face.tri == tri && face.mesh() == TriangleMesh.this;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(TriangleMesh.this) + tri;
+        }
+
+        /**
+         * Returns the mesh of the face.
+         *
+         * @return the mesh
+         */
+        private TriangleMesh mesh() {
+            return TriangleMesh.this;
+        }
+    }
+}
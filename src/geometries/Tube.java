@@ -1,11 +1,15 @@
 package geometries;
 
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
+import primitives.VectorMath;
 
 import java.util.List;
 
+import static primitives.Util.alignZero;
+
 
 /**
  * The Tube class represents a tube in three-dimensional space.
@@ -46,9 +50,87 @@ public class Tube extends RadialGeometry {
     }
 
     @Override
-    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double minDistance) {
-        return null;
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        double[] distances = new double[2];
+        int count = findIntersectionDistances(ray, maxDistance, distances);
+        if (count == 0) return null;
+        if (count == 1) return List.of(new GeoPoint(this, ray.getPoint(distances[0])));
+        return List.of(new GeoPoint(this, ray.getPoint(distances[0])),
+                new GeoPoint(this, ray.getPoint(distances[1])));
+    }
+
+    @Override
+    protected boolean findClosestHitHelper(Ray ray, HitRecord hit) {
+        double t = findClosestDistance(ray, hit.t);
+        if (t == 0 || t >= hit.t) return false;
+        hit.t = t;
+        hit.geometry = this;
+        hit.point = null;
+        return true;
+    }
+
+    /**
+     * Calculates the distances along the ray to its intersections with the tube, without creating points.
+     *
+     * @param ray         the ray to intersect
+     * @param maxDistance the maximal distance along the ray
+     * @param distances   an array (at least 2 elements) to fill with the distances in ascending order
+     * @return the amount of intersections
+     */
+    protected int findIntersectionDistances(Ray ray, double maxDistance, double[] distances) {
+        int count = 0;
+        double t1 = tubeRoot(ray, maxDistance, false);
+        if (t1 > 0) distances[count++] = t1;
+        double t2 = tubeRoot(ray, maxDistance, true);
+        if (t2 > 0) distances[count++] = t2;
+        return count;
+    }
+
+    /**
+     * Calculates the distance along the ray to its closest intersection with the tube, without creating points
+     * or arrays.
+     *
+     * @param ray         the ray to intersect
+     * @param maxDistance the maximal distance along the ray
+     * @return the distance, 0 if there is no intersection
+     */
+    protected double findClosestDistance(Ray ray, double maxDistance) {
+        double t = tubeRoot(ray, maxDistance, false);
+        return t > 0 ? t : tubeRoot(ray, maxDistance, true);
     }
-}
 
+    /**
+     * Calculates one of the intersections of the ray with the infinite tube.
+     *
+     * @param ray         the ray to intersect
+     * @param maxDistance the maximal distance along the ray
+     * @param far         false for the nearer intersection, true for the farther one
+     * @return the distance along the ray to the intersection, 0 if it is not ahead of the ray head within the
+     * maximal distance, or if the ray misses the tube
+     */
+    protected final double tubeRoot(Ray ray, double maxDistance, boolean far) {
+        Double3 v = axis.direction.xyz;
+        Double3 d = ray.direction.xyz;
+        // Vector from the head of the axis to the head of the ray
+        double px = ray.head.xyz.d1 - axis.head.xyz.d1;
+        double py = ray.head.xyz.d2 - axis.head.xyz.d2;
+        double pz = ray.head.xyz.d3 - axis.head.xyz.d3;
+        double dv = VectorMath.dot(d.d1, d.d2, d.d3, v.d1, v.d2, v.d3);
+        double pv = VectorMath.dot(px, py, pz, v.d1, v.d2, v.d3);
+
+        // The components orthogonal to the axis give a quadratic a*t^2 + 2*b*t + c = 0
+        double a = alignZero(1 - dv * dv);
+        if (a == 0) return 0; // the ray is parallel to the axis
+        double b = VectorMath.dot(d.d1, d.d2, d.d3, px, py, pz) - dv * pv;
+        double c = VectorMath.dot(px, py, pz, px, py, pz) - pv * pv - radius * radius;
+
+        // Early rejection: the ray starts outside the tube and moves away from its axis
+        if (c > 0 && b >= 0) return 0;
 
+        double discriminant = alignZero(b * b - a * c);
+        if (discriminant <= 0) return 0; // no intersection or a tangent ray
+        double root = Math.sqrt(discriminant);
+        double t = alignZero((far ? -b + root : -b - root) / a);
+        return t > 0 && alignZero(t - maxDistance) <= 0 ? t : 0;
+    }
+}
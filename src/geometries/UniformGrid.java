@@ -0,0 +1,367 @@
+package geometries;
+
+import primitives.Double3;
+import primitives.Ray;
+
+import java.util.Arrays;
+
+/**
+ * UniformGrid is a grid of equal cells over primitives given by their bounding boxes, an alternative to
+ * {@link FlatBVH} for dense scenes of evenly distributed primitives of similar sizes.<br/>
+ * Each cell lists the primitives whose boxes overlap it, all the lists kept in one array with the start
+ * of each cell's range. The resolution is chosen from the amount of primitives and the proportions of
+ * their bounds. The owner of the grid walks the cells along a ray in order (3D-DDA, see {@link Walker})
+ * and tests its own primitives, so a closest hit query may stop at the first cell which holds a hit
+ * before the cell's exit.
+ *
+ * @author Isca Fitousi and Avital Orenstin
+ */
+final class UniformGrid {
+    /**
+     * The desired amount of cells per primitive.
+     */
+    private static final double CELLS_PER_PRIMITIVE = 2;
+    /**
+     * The maximal amount of cells along an axis.
+     */
+    private static final int MAX_RESOLUTION = 128;
+
+    /**
+     * The amount of cells along each axis.
+     */
+    final int nx, ny, nz;
+    /**
+     * The bounds of the grid (min x, y, z and max x, y, z).
+     */
+    final double[] bounds;
+    /**
+     * The size of a cell along each axis.
+     */
+    private final double sizeX, sizeY, sizeZ;
+    /**
+     * The start of the range of each cell in {@link #primitives}, and the end of the last range.
+     */
+    final int[] cellStarts;
+    /**
+     * The primitive indices of the cells, ordered by cell.
+     */
+    final int[] primitives;
+    /**
+     * The amount of primitives.
+     */
+    private final int count;
+    /**
+     * Cell walker of each thread.
+     */
+    private final ThreadLocal<Walker> walker = ThreadLocal.withInitial(Walker::new);
+
+    /**
+     * Builds the grid.
+     *
+     * @param boxes the bounding boxes of the primitives - 6 numbers per primitive
+     *              (min x, y, z and max x, y, z)
+     * @param count the amount of primitives, at least 1
+     */
+    UniformGrid(double[] boxes, int count) {
+        this.count = count;
+        bounds = new double[]{Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int i = 0; i < count; ++i)
+            for (int k = 0; k < 3; ++k) {
+                bounds[k] = Math.min(bounds[k], boxes[6 * i + k]);
+                bounds[k + 3] = Math.max(bounds[k + 3], boxes[6 * i + 3 + k]);
+            }
+
+        // Cells of about the same size along the axes which have an extent, a single cell along flat axes
+        double[] extent = new double[3];
+        double volume = 1;
+        int dimensions = 0;
+        for (int k = 0; k < 3; ++k) {
+            extent[k] = bounds[k + 3] - bounds[k];
+            if (extent[k] > 0) {
+                volume *= extent[k];
+                ++dimensions;
+            }
+        }
+        int[] resolution = {1, 1, 1};
+        if (dimensions > 0) {
+            double perUnit = Math.pow(CELLS_PER_PRIMITIVE * count / volume, 1.0 / dimensions);
+            for (int k = 0; k < 3; ++k)
+                if (extent[k] > 0)
+                    resolution[k] = (int) Math.max(1, Math.min(MAX_RESOLUTION, Math.round(extent[k] * perUnit)));
+        }
+        nx = resolution[0];
+        ny = resolution[1];
+        nz = resolution[2];
+        sizeX = extent[0] / nx;
+        sizeY = extent[1] / ny;
+        sizeZ = extent[2] / nz;
+
+        // Count the primitives of each cell, then fill the ranges
+        int cells = nx * ny * nz;
+        cellStarts = new int[cells + 1];
+        int[] range = new int[6];
+        for (int i = 0; i < count; ++i) {
+            cellRange(boxes, i, range);
+            for (int x = range[0]; x <= range[3]; ++x)
+                for (int y = range[1]; y <= range[4]; ++y)
+                    for (int z = range[2]; z <= range[5]; ++z)
+                        ++cellStarts[cell(x, y, z) + 1];
+        }
+        for (int c = 0; c < cells; ++c)
+            cellStarts[c + 1] += cellStarts[c];
+        primitives = new int[cellStarts[cells]];
+        int[] fill = new int[cells];
+        for (int i = 0; i < count; ++i) {
+            cellRange(boxes, i, range);
+            for (int x = range[0]; x <= range[3]; ++x)
+                for (int y = range[1]; y <= range[4]; ++y)
+                    for (int z = range[2]; z <= range[5]; ++z) {
+                        int c = cell(x, y, z);
+                        primitives[cellStarts[c] + fill[c]++] = i;
+                    }
+        }
+    }
+
+    /**
+     * Calculates the range of cells overlapped by the box of a primitive.
+     *
+     * @param boxes the boxes of the primitives
+     * @param i     the index of the primitive
+     * @param range an array to fill with the first and the last cell along each axis (x, y, z, x, y, z)
+     */
+    private void cellRange(double[] boxes, int i, int[] range) {
+        range[0] = clamp(boxes[6 * i], bounds[0], sizeX, nx);
+        range[1] = clamp(boxes[6 * i + 1], bounds[1], sizeY, ny);
+        range[2] = clamp(boxes[6 * i + 2], bounds[2], sizeZ, nz);
+        range[3] = clamp(boxes[6 * i + 3], bounds[0], sizeX, nx);
+        range[4] = clamp(boxes[6 * i + 4], bounds[1], sizeY, ny);
+        range[5] = clamp(boxes[6 * i + 5], bounds[2], sizeZ, nz);
+    }
+
+    /**
+     * Calculates the cell of a coordinate along an axis, clamped into the grid.
+     *
+     * @param value the coordinate
+     * @param min   the minimal coordinate of the grid
+     * @param size  the size of a cell
+     * @param n     the amount of cells along the axis
+     * @return the index of the cell
+     */
+    private static int clamp(double value, double min, double size, int n) {
+        if (!(size > 0)) return 0;
+        return Math.min(n - 1, Math.max(0, (int) ((value - min) / size)));
+    }
+
+    /**
+     * Calculates the index of a cell.
+     *
+     * @param x the cell along the x axis
+     * @param y the cell along the y axis
+     * @param z the cell along the z axis
+     * @return the index of the cell
+     */
+    private int cell(int x, int y, int z) {
+        return (x * ny + y) * nz + z;
+    }
+
+    /**
+     * Starts a walk of the current thread along a ray through the cells of the grid.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance along the ray
+     * @return the walker of the thread, positioned before the first cell
+     */
+    Walker walk(Ray ray, double maxDistance) {
+        Walker w = walker.get();
+        w.begin(ray, maxDistance);
+        return w;
+    }
+
+    /**
+     * Walker steps along a ray from cell to cell (Amanatides and Woo), and marks the primitives which
+     * were already visited in the current walk, so a primitive in several cells is tested once per ray.
+     */
+    final class Walker {
+        /**
+         * The current cell along each axis.
+         */
+        private int x, y, z;
+        /**
+         * The direction of the steps along each axis (-1, 0 or 1).
+         */
+        private int stepX, stepY, stepZ;
+        /**
+         * The distance along the ray to the next cell boundary along each axis.
+         */
+        private double tMaxX, tMaxY, tMaxZ;
+        /**
+         * The distance along the ray between cell boundaries along each axis.
+         */
+        private double tDeltaX, tDeltaY, tDeltaZ;
+        /**
+         * The distance along the ray where the walk starts, the entry into the grid.
+         */
+        private double tStart;
+        /**
+         * The distance along the ray where the walk ends.
+         */
+        private double tEnd;
+        /**
+         * Whether there are no more cells in the walk.
+         */
+        private boolean done;
+        /**
+         * The index of the current cell.
+         */
+        private int cell;
+        /**
+         * The distance along the ray to the exit from the current cell.
+         */
+        private double exit;
+        /**
+         * The number of the walk in which each primitive was last visited.
+         */
+        private final int[] marks = new int[count];
+        /**
+         * The number of the current walk.
+         */
+        private int walk = 0;
+
+        /**
+         * Positions the walker at the entry of a ray into the grid.
+         *
+         * @param ray         the ray
+         * @param maxDistance the maximal distance along the ray
+         */
+        private void begin(Ray ray, double maxDistance) {
+            if (++walk == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                walk = 1;
+            }
+            Double3 o = ray.head.xyz, d = ray.direction.xyz;
+            tStart = 0;
+            tEnd = maxDistance;
+            if (!slab(o.d1, d.d1, bounds[0], bounds[3]) || !slab(o.d2, d.d2, bounds[1], bounds[4])
+                    || !slab(o.d3, d.d3, bounds[2], bounds[5]) || tStart > tEnd) {
+                done = true;
+                return;
+            }
+            done = false;
+
+            x = clamp(o.d1 + tStart * d.d1, bounds[0], sizeX, nx);
+            y = clamp(o.d2 + tStart * d.d2, bounds[1], sizeY, ny);
+            z = clamp(o.d3 + tStart * d.d3, bounds[2], sizeZ, nz);
+            stepX = d.d1 > 0 ? 1 : d.d1 < 0 ? -1 : 0;
+            stepY = d.d2 > 0 ? 1 : d.d2 < 0 ? -1 : 0;
+            stepZ = d.d3 > 0 ? 1 : d.d3 < 0 ? -1 : 0;
+            tMaxX = boundary(o.d1, d.d1, bounds[0], sizeX, x, stepX);
+            tMaxY = boundary(o.d2, d.d2, bounds[1], sizeY, y, stepY);
+            tMaxZ = boundary(o.d3, d.d3, bounds[2], sizeZ, z, stepZ);
+            tDeltaX = stepX == 0 ? Double.POSITIVE_INFINITY : sizeX / Math.abs(d.d1);
+            tDeltaY = stepY == 0 ? Double.POSITIVE_INFINITY : sizeY / Math.abs(d.d2);
+            tDeltaZ = stepZ == 0 ? Double.POSITIVE_INFINITY : sizeZ / Math.abs(d.d3);
+        }
+
+        /**
+         * Clips the walk to the slab of the grid along an axis, narrowing {@link #tStart} and {@link #tEnd}.
+         *
+         * @param origin    the coordinate of the head of the ray
+         * @param direction the coordinate of the direction of the ray
+         * @param min       the minimal coordinate of the grid
+         * @param max       the maximal coordinate of the grid
+         * @return false if the ray is parallel to the slab and outside of it
+         */
+        private boolean slab(double origin, double direction, double min, double max) {
+            if (direction == 0) return origin >= min && origin <= max;
+            double t1 = (min - origin) / direction, t2 = (max - origin) / direction;
+            tStart = Math.max(tStart, Math.min(t1, t2));
+            tEnd = Math.min(tEnd, Math.max(t1, t2));
+            return true;
+        }
+
+        /**
+         * Calculates the distance along the ray to the next cell boundary along an axis.
+         *
+         * @param origin    the coordinate of the head of the ray
+         * @param direction the coordinate of the direction of the ray
+         * @param min       the minimal coordinate of the grid
+         * @param size      the size of a cell
+         * @param cell      the current cell along the axis
+         * @param step      the direction of the steps along the axis
+         * @return the distance to the boundary, positive infinity if the ray does not cross boundaries
+         */
+        private double boundary(double origin, double direction, double min, double size, int cell, int step) {
+            if (step == 0) return Double.POSITIVE_INFINITY;
+            double plane = min + (step > 0 ? cell + 1 : cell) * size;
+            return (plane - origin) / direction;
+        }
+
+        /**
+         * Moves to the next cell along the ray.
+         *
+         * @return false if the walk is over
+         */
+        boolean next() {
+            if (done) return false;
+            cell = cell(x, y, z);
+            double t = Math.min(tMaxX, Math.min(tMaxY, tMaxZ));
+            exit = Math.min(t, tEnd);
+            if (t >= tEnd) {
+                done = true;
+            } else if (t == tMaxX) {
+                x += stepX;
+                tMaxX += tDeltaX;
+                done = x < 0 || x >= nx;
+            } else if (t == tMaxY) {
+                y += stepY;
+                tMaxY += tDeltaY;
+                done = y < 0 || y >= ny;
+            } else {
+                z += stepZ;
+                tMaxZ += tDeltaZ;
+                done = z < 0 || z >= nz;
+            }
+            return true;
+        }
+
+        /**
+         * Returns the first position of the current cell's primitives in {@link #primitives}.
+         *
+         * @return the first position
+         */
+        int first() {
+            return cellStarts[cell];
+        }
+
+        /**
+         * Returns the position after the current cell's primitives in {@link #primitives}.
+         *
+         * @return the position after the range
+         */
+        int end() {
+            return cellStarts[cell + 1];
+        }
+
+        /**
+         * Returns the distance along the ray to the exit from the current cell.
+         *
+         * @return the exit distance
+         */
+        double exit() {
+            return exit;
+        }
+
+        /**
+         * Marks a primitive as visited in the current walk.
+         *
+         * @param primitive the index of the primitive
+         * @return true if the primitive was not visited before in the walk
+         */
+        boolean mark(int primitive) {
+            if (marks[primitive] == walk) return false;
+            marks[primitive] = walk;
+            return true;
+        }
+    }
+}
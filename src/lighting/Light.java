@@ -27,4 +27,12 @@ public abstract class Light {
     public Color getIntensity() {
         return intensity;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the power of the light, the luminance of its intensity
+     * @return the power of the light
+     */
+    public double getPower() {
+        return intensity.luminance();
+    }
+}
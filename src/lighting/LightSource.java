@@ -14,6 +14,15 @@ public interface LightSource {
      * @return Color object
      */
     public Color getIntensity(Point p);
+    /**
+     * Returns light intensity at given point, when the distance of the point from the light is already known
+     * @param p        the point
+     * @param distance the distance between the light source and the point (see {@link #getDistance(Point)})
+     * @return Color object
+     */
+    default Color getIntensity(Point p, double distance) {
+        return getIntensity(p);
+    }
     /**
      * Returns the direction of the light at given point
      * @param p the point
@@ -50,4 +59,33 @@ public interface LightSource {
      * @return true if the light source supports soft shadows, false otherwise.
      */
     boolean isSoftShadow(); // Add this method to the interface
-}
\ No newline at end of file
+    /**
+     * Returns the distance from the light source beyond which its intensity is below a threshold,
+     * so the light may be skipped when shading farther points.
+     *
+     * @param threshold the intensity threshold, in color units
+     * @return the influence radius, positive infinity if the light has no bounded influence
+     */
+    default double getInfluenceRadius(double threshold) {
+        return Double.POSITIVE_INFINITY;
+    }
+    /**
+     * Indicates whether the light source may illuminate a point at all, regardless of its distance
+     * and of occluders.
+     *
+     * @param p the point
+     * @return false if the light never reaches the point, true otherwise
+     */
+    default boolean illuminates(Point p) {
+        return true;
+    }
+    /**
+     * Returns the power of the light source - a relative measure of its total contribution, by which
+     * lights are chosen when sampling among many lights.
+     *
+     * @return the power of the light, non-negative
+     */
+    default double getPower() {
+        return 1;
+    }
+}
@@ -29,6 +29,11 @@ public class PointLight extends Light implements LightSource{
      */
     private double KQ=0.0;
 
+    /**
+     * The distance at which the power of a light without constant attenuation is measured, unless its area is larger.
+     */
+    private static final double POWER_DISTANCE = 1;
+
     @Override
     public double getWidth_light() {
         return this.width_light;
@@ -116,13 +121,45 @@ public class PointLight extends Light implements LightSource{
 
     @Override
     public Color getIntensity(Point p) {
-        double dist = position.distance(p);
+        return getIntensity(p, position.distance(p));
+    }
 
-        double factor = (KC + dist * KL + (dist * dist) * KQ);
+    @Override
+    public Color getIntensity(Point p, double distance) {
+        double factor = (KC + distance * KL + (distance * distance) * KQ);
 
         return getIntensity().reduce(factor);
     }
 
+    @Override
+    public double getPower() {
+        // The light is strongest at its position, where it is only reduced by the constant factor
+        if (KC > 0) return super.getPower() / KC;
+        // Without the constant factor the light is infinite at its position, so it is measured at a distance
+        double distance = Math.max(POWER_DISTANCE, Math.max(width_light, height_light));
+        double factor = distance * KL + distance * distance * KQ;
+        return factor > 0 ? super.getPower() / factor : super.getPower();
+    }
+
+    @Override
+    public double getInfluenceRadius(double threshold) {
+        if (threshold <= 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        // The strongest component falls to the threshold where kC + kL*d + kQ*d^2 = max / threshold
+        double c = KC - getIntensity().max() / threshold;
+        if (c >= 0) {
+            return 0;
+        }
+        if (KQ > 0) {
+            return (-KL + Math.sqrt(KL * KL - 4 * KQ * c)) / (2 * KQ);
+        }
+        if (KL > 0) {
+            return -c / KL;
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
     @Override
     public Vector getL(Point p) {
         return p.subtract(position).normalize();
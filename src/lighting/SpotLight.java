@@ -35,18 +35,30 @@ public class SpotLight extends PointLight {
 
     @Override
     public Color getIntensity(Point p) {
+        return getIntensity(p, position.distance(p));
+    }
+
+    @Override
+    public Color getIntensity(Point p, double distance) {
         double proj = direction.dotProduct(getL(p)); //direction*(psition-p) , projection of light on point
         //if the light source doesn't hit the point return color black
         if (Util.isZero(proj))
             return Color.BLACK;
 
         double factor = Math.max(0, proj);
-        Color i0 = super.getIntensity(p);
+        Color i0 = super.getIntensity(p, distance);
 
         // i0*(max(0,direction*(position-p))/(kC+d*kL+ds*kQ)
         return i0.scale(factor);
     }
 
+    @Override
+    public boolean illuminates(Point p) {
+        // The spot lights only the half space in front of it
+        Double3 d = direction.xyz, from = position.xyz, to = p.xyz;
+        return (to.d1 - from.d1) * d.d1 + (to.d2 - from.d2) * d.d2 + (to.d3 - from.d3) * d.d3 > 0;
+    }
+
     @Override
     public Vector getL(Point p) {
         if (p.equals(position)) {
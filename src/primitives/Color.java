@@ -127,6 +127,35 @@ public class Color {
         return new Color(rgb.reduce(k));
     }
 
+    /**
+     * Calculates the luminance (perceived brightness) of the color by the Rec. 709 weights
+     *
+     * @return the luminance, in the same units as the components
+     */
+    public double luminance() {
+        return 0.2126 * rgb.d1 + 0.7152 * rgb.d2 + 0.0722 * rgb.d3;
+    }
+
+    /**
+     * Returns the largest component of the color
+     *
+     * @return the largest of the red, green and blue components
+     */
+    public double max() {
+        return Math.max(rgb.d1, Math.max(rgb.d2, rgb.d3));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        return obj instanceof Color other && rgb.equals(other.rgb);
+    }
+
+    @Override
+    public int hashCode() {
+        return rgb.hashCode();
+    }
+
     @Override
     public String toString() {
         return "rgb:" + rgb;
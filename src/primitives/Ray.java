@@ -16,6 +16,13 @@ import static primitives.Util.isZero;
 public class Ray {
     private static final double DELTA = 0.1;
 
+    /**
+     * The relative rounding error of the points and the distances which are calculated in single precision,
+     * with a margin for the few operations of an intersection calculation (see
+     * {@link #Ray(Point, Vector, Vector, double)}).
+     */
+    public static final double SINGLE_PRECISION_ERROR = 0x1p-17;
+
     /**
      * The starting point of the ray.
      */
@@ -35,12 +42,33 @@ public class Ray {
     public Ray(Point point, Vector direction, Vector n) {
         // Compute the offset vector based on the orientation of the normal
         double nl = direction.dotProduct(n);
-        Vector offset = n.scale(nl > 0 ? DELTA : -DELTA);
-        this.head = point.add(offset);
+        double[] head = VectorMath.scaleAdd(VectorMath.set(point.xyz, new double[3]), n.xyz, nl > 0 ? DELTA : -DELTA);
+        this.head = new Point(head[0], head[1], head[2]);
         this.direction = direction.normalize();
 
     }
 
+    /**
+     * Constructor for ray with an offset by the rounding error of the point, instead of a fixed distance.
+     * The head is moved along the normal by the relative error times the largest absolute coordinate
+     * of the point (at least 1), which is beyond the rounding error of any calculation of that precision
+     * near the point - so the ray does not intersect the surface of the point again, in small scenes and in
+     * large ones alike.
+     *
+     * @param point     original point laying on the surface of the geometry
+     * @param direction the direction of the ray
+     * @param n         normal vector of the geometry at the point
+     * @param error     the relative rounding error of the calculations (e.g. {@link #SINGLE_PRECISION_ERROR})
+     */
+    public Ray(Point point, Vector direction, Vector n, double error) {
+        Double3 p = point.xyz;
+        double magnitude = Math.max(1, Math.max(Math.abs(p.d1), Math.max(Math.abs(p.d2), Math.abs(p.d3))));
+        double offset = direction.dotProduct(n) > 0 ? error * magnitude : -error * magnitude;
+        double[] head = VectorMath.scaleAdd(VectorMath.set(p, new double[3]), n.xyz, offset);
+        this.head = new Point(head[0], head[1], head[2]);
+        this.direction = direction.normalize();
+    }
+
     /**
      * Constructs a Ray with the specified head (starting point) and direction.
      * A vector in the direction is always normalized for future calculations.
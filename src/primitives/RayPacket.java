@@ -0,0 +1,146 @@
+package primitives;
+
+/**
+ * The RayPacket class represents a group of coherent rays from a common head, such as the primary rays
+ * of neighbouring samples, which are intersected with the geometries together.<br/>
+ * The directions are kept in primitive arrays, and the packet keeps the range of the directions along
+ * each axis - the frustum of the packet - so a box can be rejected for all the rays at once.
+ *
+ * @author Isca Fitousi and Avital Orenstin
+ */
+public final class RayPacket {
+    /**
+     * The maximal amount of rays in a packet.
+     */
+    public static final int MAX_SIZE = 16;
+
+    /**
+     * The rays of the packet.
+     */
+    public final Ray[] rays;
+    /**
+     * The amount of rays in the packet.
+     */
+    public final int size;
+    /**
+     * The common head of the rays.
+     */
+    public final double ox, oy, oz;
+    /**
+     * The directions of the rays, per axis.
+     */
+    public final double[] dx, dy, dz;
+    /**
+     * The inverse directions of the rays, per axis (infinite for a ray parallel to the planes of the axis).
+     */
+    public final double[] inverseX, inverseY, inverseZ;
+    /**
+     * The range of the directions of the rays along each axis.
+     */
+    private final double minDx, maxDx, minDy, maxDy, minDz, maxDz;
+
+    /**
+     * Constructs a packet of rays from a common head.
+     *
+     * @param rays the rays
+     * @throws IllegalArgumentException if there are no rays, too many rays, or their heads differ
+     */
+    public RayPacket(Ray... rays) {
+        if (rays.length == 0 || rays.length > MAX_SIZE)
+            throw new IllegalArgumentException("A packet must have 1 to " + MAX_SIZE + " rays");
+        this.rays = rays;
+        this.size = rays.length;
+        Point head = rays[0].head;
+        ox = head.xyz.d1;
+        oy = head.xyz.d2;
+        oz = head.xyz.d3;
+        dx = new double[size];
+        dy = new double[size];
+        dz = new double[size];
+        inverseX = new double[size];
+        inverseY = new double[size];
+        inverseZ = new double[size];
+        double loX = Double.POSITIVE_INFINITY, hiX = Double.NEGATIVE_INFINITY;
+        double loY = Double.POSITIVE_INFINITY, hiY = Double.NEGATIVE_INFINITY;
+        double loZ = Double.POSITIVE_INFINITY, hiZ = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; ++i) {
+            if (!rays[i].head.equals(head))
+                throw new IllegalArgumentException("The rays of a packet must have a common head");
+            Double3 d = rays[i].direction.xyz;
+            dx[i] = d.d1;
+            dy[i] = d.d2;
+            dz[i] = d.d3;
+            inverseX[i] = 1 / d.d1;
+            inverseY[i] = 1 / d.d2;
+            inverseZ[i] = 1 / d.d3;
+            loX = Math.min(loX, d.d1);
+            hiX = Math.max(hiX, d.d1);
+            loY = Math.min(loY, d.d2);
+            hiY = Math.max(hiY, d.d2);
+            loZ = Math.min(loZ, d.d3);
+            hiZ = Math.max(hiZ, d.d3);
+        }
+        minDx = loX;
+        maxDx = hiX;
+        minDy = loY;
+        maxDy = hiY;
+        minDz = loZ;
+        maxDz = hiZ;
+    }
+
+    /**
+     * Checks whether all the rays of the packet miss a box. The test intersects the box with the cone of all
+     * the directions within the range of the directions of the rays, so it is conservative: it may fail to
+     * reject a box which all the rays miss, but it never rejects a box which a ray hits.
+     *
+     * @param minX        the minimal x of the box
+     * @param minY        the minimal y of the box
+     * @param minZ        the minimal z of the box
+     * @param maxX        the maximal x of the box
+     * @param maxY        the maximal y of the box
+     * @param maxZ        the maximal z of the box
+     * @param maxDistance the maximal distance along the rays
+     * @return true if all the rays miss the box within the distance
+     */
+    public boolean missesBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ,
+                             double maxDistance) {
+        double nx = minX - ox, xx = maxX - ox, ny = minY - oy, xy = maxY - oy, nz = minZ - oz, xz = maxZ - oz;
+        // The range of distances in which the cone may be inside the slabs of all the axes
+        double near = Math.max(Math.max(near(nx, xx, minDx, maxDx), near(ny, xy, minDy, maxDy)),
+                Math.max(near(nz, xz, minDz, maxDz), 0));
+        double far = Math.min(Math.min(far(nx, xx, minDx, maxDx), far(ny, xy, minDy, maxDy)),
+                Math.min(far(nz, xz, minDz, maxDz), maxDistance));
+        return near > far;
+    }
+
+    /**
+     * Calculates the lowest distance in which some direction of a range along an axis may be inside a slab,
+     * that is t * maxD &ge; lo and t * minD &le; hi.
+     *
+     * @param lo   the lower end of the slab, relative to the head
+     * @param hi   the upper end of the slab, relative to the head
+     * @param minD the lower end of the range of the directions
+     * @param maxD the upper end of the range of the directions
+     * @return the lowest distance, positive infinity if no direction is ever inside the slab
+     */
+    private static double near(double lo, double hi, double minD, double maxD) {
+        if (maxD == 0 && lo > 0 || minD == 0 && hi < 0) return Double.POSITIVE_INFINITY;
+        return Math.max(maxD > 0 ? lo / maxD : Double.NEGATIVE_INFINITY,
+                minD < 0 ? hi / minD : Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Calculates the highest distance in which some direction of a range along an axis may be inside a slab,
+     * that is t * maxD &ge; lo and t * minD &le; hi.
+     *
+     * @param lo   the lower end of the slab, relative to the head
+     * @param hi   the upper end of the slab, relative to the head
+     * @param minD the lower end of the range of the directions
+     * @param maxD the upper end of the range of the directions
+     * @return the highest distance, positive infinity if it is not bounded
+     */
+    private static double far(double lo, double hi, double minD, double maxD) {
+        return Math.min(maxD < 0 ? lo / maxD : Double.POSITIVE_INFINITY,
+                minD > 0 ? hi / minD : Double.POSITIVE_INFINITY);
+    }
+}
@@ -1,5 +1,7 @@
 package primitives;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
  * Util class is used for some internal utilities, e.g. controlling accuracy
  *
@@ -75,7 +77,8 @@ public final class Util {
      * @return the random value
      */
     public static double random(double min, double max) {
-        return Math.random() * (max - min) + min;
+        // a thread-local generator avoids contention between rendering threads
+        return ThreadLocalRandom.current().nextDouble() * (max - min) + min;
     }
 
 }
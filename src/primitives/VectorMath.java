@@ -0,0 +1,112 @@
+package primitives;
+
+/**
+ * VectorMath is a primitive-math kernel for the hot loops of the ray tracer.
+ * The operations work on scalar components and on {@code double[3]} triads with out-parameters,
+ * so they do not allocate the immutable {@link Point}, {@link Vector} and {@link Double3} objects.
+ * The immutable types remain the public API - the kernel is meant for inner calculations only.
+ *
+ * @author Isca Fitousi and Avital Orenstin
+ */
+public final class VectorMath {
+
+    /**
+     * Don't let anyone instantiate this class.
+     */
+    private VectorMath() {
+    }
+
+    /**
+     * Copies the components of a triad into an array.
+     *
+     * @param xyz the triad
+     * @param out the array to fill (at least 3 elements)
+     * @return the filled array
+     */
+    public static double[] set(Double3 xyz, double[] out) {
+        out[0] = xyz.d1;
+        out[1] = xyz.d2;
+        out[2] = xyz.d3;
+        return out;
+    }
+
+    /**
+     * Dot product of two vectors given by their components.
+     *
+     * @param ax x of the first vector
+     * @param ay y of the first vector
+     * @param az z of the first vector
+     * @param bx x of the second vector
+     * @param by y of the second vector
+     * @param bz z of the second vector
+     * @return a &middot; b
+     */
+    public static double dot(double ax, double ay, double az, double bx, double by, double bz) {
+        return ax * bx + ay * by + az * bz;
+    }
+
+    /**
+     * Triple product d &middot; (a &times; b) of three vectors given by their components.
+     * Its sign tells on which side of the plane spanned by a and b the vector d points.
+     *
+     * @param dx x of the vector d
+     * @param dy y of the vector d
+     * @param dz z of the vector d
+     * @param ax x of the vector a
+     * @param ay y of the vector a
+     * @param az z of the vector a
+     * @param bx x of the vector b
+     * @param by y of the vector b
+     * @param bz z of the vector b
+     * @return d &middot; (a &times; b)
+     */
+    public static double tripleProduct(double dx, double dy, double dz,
+                                       double ax, double ay, double az,
+                                       double bx, double by, double bz) {
+        return dx * (ay * bz - az * by) + dy * (az * bx - ax * bz) + dz * (ax * by - ay * bx);
+    }
+
+    /**
+     * Cross product of two vectors into an out-parameter (which may not be one of the operands).
+     *
+     * @param a   the first vector
+     * @param b   the second vector
+     * @param out the array for the result
+     * @return the result array
+     */
+    public static double[] cross(double[] a, double[] b, double[] out) {
+        out[0] = a[1] * b[2] - a[2] * b[1];
+        out[1] = a[2] * b[0] - a[0] * b[2];
+        out[2] = a[0] * b[1] - a[1] * b[0];
+        return out;
+    }
+
+    /**
+     * Adds a scaled vector to a triad in place: p = p + s * v.
+     *
+     * @param p the triad to update
+     * @param v the vector to add
+     * @param s the scale of the vector
+     * @return the updated triad
+     */
+    public static double[] scaleAdd(double[] p, Double3 v, double s) {
+        p[0] += v.d1 * s;
+        p[1] += v.d2 * s;
+        p[2] += v.d3 * s;
+        return p;
+    }
+
+    /**
+     * Normalizes a vector in place.
+     *
+     * @param v the vector to normalize
+     * @return the length of the vector before the normalization
+     */
+    public static double normalize(double[] v) {
+        double length = Math.sqrt(v[0] * v[0] + v[1] * v[1] + v[2] * v[2]);
+        v[0] /= length;
+        v[1] /= length;
+        v[2] /= length;
+        return length;
+    }
+}
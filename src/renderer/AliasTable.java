@@ -0,0 +1,98 @@
+package renderer;
+
+/**
+ * AliasTable samples an index from a discrete distribution in constant time (Walker's alias method).<br/>
+ * Each of the n slots holds a probability and an alias: a uniform number picks a slot, and its fraction
+ * decides between the slot's own index and its alias.
+ *
+ * @author Isca Fitousi and Avital Orenstin
+ */
+final class AliasTable {
+    /**
+     * The probability of each slot to keep its own index.
+     */
+    private final double[] probability;
+    /**
+     * The index each slot gives when it does not keep its own.
+     */
+    private final int[] alias;
+    /**
+     * The probability of each index to be sampled.
+     */
+    private final double[] pdf;
+
+    /**
+     * Builds the table of a distribution proportional to the given weights.
+     * If all the weights are zero, the distribution is uniform.
+     *
+     * @param weights the non-negative weights of the indices
+     * @throws IllegalArgumentException if there are no weights or a weight is negative or not finite
+     */
+    AliasTable(double[] weights) {
+        int n = weights.length;
+        if (n == 0)
+            throw new IllegalArgumentException("Alias table needs at least one weight");
+        double total = 0;
+        for (double weight : weights) {
+            if (!(weight >= 0) || weight == Double.POSITIVE_INFINITY)
+                throw new IllegalArgumentException("Weights must be non-negative and finite");
+            total += weight;
+        }
+
+        probability = new double[n];
+        alias = new int[n];
+        pdf = new double[n];
+        // Scale the weights so that the average slot is 1, and split them into small and large ones
+        double[] scaled = new double[n];
+        int[] small = new int[n], large = new int[n];
+        int smallCount = 0, largeCount = 0;
+        for (int i = 0; i < n; ++i) {
+            pdf[i] = total > 0 ? weights[i] / total : 1.0 / n;
+            scaled[i] = pdf[i] * n;
+            if (scaled[i] < 1) small[smallCount++] = i;
+            else large[largeCount++] = i;
+        }
+        // Fill each small slot up to 1 with the excess of a large one
+        while (smallCount > 0 && largeCount > 0) {
+            int s = small[--smallCount], l = large[--largeCount];
+            probability[s] = scaled[s];
+            alias[s] = l;
+            scaled[l] = scaled[l] + scaled[s] - 1;
+            if (scaled[l] < 1) small[smallCount++] = l;
+            else large[largeCount++] = l;
+        }
+        // The remaining slots are full, up to rounding errors
+        while (largeCount > 0) {
+            int l = large[--largeCount];
+            probability[l] = 1;
+            alias[l] = l;
+        }
+        while (smallCount > 0) {
+            int s = small[--smallCount];
+            probability[s] = 1;
+            alias[s] = s;
+        }
+    }
+
+    /**
+     * Samples an index.
+     *
+     * @param u a uniform random number in [0, 1)
+     * @return the sampled index
+     */
+    int sample(double u) {
+        double scaled = u * probability.length;
+        int slot = Math.min((int) scaled, probability.length - 1);
+        return scaled - slot < probability[slot] ? slot : alias[slot];
+    }
+
+    /**
+     * Returns the probability of an index to be sampled.
+     *
+     * @param index the index
+     * @return the probability of the index
+     */
+    double pdf(int index) {
+        return pdf[index];
+    }
+}
@@ -5,12 +5,19 @@ import primitives.Color;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
+import primitives.VectorMath;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.MissingResourceException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 import static primitives.Util.isZero;
+import static primitives.Util.random;
 
 /**
  * The Camera class will use the builder design template
@@ -74,6 +81,105 @@ public class Camera implements Cloneable {
      */
     private int AdaptiveDepth = 0;
 
+    /**
+     * Amount of rendering threads: -2 auto, -1 parallel stream, 0 no threads, 1+ number of threads.
+     */
+    private int threadsCount = 0;
+    /**
+     * Spare threads if trying to use all the cores.
+     */
+    private static final int SPARE_THREADS = 2;
+    /**
+     * Printing progress percentage interval, 0 if printing is not required.
+     */
+    private double printInterval = 0;
+    /**
+     * Pixel manager for the follow-up of the rendering progress (and pixel allocation between threads).
+     */
+    private PixelManager pixelManager;
+    /**
+     * The size (in pixels) of a tile edge for tile-based multi-threaded rendering,
+     * 0 for allocating the pixels to the threads one by one.
+     */
+    private int tileSize = 0;
+    /**
+     * The tile size for single-threaded adaptive super-sampling, which bounds the size of the sample cache.
+     */
+    private static final int ADAPTIVE_TILE_SIZE = 16;
+    /**
+     * The error threshold of adaptive sampling, in luminance units (255 for white): the maximal luminance
+     * difference between the corners of an adaptive super-sampling region, and the maximal standard error of
+     * a pixel's mean luminance for variance-driven sampling. 0 for no tolerance.
+     */
+    private double adaptiveThreshold = 0;
+    /**
+     * The minimal amount of samples per pixel of variance-driven sampling.
+     */
+    private int minSamples = 0;
+    /**
+     * The maximal amount of samples per pixel of variance-driven sampling, 0 if it is off.
+     */
+    private int maxSamples = 0;
+    /**
+     * Whether the primary rays of the samples of a pixel are traced together in packets.
+     */
+    private boolean rayPackets = false;
+    /**
+     * The maximal amount of passes of progressive rendering, 0 if it is off.
+     */
+    private int progressivePasses = 0;
+    /**
+     * The wall-clock budget of progressive rendering in seconds, 0 for no budget.
+     */
+    private double progressiveBudget = 0;
+    /**
+     * The listener which is told of every finished pass of progressive rendering, null for none.
+     */
+    private PassListener passListener = null;
+
+    /**
+     * The wall-clock budget of a rendering in seconds, 0 for no budget (see {@link Builder#setTimeBudget(double)}).
+     */
+    private double timeBudget = 0;
+    /**
+     * The share of the remaining time budget which a rendering is planned for, the rest is left for the error of
+     * the estimate.
+     */
+    private static final double BUDGET_SHARE = 0.8;
+    /**
+     * The maximal share of the remaining time budget of a warm-up.
+     */
+    private static final double WARM_UP_SHARE = 0.05;
+    /**
+     * The maximal amount of timed batches of a warm-up.
+     */
+    private static final int WARM_UP_BATCHES = 64;
+    /**
+     * The amount of rays of a timed batch of a warm-up.
+     */
+    private static final int WARM_UP_BATCH = 32;
+    /**
+     * The amount of rays traced before a warm-up is timed.
+     */
+    private static final int WARM_UP_UNTIMED = 4;
+
+    /**
+     * A listener of the passes of progressive rendering (see {@link Builder#setProgressive(int)}). It is called
+     * after every pass, when the image writer holds the refined image, so it may e.g. write the intermediate
+     * image to its file.
+     */
+    @FunctionalInterface
+    public interface PassListener {
+        /**
+         * Tells the listener that a pass of progressive rendering is finished.
+         *
+         * @param pass   the amount of finished passes (1 for the first pass)
+         * @param active the amount of pixels which have not converged yet
+         * @return true to continue the rendering, false to stop it
+         */
+        boolean passDone(int pass, int active);
+    }
+
     /**
      * Default constructor.
      */
@@ -125,7 +231,7 @@ public class Camera implements Cloneable {
      */
     private Point CalculateCenterPointInPixel(int nX, int nY, int j, int i) {
         // Calculate the center point of the screen in world coordinates
-        Point pixelCenter = location.add(v_To.scale(distanceToScreen));
+        double[] pixelCenter = VectorMath.scaleAdd(VectorMath.set(location.xyz, new double[3]), v_To.xyz, distanceToScreen);
 
         // Calculate the ratio of pixel height and width
         double pixelHeightRatio = height / nY;
@@ -138,14 +244,14 @@ public class Camera implements Cloneable {
 
         // Adjust the pixel point along the x-axis if necessary
         if (!isZero(pixelX)) {
-            pixelCenter = pixelCenter.add(v_Right.scale(pixelX));
+            VectorMath.scaleAdd(pixelCenter, v_Right.xyz, pixelX);
         }
         // Adjust the pixel point along the y-axis if necessary
         if (!isZero(pixelY)) {
-            pixelCenter = pixelCenter.add(v_Up.scale(pixelY));
+            VectorMath.scaleAdd(pixelCenter, v_Up.xyz, pixelY);
         }
 
-        return pixelCenter; // Return the center point of the pixel
+        return new Point(pixelCenter[0], pixelCenter[1], pixelCenter[2]); // Return the center point of the pixel
     }
 
 
@@ -168,71 +274,478 @@ public class Camera implements Cloneable {
 
     /**
      * Renders the image by casting rays through each pixel and writing the result to the image.
+     * The pixels are spread between rendering threads according to the multithreading setting.
+     * With a time budget, the quality of the rendering is planned first (see {@link Builder#setTimeBudget(double)}).
      *
      * @return this Camera instance
      */
     public Camera renderImage() {
-        int nx = imageWriter.getNx();
-        int ny = imageWriter.getNy();
+        final long start = System.nanoTime();
+        final int nX = imageWriter.getNx();
+        final int nY = imageWriter.getNy();
+        rayTracer.prepare();
 
-        for (int i = 0; i < nx; i++)
-            for (int j = 0; j < ny; j++)
-                castRay(nx, ny, j, i);
+        if (timeBudget > 0 && progressivePasses == 0) {
+            // The planning lowers the quality settings for this rendering only
+            int savedX = x, savedY = y, savedDepth = AdaptiveDepth, savedMin = minSamples, savedMax = maxSamples;
+            try {
+                planBudget(nX, nY, start + (long) (timeBudget * 1e9));
+                render(nX, nY);
+            } finally {
+                x = savedX;
+                y = savedY;
+                AdaptiveDepth = savedDepth;
+                minSamples = savedMin;
+                maxSamples = savedMax;
+                rayTracer.restoreQuality();
+            }
+        } else {
+            render(nX, nY);
+        }
         return this;
     }
 
     /**
-     * Recursively subdivides the plan and sends rays adaptively to improve rendering performance.
+     * Renders the image by the current settings, after the ray tracer is prepared.
+     *
+     * @param nX the number of horizontal pixels in the view plane
+     * @param nY the number of vertical pixels in the view plane
+     */
+    private void render(int nX, int nY) {
+        if (progressivePasses > 0) {
+            renderProgressive(nX, nY);
+            return;
+        }
+        pixelManager = new PixelManager(nY, nX, printInterval);
+        if (threadsCount == 0) {
+            if (AdaptiveDepth > 0 && (x > 1 || y > 1)) {
+                // Render by tiles, so the adaptive super-sampling cache is shared by neighbouring pixels
+                TileManager tileManager = new TileManager(nY, nX, tileSize > 0 ? tileSize : ADAPTIVE_TILE_SIZE, 1);
+                TileManager.Tile tile;
+                while ((tile = tileManager.nextTile(0)) != null)
+                    renderTile(nX, nY, tile);
+            } else {
+                for (int i = 0; i < nY; i++)
+                    for (int j = 0; j < nX; j++) {
+                        castRay(nX, nY, j, i, null);
+                        pixelManager.pixelDone();
+                    }
+            }
+        } else if (threadsCount == -1) {
+            IntStream.range(0, nY).parallel()
+                    .forEach(i -> IntStream.range(0, nX).parallel()
+                            .forEach(j -> {
+                                castRay(nX, nY, j, i, null);
+                                pixelManager.pixelDone();
+                            }));
+        } else {
+            List<Thread> threads = new LinkedList<>();
+            if (tileSize > 0) {
+                TileManager tileManager = new TileManager(nY, nX, tileSize, threadsCount);
+                for (int t = 0; t < threadsCount; t++) {
+                    final int thread = t;
+                    threads.add(new Thread(() -> {
+                        TileManager.Tile tile;
+                        while ((tile = tileManager.nextTile(thread)) != null)
+                            renderTile(nX, nY, tile);
+                    }));
+                }
+            } else {
+                for (int t = 0; t < threadsCount; t++) {
+                    threads.add(new Thread(() -> {
+                        PixelManager.Pixel pixel;
+                        while ((pixel = pixelManager.nextPixel()) != null) {
+                            castRay(nX, nY, pixel.col(), pixel.row(), null);
+                            pixelManager.pixelDone();
+                        }
+                    }));
+                }
+            }
+            for (Thread thread : threads) thread.start();
+            try {
+                for (Thread thread : threads) thread.join();
+            } catch (InterruptedException ignore) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Plans the quality of a rendering within a time budget. The cost of a ray at the current quality is measured
+     * by a short warm-up, which traces the centers of random pixels, and the time of the rendering is estimated by
+     * the worst case amount of samples per pixel and the amount of threads. While the estimate exceeds the
+     * remaining budget, the quality is lowered a step at a time, alternately the samples per pixel (see
+     * {@link #reduceSamples()}) and the quality of the ray tracer (see {@link RayTracerBase#reduceQuality()}),
+     * whose cost is then measured again. At the lowest quality the image is rendered even if it is late.
      *
-     * @param centerPlan    The center point of the current plan.
-     * @param w             The width of the current plan.
-     * @param h             The height of the current plan.
-     * @param points        A list to collect points where rays are sent.
-     * @param AdaptiveDepth The current depth of adaptive recursion.
-     * @return              A list of points representing the adaptive subdivision.
+     * @param nX       the number of horizontal pixels in the view plane
+     * @param nY       the number of vertical pixels in the view plane
+     * @param deadline the {@link System#nanoTime()} at which the rendering should be finished
      */
+    private void planBudget(int nX, int nY, long deadline) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int parallelism = threadsCount > 0 ? Math.min(threadsCount, cores) : threadsCount == -1 ? cores : 1;
+        double cost = warmUp(nX, nY, deadline);
+        boolean tracerTurn = false;
+        while (cost * nX * nY * samplesPerPixel() / parallelism
+                > (deadline - System.nanoTime()) / 1e9 * BUDGET_SHARE) {
+            if (tracerTurn && rayTracer.reduceQuality()) {
+                cost = warmUp(nX, nY, deadline);
+            } else if (!reduceSamples()) {
+                if (!rayTracer.reduceQuality()) break; // the lowest quality
+                cost = warmUp(nX, nY, deadline);
+            }
+            tracerTurn = !tracerTurn;
+        }
+    }
+
+    /**
+     * Measures the cost of a ray at the current quality by tracing the centers of random pixels in batches, for a
+     * share of the remaining time budget or up to an amount of batches. The cost is the median of the batches, so a
+     * pause of the tracing (e.g. by the garbage collector) does not spoil the estimate. The first rays are not timed,
+     * as they may build lazy data of the scene.
+     *
+     * @param nX       the number of horizontal pixels in the view plane
+     * @param nY       the number of vertical pixels in the view plane
+     * @param deadline the {@link System#nanoTime()} at which the rendering should be finished
+     * @return the average time of a ray in seconds
+     */
+    private double warmUp(int nX, int nY, long deadline) {
+        long now = System.nanoTime();
+        long limit = now + (long) ((deadline - now) * WARM_UP_SHARE);
+        for (int k = 0; k < WARM_UP_UNTIMED; ++k)
+            rayTracer.traceRay(constructRay(nX, nY, (int) random(0, nX), (int) random(0, nY)));
+        long[] batches = new long[WARM_UP_BATCHES];
+        int size = 0;
+        do {
+            long start = System.nanoTime();
+            for (int k = 0; k < WARM_UP_BATCH; ++k)
+                rayTracer.traceRay(constructRay(nX, nY, (int) random(0, nX), (int) random(0, nY)));
+            batches[size++] = System.nanoTime() - start;
+        } while (size < WARM_UP_BATCHES && System.nanoTime() < limit);
+        Arrays.sort(batches, 0, size);
+        return batches[size / 2] / 1e9 / WARM_UP_BATCH;
+    }
 
-    private List<Point> Adaptive(Point centerPlan, double w, double h, List<Point> points, int AdaptiveDepth) {
-        paln_board devided_pixel = new paln_board(w, h, 2, 2);
-        devided_pixel.setCenter_board(centerPlan);
-        List<Point> tempPoints = devided_pixel.Grid(this.v_Right, this.v_Up);
-        if (AdaptiveDepth == 0) {
-            return tempPoints;
+    /**
+     * Returns the worst case amount of primary rays per pixel of the current sampling settings.
+     *
+     * @return the maximal amount of samples per pixel
+     */
+    private int samplesPerPixel() {
+        if (maxSamples > 0) return maxSamples;
+        if (x > 1 || y > 1) return AdaptiveDepth > 0 ? 1 << 2 * AdaptiveDepth : x * y;
+        return 1;
+    }
+
+    /**
+     * Lowers the amount of samples per pixel by a step: halves the maximal amount of variance-driven samples,
+     * or lowers the depth of adaptive super-sampling, or halves the larger dimension of the anti-aliasing grid.
+     *
+     * @return true if the amount was lowered, false if a pixel already takes a single sample
+     */
+    private boolean reduceSamples() {
+        if (maxSamples > 1) {
+            maxSamples /= 2;
+            minSamples = Math.min(minSamples, maxSamples);
+        } else if (maxSamples == 0 && (x > 1 || y > 1)) {
+            if (AdaptiveDepth > 1) {
+                --AdaptiveDepth;
+            } else if (AdaptiveDepth == 1) {
+                AdaptiveDepth = 0;
+                x = y = 1;
+            } else if (x >= y) {
+                x = (x + 1) / 2;
+            } else {
+                y = (y + 1) / 2;
+            }
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Renders the image progressively: the first pass traces a single ray through the center of every pixel,
+     * so the framing of the scene is seen at once, and every following pass adds a sample to every pixel which
+     * has not converged yet into an accumulation buffer. After every pass the image writer gets the mean colors
+     * of the buffer and the pass listener is told, so the intermediate image may be published.<br/>
+     * The samples of the following passes are jittered within the cells of the anti-aliasing grid, a cell per
+     * pass in a random order, so every full cycle of the grid is a stratified sample of the pixel. A pixel
+     * converges when it has the minimal amount of samples and the standard error of its mean luminance is
+     * within the adaptive threshold. The rendering stops after the maximal amount of passes, when all the
+     * pixels have converged, when the listener asks for it, or when the wall-clock budget is over - in the
+     * middle of a pass too, except for the first one.<br/>
+     * The progress is printed for every pass by rows, including the rows' converged pixels.
+     *
+     * @param nX the number of horizontal pixels in the view plane
+     * @param nY the number of vertical pixels in the view plane
+     */
+    private void renderProgressive(int nX, int nY) {
+        long deadline = progressiveBudget > 0 ? System.nanoTime() + (long) (progressiveBudget * 1e9) : Long.MAX_VALUE;
+        ProgressiveBuffer buffer = new ProgressiveBuffer(nX, nY);
+        int columns = Math.max(1, x), rows = Math.max(1, y);
+        // A random order of the anti-aliasing grid cells (Fisher-Yates shuffle)
+        int[] cells = IntStream.range(0, columns * rows).toArray();
+        for (int k = cells.length - 1; k > 0; --k) {
+            int r = (int) random(0, k + 1);
+            int cell = cells[k];
+            cells[k] = cells[r];
+            cells[r] = cell;
         }
-        Color midColor = this.rayTracer.traceRay(new Ray(this.location, centerPlan.subtract(this.location)));
-        for (int i = 0; i < 4; i++) {
-            if (!this.rayTracer.traceRay(new Ray(this.location, tempPoints.get(i).subtract(this.location))).equals(midColor)) {
-                points.addAll(Adaptive(tempPoints.get(i), w / 2, h / 2, points, AdaptiveDepth - 1));
+        for (int pass = 0; pass < progressivePasses; ++pass) {
+            // -1 for the center of the pixel
+            final int cell = pass == 0 ? -1 : cells[(pass - 1) % cells.length];
+            final long passDeadline = pass == 0 ? Long.MAX_VALUE : deadline;
+            pixelManager = new PixelManager(nY, nX, printInterval);
+            if (threadsCount == 0) {
+                for (int i = 0; i < nY && System.nanoTime() < passDeadline; i++)
+                    progressiveRow(nX, nY, i, cell, buffer);
+            } else if (threadsCount == -1) {
+                IntStream.range(0, nY).parallel().forEach(i -> {
+                    if (System.nanoTime() < passDeadline) progressiveRow(nX, nY, i, cell, buffer);
+                });
+            } else {
+                AtomicInteger nextRow = new AtomicInteger();
+                List<Thread> threads = new LinkedList<>();
+                for (int t = 0; t < threadsCount; t++) {
+                    threads.add(new Thread(() -> {
+                        int i;
+                        while ((i = nextRow.getAndIncrement()) < nY && System.nanoTime() < passDeadline)
+                            progressiveRow(nX, nY, i, cell, buffer);
+                    }));
+                }
+                for (Thread thread : threads) thread.start();
+                try {
+                    for (Thread thread : threads) thread.join();
+                } catch (InterruptedException ignore) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
             }
+
+            int active = 0;
+            for (int i = 0; i < nY; i++)
+                for (int j = 0; j < nX; j++) {
+                    imageWriter.writePixel(j, i, buffer.color(j, i));
+                    if (!buffer.converged(j, i, adaptiveThreshold, minSamples)) ++active;
+                }
+            if (passListener != null && !passListener.passDone(pass + 1, active)) break;
+            if (active == 0 || System.nanoTime() >= deadline) break;
         }
-        return tempPoints;
     }
 
     /**
-     * Casts a ray through a specific pixel and writes the color to the image.
+     * Adds a sample to every pixel of a row which has not converged yet.
+     *
+     * @param nX     the number of horizontal pixels in the view plane
+     * @param nY     the number of vertical pixels in the view plane
+     * @param i      the vertical index of the row (0-based)
+     * @param cell   the anti-aliasing grid cell of the samples, -1 for the centers of the pixels
+     * @param buffer the accumulation buffer
+     */
+    private void progressiveRow(int nX, int nY, int i, int cell, ProgressiveBuffer buffer) {
+        int columns = Math.max(1, x), rows = Math.max(1, y);
+        double pixelWidth = width / nX, pixelHeight = height / nY;
+        double cellWidth = pixelWidth / columns, cellHeight = pixelHeight / rows;
+        int[] pixels = new int[nX];
+        Ray[] rays = new Ray[nX];
+        int size = 0;
+        double[] point = new double[3];
+        for (int j = 0; j < nX; j++) {
+            if (buffer.converged(j, i, adaptiveThreshold, minSamples)) continue;
+            Ray ray;
+            if (cell < 0) {
+                ray = constructRay(nX, nY, j, i);
+            } else {
+                int column = cell % columns, row = cell / columns;
+                VectorMath.set(CalculateCenterPointInPixel(nX, nY, j, i).xyz, point);
+                VectorMath.scaleAdd(point, v_Right.xyz,
+                        random(column * cellWidth, (column + 1) * cellWidth) - pixelWidth / 2);
+                VectorMath.scaleAdd(point, v_Up.xyz,
+                        pixelHeight / 2 - random(row * cellHeight, (row + 1) * cellHeight));
+                ray = new Ray(location, new Point(point[0], point[1], point[2]).subtract(location));
+            }
+            pixels[size] = j;
+            rays[size++] = ray;
+        }
+        if (rayPackets) {
+            // The samples of a row leave the camera together, so they are traced in a packet
+            Color[] colors = rayTracer.traceRays(Arrays.copyOf(rays, size));
+            for (int k = 0; k < size; k++) buffer.add(pixels[k], i, colors[k]);
+        } else {
+            for (int k = 0; k < size; k++) buffer.add(pixels[k], i, rayTracer.traceRay(rays[k]));
+        }
+        pixelManager.pixelsDone(nX);
+    }
+
+    /**
+     * Renders all the pixels of a tile and reports them as done.
+     *
+     * @param nX   the number of horizontal pixels in the view plane
+     * @param nY   the number of vertical pixels in the view plane
+     * @param tile the tile to render
+     */
+    private void renderTile(int nX, int nY, TileManager.Tile tile) {
+        // The adaptive super-sampling samples are shared between the pixels of the tile
+        Map<Long, Color> samples = AdaptiveDepth > 0 ? new HashMap<>() : null;
+        for (int i = tile.row(); i < tile.row() + tile.rows(); i++)
+            for (int j = tile.col(); j < tile.col() + tile.cols(); j++)
+                castRay(nX, nY, j, i, samples);
+        pixelManager.pixelsDone(tile.rows() * tile.cols());
+    }
+
+    /**
+     * Calculates the color of a square region of a pixel by adaptive super-sampling.
+     * The corners of the region are sampled on the sub-pixel lattice of the image (the pixels are divided
+     * into 2^AdaptiveDepth x 2^AdaptiveDepth cells); if they differ by more than the adaptive threshold and
+     * the depth is not exhausted, the
+     * region is divided into 4 quarters which are sampled recursively. Each lattice sample is traced once
+     * and kept in the cache, since neighbouring regions and neighbouring pixels share their corners.
+     *
+     * @param samples the cache of the traced lattice samples
+     * @param nX      the number of horizontal pixels in the view plane
+     * @param nY      the number of vertical pixels in the view plane
+     * @param col     the lattice column of the upper-left corner of the region
+     * @param row     the lattice row of the upper-left corner of the region
+     * @param size    the size of the region in lattice cells
+     * @param depth   the remaining depth of the adaptive recursion
+     * @return the average color of the region
+     */
+    private Color adaptive(Map<Long, Color> samples, int nX, int nY, int col, int row, int size, int depth) {
+        Color c1 = latticeSample(samples, nX, nY, col, row);
+        Color c2 = latticeSample(samples, nX, nY, col + size, row);
+        Color c3 = latticeSample(samples, nX, nY, col, row + size);
+        Color c4 = latticeSample(samples, nX, nY, col + size, row + size);
+        if (depth == 0 || similar(c1, c2, c3, c4)) {
+            return c1.add(c2, c3, c4).reduce(4);
+        }
+        int half = size / 2;
+        return adaptive(samples, nX, nY, col, row, half, depth - 1)
+                .add(adaptive(samples, nX, nY, col + half, row, half, depth - 1),
+                        adaptive(samples, nX, nY, col, row + half, half, depth - 1),
+                        adaptive(samples, nX, nY, col + half, row + half, half, depth - 1))
+                .reduce(4);
+    }
+
+    /**
+     * Checks whether the corner colors of an adaptive super-sampling region are close enough to stop refining
+     * it: their luminance range is within the adaptive threshold, or they are equal if there is no threshold.
+     *
+     * @param c1 the first corner color
+     * @param c2 the second corner color
+     * @param c3 the third corner color
+     * @param c4 the fourth corner color
+     * @return true if the region does not need refinement
+     */
+    private boolean similar(Color c1, Color c2, Color c3, Color c4) {
+        if (adaptiveThreshold == 0) return c1.equals(c2) && c1.equals(c3) && c1.equals(c4);
+        double l1 = c1.luminance(), l2 = c2.luminance(), l3 = c3.luminance(), l4 = c4.luminance();
+        double min = Math.min(Math.min(l1, l2), Math.min(l3, l4));
+        double max = Math.max(Math.max(l1, l2), Math.max(l3, l4));
+        return max - min <= adaptiveThreshold;
+    }
+
+    /**
+     * Calculates the color of a pixel by variance-driven sampling. Random rays through the pixel are traced,
+     * and the variance of their luminance is maintained; the sampling stops when the standard error of the
+     * mean luminance is within the adaptive threshold (after the minimal amount of samples), or when the
+     * maximal amount of samples is reached.
      *
      * @param nX the number of horizontal pixels in the view plane
      * @param nY the number of vertical pixels in the view plane
      * @param j  the horizontal index of the pixel (0-based)
      * @param i  the vertical index of the pixel (0-based)
+     * @return the average color of the samples
+     */
+    private Color varianceSampling(int nX, int nY, int j, int i) {
+        Point center = CalculateCenterPointInPixel(nX, nY, j, i);
+        double pixelWidth = width / nX, pixelHeight = height / nY;
+        double[] point = new double[3];
+        Color sum = Color.BLACK;
+        double mean = 0, squares = 0; // Welford's running mean and sum of squared differences
+        int n = 0;
+        while (n < maxSamples) {
+            VectorMath.set(center.xyz, point);
+            VectorMath.scaleAdd(point, v_Right.xyz, random(-pixelWidth / 2, pixelWidth / 2));
+            VectorMath.scaleAdd(point, v_Up.xyz, random(-pixelHeight / 2, pixelHeight / 2));
+            Color color = rayTracer.traceRay(new Ray(location, new Point(point[0], point[1], point[2]).subtract(location)));
+            sum = sum.add(color);
+
+            double luminance = color.luminance();
+            double delta = luminance - mean;
+            mean += delta / ++n;
+            squares += delta * (luminance - mean);
+            // standard error of the mean: sqrt(variance / n) where variance = squares / (n - 1)
+            if (n >= minSamples && n > 1 && squares / (n - 1) / n <= adaptiveThreshold * adaptiveThreshold)
+                break;
+        }
+        return sum.reduce(n);
+    }
+
+    /**
+     * Returns the color of a point of the sub-pixel lattice, tracing its ray only if it is not cached yet.
+     *
+     * @param samples the cache of the traced lattice samples
+     * @param nX      the number of horizontal pixels in the view plane
+     * @param nY      the number of vertical pixels in the view plane
+     * @param col     the lattice column (0 to nX * 2^AdaptiveDepth)
+     * @param row     the lattice row (0 to nY * 2^AdaptiveDepth)
+     * @return the color of the lattice point
      */
-    private void castRay(int nX, int nY, int j, int i) {
+    private Color latticeSample(Map<Long, Color> samples, int nX, int nY, int col, int row) {
+        Long key = ((long) row << 32) | col;
+        Color color = samples.get(key);
+        if (color == null) {
+            double[] point = VectorMath.scaleAdd(VectorMath.set(location.xyz, new double[3]), v_To.xyz, distanceToScreen);
+            VectorMath.scaleAdd(point, v_Right.xyz, (double) col * width / ((long) nX << AdaptiveDepth) - width / 2);
+            VectorMath.scaleAdd(point, v_Up.xyz, height / 2 - (double) row * height / ((long) nY << AdaptiveDepth));
+            color = rayTracer.traceRay(new Ray(location, new Point(point[0], point[1], point[2]).subtract(location)));
+            samples.put(key, color);
+        }
+        return color;
+    }
+
+    /**
+     * Casts a ray through a specific pixel and writes the color to the image.
+     *
+     * @param nX      the number of horizontal pixels in the view plane
+     * @param nY      the number of vertical pixels in the view plane
+     * @param j       the horizontal index of the pixel (0-based)
+     * @param i       the vertical index of the pixel (0-based)
+     * @param samples the cache of the adaptive super-sampling lattice samples shared with the neighbouring
+     *                pixels, or null for a cache of the pixel only
+     */
+    private void castRay(int nX, int nY, int j, int i, Map<Long, Color> samples) {
         Color color = Color.BLACK;
-        if (this.x > 1 || this.y > 1) {
-            List<Point> points = new ArrayList<>();
+        if (this.maxSamples > 0) {
+            color = varianceSampling(nX, nY, j, i);
+        } else if (this.x > 1 || this.y > 1) {
             if (this.AdaptiveDepth > 0) {
-                points = Adaptive(CalculateCenterPointInPixel(nX, nY, j, i), this.width / nX, this.height / nY,
-                        points, this.AdaptiveDepth);
+                int cells = 1 << this.AdaptiveDepth;
+                color = adaptive(samples == null ? new HashMap<>() : samples, nX, nY, j * cells, i * cells,
+                        cells, this.AdaptiveDepth);
             } else {
                 paln_board devided_pixel = new paln_board(this.width / nX, this.height / nY, this.x, this.y);
                 devided_pixel.setCenter_board(CalculateCenterPointInPixel(nX, nY, j, i));
-                points = devided_pixel.Jittered(this.v_Right, this.v_Up);
-            }
-            for (int k = 0; k < points.size(); k++) {
-                Point point = points.get(k);
-                Ray ray = new Ray(this.location, point.subtract(this.location));
-                Color theray = rayTracer.traceRay(ray);
-                color = color.add(theray.scale(1.0 / points.size()));
+                List<Point> points = devided_pixel.Jittered(this.v_Right, this.v_Up);
+                if (this.rayPackets) {
+                    Ray[] rays = new Ray[points.size()];
+                    for (int k = 0; k < rays.length; k++) {
+                        rays[k] = new Ray(this.location, points.get(k).subtract(this.location));
+                    }
+                    Color[] colors = rayTracer.traceRays(rays);
+                    for (Color theray : colors) {
+                        color = color.add(theray.scale(1.0 / points.size()));
+                    }
+                } else {
+                    for (int k = 0; k < points.size(); k++) {
+                        Point point = points.get(k);
+                        Ray ray = new Ray(this.location, point.subtract(this.location));
+                        Color theray = rayTracer.traceRay(ray);
+                        color = color.add(theray.scale(1.0 / points.size()));
+                    }
+                }
             }
         } else {
             Ray ray = constructRay(nX, nY, j, i);
@@ -486,6 +999,175 @@ public class Camera implements Cloneable {
             return this;
         }
 
+        /**
+         * Sets the error threshold of adaptive sampling. Adaptive super-sampling (see {@link #setAdaptive(int)})
+         * stops refining a region when the luminance of its corners differs by no more than the threshold, and
+         * variance-driven sampling (see {@link #setAdaptiveSamples(int, int)}) stops when the standard error of
+         * the pixel's mean luminance is within the threshold.
+         *
+         * @param threshold the threshold in luminance units (255 for white), 0 for no tolerance
+         * @return this Builder instance
+         * @throws IllegalArgumentException If the threshold is negative
+         */
+        public Builder setAdaptiveThreshold(double threshold) {
+            if (threshold < 0) {
+                throw new IllegalArgumentException("Adaptive threshold cannot be negative");
+            }
+            this.camera.adaptiveThreshold = threshold;
+            return this;
+        }
+
+        /**
+         * Turns on variance-driven sampling: each pixel gets random samples until the error estimated from
+         * their luminance variance is within the adaptive threshold (see {@link #setAdaptiveThreshold(double)}).
+         *
+         * @param minSamples the minimal amount of samples per pixel
+         * @param maxSamples the maximal amount of samples per pixel, 0 to turn variance-driven sampling off
+         * @return this Builder instance
+         * @throws IllegalArgumentException If a budget is negative or the minimum is higher than the maximum
+         */
+        public Builder setAdaptiveSamples(int minSamples, int maxSamples) {
+            if (minSamples < 0 || maxSamples < 0 || (maxSamples > 0 && minSamples > maxSamples)) {
+                throw new IllegalArgumentException("Sample budget must satisfy 0 <= minimum <= maximum");
+            }
+            this.camera.minSamples = minSamples;
+            this.camera.maxSamples = maxSamples;
+            return this;
+        }
+
+        /**
+         * Turns on packet tracing of the anti-aliasing samples: the primary rays of the samples of a pixel
+         * leave the camera together, so they are intersected with the scene in packets which share the
+         * calculations of the common head and reject whole hierarchy nodes and geometries at once.
+         *
+         * @param rayPackets true to trace the samples in packets, false to trace them one by one
+         * @return this Builder instance
+         */
+        public Builder setRayPackets(boolean rayPackets) {
+            this.camera.rayPackets = rayPackets;
+            return this;
+        }
+
+        /**
+         * Turns on progressive rendering: the first pass traces a single ray per pixel, and every following pass
+         * adds a jittered sample (see {@link #setAntiAliasing(int, int)} for the grid of the samples) to the pixels
+         * which have not converged yet (see {@link #setAdaptiveThreshold(double)} and
+         * {@link #setAdaptiveSamples(int, int)} for the minimal amount of samples). The image writer holds the
+         * refined image after every pass. The passes are dealt to the threads by rows, so the tile size
+         * (see {@link #setTileSize(int)}) is not used, and the progress (see {@link #setDebugPrint(double)}) is
+         * printed for every pass.
+         *
+         * @param passes the maximal amount of passes, 0 to turn progressive rendering off
+         * @return this Builder instance
+         * @throws IllegalArgumentException If the amount of passes is negative
+         */
+        public Builder setProgressive(int passes) {
+            if (passes < 0) {
+                throw new IllegalArgumentException("Amount of passes cannot be negative");
+            }
+            this.camera.progressivePasses = passes;
+            return this;
+        }
+
+        /**
+         * Sets the wall-clock budget of progressive rendering, which stops when the budget is over - but not
+         * before the first pass is finished.
+         *
+         * @param seconds the budget in seconds, 0 for no budget
+         * @return this Builder instance
+         * @throws IllegalArgumentException If the budget is negative
+         */
+        public Builder setProgressiveBudget(double seconds) {
+            if (seconds < 0) {
+                throw new IllegalArgumentException("Progressive budget cannot be negative");
+            }
+            this.camera.progressiveBudget = seconds;
+            return this;
+        }
+
+        /**
+         * Sets a wall-clock budget for the rendering. A short warm-up measures the cost of the rays of the scene,
+         * and the samples per pixel, the soft shadow samples and the recursion depth of the ray tracer are
+         * lowered, as needed, so the rendering is estimated to finish within the budget; a noisier image in time
+         * is preferred to a late one. The configured quality is restored after the rendering. Progressive
+         * rendering keeps its own budget (see {@link #setProgressiveBudget(double)}).
+         *
+         * @param seconds the budget in seconds, counted from the start of the rendering, 0 for no budget
+         * @return this Builder instance
+         * @throws IllegalArgumentException If the budget is negative
+         */
+        public Builder setTimeBudget(double seconds) {
+            if (seconds < 0) {
+                throw new IllegalArgumentException("Time budget cannot be negative");
+            }
+            this.camera.timeBudget = seconds;
+            return this;
+        }
+
+        /**
+         * Sets the listener which is told of every finished pass of progressive rendering.
+         *
+         * @param listener the listener, null for none
+         * @return this Builder instance
+         */
+        public Builder setPassListener(PassListener listener) {
+            this.camera.passListener = listener;
+            return this;
+        }
+
+        /**
+         * Sets the multithreading mode of the rendering.
+         *
+         * @param threads -2 for automatic amount of threads (all the cores except spare ones),
+         *                -1 for parallel streams, 0 for no threads, 1 or more for the number of threads
+         * @return this Builder instance
+         * @throws IllegalArgumentException If the parameter is lower than -2
+         */
+        public Builder setMultithreading(int threads) {
+            if (threads < -2) {
+                throw new IllegalArgumentException("Multithreading parameter must be -2 or higher");
+            }
+            if (threads == -2) {
+                int cores = Runtime.getRuntime().availableProcessors() - SPARE_THREADS;
+                this.camera.threadsCount = cores <= 2 ? 1 : cores;
+            } else {
+                this.camera.threadsCount = threads;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the tile size for multi-threaded rendering. The image is divided into tiles
+         * which are dealt to the threads, and idle threads steal tiles from the busy ones.
+         *
+         * @param tileSize the size (in pixels) of a tile edge (e.g. 16 or 32),
+         *                 0 for allocating the pixels to the threads one by one
+         * @return this Builder instance
+         * @throws IllegalArgumentException If the tile size is negative
+         */
+        public Builder setTileSize(int tileSize) {
+            if (tileSize < 0) {
+                throw new IllegalArgumentException("Tile size cannot be negative");
+            }
+            this.camera.tileSize = tileSize;
+            return this;
+        }
+
+        /**
+         * Sets the interval of the rendering progress printing.
+         *
+         * @param interval progress percentage printing interval, 0 if printing is not required
+         * @return this Builder instance
+         * @throws IllegalArgumentException If the interval is negative
+         */
+        public Builder setDebugPrint(double interval) {
+            if (interval < 0) {
+                throw new IllegalArgumentException("Debug print interval cannot be negative");
+            }
+            this.camera.printInterval = interval;
+            return this;
+        }
+
 
     }
 }
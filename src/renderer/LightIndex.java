@@ -0,0 +1,168 @@
+package renderer;
+
+/**
+ * LightIndex is a uniform grid over the spheres of influence of light sources, which finds the lights
+ * that may reach a point without going over all the lights of the scene.<br/>
+ * Each cell keeps the indices of the lights whose influence box overlaps it, together with the lights of
+ * unbounded influence, in ascending order - so the lights are always visited in their original order.
+ * A point outside the grid is reached by the unbounded lights only.
+ *
+ * @author Isca Fitousi and Avital Orenstin
+ */
+final class LightIndex {
+    /**
+     * The maximal amount of cells along an axis.
+     */
+    private static final int MAX_RESOLUTION = 32;
+
+    /**
+     * The indices of the lights of unbounded influence.
+     */
+    private final int[] unbounded;
+    /**
+     * The light indices of each cell, x-major order. Null if there are no bounded lights.
+     */
+    private final int[][] cells;
+    /**
+     * The amount of cells along each axis.
+     */
+    private final int nx, ny, nz;
+    /**
+     * The minimal corner of the grid.
+     */
+    private final double minX, minY, minZ;
+    /**
+     * The inverse of the size of a cell along each axis.
+     */
+    private final double invX, invY, invZ;
+
+    /**
+     * Builds the index.
+     *
+     * @param centers the positions of the lights - 3 numbers (x, y, z) per light, ignored for unbounded lights
+     * @param radii   the influence radii of the lights, positive infinity for a light of unbounded influence
+     */
+    LightIndex(double[] centers, double[] radii) {
+        int count = radii.length;
+        int unboundedCount = 0;
+        double loX = Double.POSITIVE_INFINITY, loY = Double.POSITIVE_INFINITY, loZ = Double.POSITIVE_INFINITY;
+        double hiX = Double.NEGATIVE_INFINITY, hiY = Double.NEGATIVE_INFINITY, hiZ = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; ++i) {
+            double r = radii[i];
+            if (r == Double.POSITIVE_INFINITY) {
+                ++unboundedCount;
+                continue;
+            }
+            loX = Math.min(loX, centers[3 * i] - r);
+            loY = Math.min(loY, centers[3 * i + 1] - r);
+            loZ = Math.min(loZ, centers[3 * i + 2] - r);
+            hiX = Math.max(hiX, centers[3 * i] + r);
+            hiY = Math.max(hiY, centers[3 * i + 1] + r);
+            hiZ = Math.max(hiZ, centers[3 * i + 2] + r);
+        }
+        unbounded = new int[unboundedCount];
+        for (int i = 0, k = 0; i < count; ++i)
+            if (radii[i] == Double.POSITIVE_INFINITY) unbounded[k++] = i;
+
+        minX = loX;
+        minY = loY;
+        minZ = loZ;
+        int bounded = count - unboundedCount;
+        if (bounded == 0) {
+            cells = null;
+            nx = ny = nz = 0;
+            invX = invY = invZ = 0;
+            return;
+        }
+
+        // About 2 cells per light along the volume of the grid
+        int resolution = Math.min(MAX_RESOLUTION, Math.max(1, (int) Math.ceil(Math.cbrt(2.0 * bounded))));
+        nx = resolution;
+        ny = resolution;
+        nz = resolution;
+        invX = hiX > loX ? nx / (hiX - loX) : 0;
+        invY = hiY > loY ? ny / (hiY - loY) : 0;
+        invZ = hiZ > loZ ? nz / (hiZ - loZ) : 0;
+
+        // Count the bounded lights of each cell, then fill the cells in ascending light order
+        int[] sizes = new int[nx * ny * nz];
+        int[] range = new int[6];
+        for (int i = 0; i < count; ++i) {
+            if (radii[i] == Double.POSITIVE_INFINITY) continue;
+            cellRange(centers, radii[i], i, range);
+            for (int x = range[0]; x <= range[3]; ++x)
+                for (int y = range[1]; y <= range[4]; ++y)
+                    for (int z = range[2]; z <= range[5]; ++z)
+                        ++sizes[(x * ny + y) * nz + z];
+        }
+        cells = new int[sizes.length][];
+        for (int c = 0; c < sizes.length; ++c) {
+            cells[c] = sizes[c] == 0 ? unbounded : new int[sizes[c] + unboundedCount];
+            sizes[c] = 0;
+        }
+        for (int i = 0; i < count; ++i) {
+            if (radii[i] == Double.POSITIVE_INFINITY) {
+                for (int c = 0; c < cells.length; ++c)
+                    if (cells[c] != unbounded) cells[c][sizes[c]++] = i;
+                continue;
+            }
+            cellRange(centers, radii[i], i, range);
+            for (int x = range[0]; x <= range[3]; ++x)
+                for (int y = range[1]; y <= range[4]; ++y)
+                    for (int z = range[2]; z <= range[5]; ++z) {
+                        int c = (x * ny + y) * nz + z;
+                        cells[c][sizes[c]++] = i;
+                    }
+        }
+    }
+
+    /**
+     * Calculates the range of cells overlapped by the influence box of a light.
+     *
+     * @param centers the positions of the lights
+     * @param radius  the influence radius of the light
+     * @param light   the index of the light
+     * @param range   an array to fill with the first and the last cell along each axis (x, y, z, x, y, z)
+     */
+    private void cellRange(double[] centers, double radius, int light, int[] range) {
+        double x = centers[3 * light], y = centers[3 * light + 1], z = centers[3 * light + 2];
+        range[0] = cell(x - radius, minX, invX, nx);
+        range[1] = cell(y - radius, minY, invY, ny);
+        range[2] = cell(z - radius, minZ, invZ, nz);
+        range[3] = cell(x + radius, minX, invX, nx);
+        range[4] = cell(y + radius, minY, invY, ny);
+        range[5] = cell(z + radius, minZ, invZ, nz);
+    }
+
+    /**
+     * Calculates the cell of a coordinate along an axis, clamped into the grid.
+     *
+     * @param value the coordinate
+     * @param min   the minimal coordinate of the grid
+     * @param inv   the inverse of the size of a cell
+     * @param n     the amount of cells along the axis
+     * @return the index of the cell
+     */
+    private static int cell(double value, double min, double inv, int n) {
+        return Math.min(n - 1, Math.max(0, (int) ((value - min) * inv)));
+    }
+
+    /**
+     * Returns the lights which may reach a point: the lights whose influence box contains the cell of
+     * the point, and the lights of unbounded influence. The array must not be changed.
+     *
+     * @param x x of the point
+     * @param y y of the point
+     * @param z z of the point
+     * @return the indices of the candidate lights, in ascending order
+     */
+    int[] candidates(double x, double y, double z) {
+        if (cells == null) return unbounded;
+        double fx = (x - minX) * invX, fy = (y - minY) * invY, fz = (z - minZ) * invZ;
+        // A point outside the grid (or NaN) is out of the influence of all the bounded lights
+        if (!(fx >= 0 && fy >= 0 && fz >= 0 && fx <= nx && fy <= ny && fz <= nz)) return unbounded;
+        if (invX == 0 && x != minX || invY == 0 && y != minY || invZ == 0 && z != minZ) return unbounded;
+        int cx = Math.min(nx - 1, (int) fx), cy = Math.min(ny - 1, (int) fy), cz = Math.min(nz - 1, (int) fz);
+        return cells[(cx * ny + cy) * nz + cz];
+    }
+}
@@ -8,7 +8,7 @@ class PixelManager {
     /**
      * Immutable class for object containing allocated pixel (with its row and column numbers)
      */
-    record Pixel(int col, int row) {
+    record Pixel(int row, int col) {
     }
 
     /**
@@ -95,10 +95,18 @@ class PixelManager {
     }
     /** Finish pixel processing by updating and printing of progress percentage */
     void pixelDone() {
+        pixelsDone(1);
+    }
+
+    /** Finish processing of several pixels (e.g. a whole tile) by updating and printing of
+     * progress percentage
+     * @param amount the amount of the processed pixels
+     */
+    void pixelsDone(int amount) {
         boolean flag = false;
         int percentage = 0;
         synchronized (mutexPixels) {
-            ++pixels;
+            pixels += amount;
             if (print) {
                 percentage = (int) (1000l * pixels / totalPixels);
                 if (percentage - lastPrinted >= printInterval) {
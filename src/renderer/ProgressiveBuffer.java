@@ -0,0 +1,108 @@
+package renderer;
+
+import primitives.Color;
+
+import java.util.Arrays;
+
+/**
+ * ProgressiveBuffer accumulates the samples of the pixels of a progressive rendering: the sum of the colors
+ * of each pixel, and the running mean and the sum of squared differences of their luminance (Welford's
+ * method), from which the standard error of the pixel's mean is estimated.<br/>
+ * A pixel is updated by a single thread at a time, so the buffer is not synchronized.
+ *
+ * @author Isca Fitousi and Avital Orenstin
+ */
+final class ProgressiveBuffer {
+    /**
+     * The amount of pixels in a row.
+     */
+    private final int nX;
+    /**
+     * The sum of the sampled colors of each pixel.
+     */
+    private final Color[] sums;
+    /**
+     * The amount of samples of each pixel.
+     */
+    private final int[] counts;
+    /**
+     * The running mean of the luminance of each pixel.
+     */
+    private final double[] means;
+    /**
+     * The sum of the squared differences of the luminance of each pixel from its mean.
+     */
+    private final double[] squares;
+
+    /**
+     * Constructs an empty buffer.
+     *
+     * @param nX the amount of pixels in a row
+     * @param nY the amount of rows
+     */
+    ProgressiveBuffer(int nX, int nY) {
+        this.nX = nX;
+        int size = nX * nY;
+        sums = new Color[size];
+        Arrays.fill(sums, Color.BLACK);
+        counts = new int[size];
+        means = new double[size];
+        squares = new double[size];
+    }
+
+    /**
+     * Adds a sample to a pixel.
+     *
+     * @param j     the column of the pixel
+     * @param i     the row of the pixel
+     * @param color the color of the sample
+     */
+    void add(int j, int i, Color color) {
+        int p = i * nX + j;
+        sums[p] = sums[p].add(color);
+        double luminance = color.luminance();
+        double delta = luminance - means[p];
+        means[p] += delta / ++counts[p];
+        squares[p] += delta * (luminance - means[p]);
+    }
+
+    /**
+     * Returns the mean color of the samples of a pixel.
+     *
+     * @param j the column of the pixel
+     * @param i the row of the pixel
+     * @return the mean color, black if the pixel has no samples
+     */
+    Color color(int j, int i) {
+        int p = i * nX + j;
+        return counts[p] == 0 ? Color.BLACK : sums[p].reduce(counts[p]);
+    }
+
+    /**
+     * Returns the amount of samples of a pixel.
+     *
+     * @param j the column of the pixel
+     * @param i the row of the pixel
+     * @return the amount of samples
+     */
+    int count(int j, int i) {
+        return counts[i * nX + j];
+    }
+
+    /**
+     * Checks whether the mean luminance of a pixel has converged: it has the minimal amount of samples (at
+     * least 2, for an estimate of the variance), and the standard error of the mean is within the threshold.
+     *
+     * @param j          the column of the pixel
+     * @param i          the row of the pixel
+     * @param threshold  the maximal standard error, in luminance units - 0 never converges
+     * @param minSamples the minimal amount of samples
+     * @return true if the pixel does not need more samples
+     */
+    boolean converged(int j, int i, double threshold, int minSamples) {
+        int p = i * nX + j;
+        int n = counts[p];
+        // standard error of the mean: sqrt(variance / n) where variance = squares / (n - 1)
+        return threshold > 0 && n >= Math.max(2, minSamples) && squares[p] / (n - 1) / n <= threshold * threshold;
+    }
+}
@@ -32,4 +32,44 @@ public abstract class RayTracerBase {
      */
     public abstract Color traceRay(Ray ray);
 
+    /**
+     * Traces a group of coherent rays, such as the primary rays of the samples of a pixel, which start from a
+     * common head. The default implementation traces the rays one by one.
+     *
+     * @param rays the rays to be traced, all from a common head
+     * @return the colors resulting from tracing the rays, by the order of the rays
+     */
+    public Color[] traceRays(Ray[] rays) {
+        Color[] colors = new Color[rays.length];
+        for (int i = 0; i < rays.length; ++i) {
+            colors[i] = traceRay(rays[i]);
+        }
+        return colors;
+    }
+
+    /**
+     * Prepares the data which does not change during the rendering of an image, such as per-light data.
+     * The camera calls it once before rendering. The default implementation does nothing.
+     */
+    public void prepare() {
+    }
+
+    /**
+     * Lowers the quality of the tracing by a step, which makes the rays cheaper to trace - e.g. so the camera
+     * completes a rendering within a time budget. It is called between renderings, not during them.
+     * The default implementation has no quality settings to lower.
+     *
+     * @return true if the quality was lowered, false if it is already the lowest
+     */
+    public boolean reduceQuality() {
+        return false;
+    }
+
+    /**
+     * Restores the configured quality of the tracing after {@link #reduceQuality()}.
+     * The default implementation does nothing.
+     */
+    public void restoreQuality() {
+    }
+
 }
\ No newline at end of file
@@ -2,16 +2,22 @@ package renderer;
 
 import geometries.Geometry;
 import geometries.Intersectable.GeoPoint;
+import geometries.Intersectable.HitRecord;
 import lighting.LightSource;
 import primitives.*;
 import scene.Scene;
 import renderer.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
 import static java.lang.Math.*;
 import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
+import static primitives.Util.random;
 
 /**
  * A class for tracing rays and calculating their interactions
@@ -25,7 +31,7 @@ public class SimpleRayTracer extends RayTracerBase {
     private static final Double3 INITIAL_K = Double3.ONE;
 
     /**
-     * Maximum recursion level for color calculation.
+     * Default maximum recursion level for color calculation.
      */
     private static final int MAX_CALC_COLOR_LEVEL = 10;
 
@@ -35,15 +41,202 @@ public class SimpleRayTracer extends RayTracerBase {
     private static final double MIN_CALC_COLOR_K = 0.001;
     final int _numRays;
 
+    /**
+     * Hit record for the closest intersection queries, one per rendering thread.
+     */
+    private final ThreadLocal<HitRecord> hitRecord = ThreadLocal.withInitial(HitRecord::new);
+
+    /**
+     * Hit records for the closest intersection queries of ray packets, one set per rendering thread.
+     */
+    private final ThreadLocal<HitRecord[]> packetRecords = ThreadLocal.withInitial(() -> {
+        HitRecord[] records = new HitRecord[RayPacket.MAX_SIZE];
+        for (int i = 0; i < records.length; ++i) records[i] = new HitRecord();
+        return records;
+    });
+
+    /**
+     * The last occluder of the shadow rays towards each light source, one cache per rendering thread.
+     */
+    private final ThreadLocal<Map<LightSource, Geometry>> lastOccluders = ThreadLocal.withInitial(IdentityHashMap::new);
+    /**
+     * Record of the blocking geometry of the shadow queries, one per rendering thread.
+     */
+    private final ThreadLocal<HitRecord> occluderRecord = ThreadLocal.withInitial(HitRecord::new);
+    /**
+     * The amount of shadow rays which were blocked by the cached last occluder.
+     */
+    private final LongAdder occluderCacheHits = new LongAdder();
+    /**
+     * The amount of shadow rays which needed a traversal of the whole scene.
+     */
+    private final LongAdder occluderCacheMisses = new LongAdder();
+
+    /**
+     * The amount of pre-jittered sample patterns prepared for each area light. A shading point takes
+     * one of them at random, so neighbouring points do not share the same jitter.
+     */
+    private static final int LIGHT_PATTERNS = 16;
+
+    /**
+     * The per-light data of the scene's light sources, built by {@link #prepare()}.
+     */
+    private volatile PreparedLights preparedLights;
+
+    /**
+     * The intensity below which a light source is not shaded (see {@link #setLightCutoff(double)}).
+     */
+    private double lightCutoff = MIN_CALC_COLOR_K;
+
+    /**
+     * The amount of lights sampled per shading point, 0 for shading all the lights
+     * (see {@link #setLightSamples(int)}).
+     */
+    private int lightSamples = 0;
+
     private int Nx_of_light = 1;
     private int Ny_of_light = 1;
 
+    /**
+     * The maximum recursion level for color calculation (see {@link #setMaxLevel(int)}).
+     */
+    private int maxLevel = MAX_CALC_COLOR_LEVEL;
+    /**
+     * The amount of times the sampling grid of the soft shadows is halved by {@link #reduceQuality()}.
+     */
+    private int shadowReduction = 0;
+    /**
+     * The amount of times the maximum recursion level is halved by {@link #reduceQuality()}.
+     */
+    private int levelReduction = 0;
+
     public SimpleRayTracer setNy_NX_of_light(int ny_of_light,int nx_of_light) {
         Ny_of_light = ny_of_light;
         Nx_of_light = nx_of_light;
+        preparedLights = null;
+        return this;
+    }
+
+    /**
+     * Sets the intensity below which the attenuated light of a light source is neglected. A point or spot
+     * light is not shaded nor shadow tested at points beyond the distance where its attenuated intensity
+     * falls below the cutoff. The default is {@link #MIN_CALC_COLOR_K}, which is far below a visible change;
+     * scenes with many dim lights may use a higher cutoff, such as half a color unit.
+     *
+     * @param cutoff the intensity cutoff, in color units (0 disables the culling)
+     * @return this ray tracer
+     * @throws IllegalArgumentException if the cutoff is negative
+     */
+    public SimpleRayTracer setLightCutoff(double cutoff) {
+        if (cutoff < 0)
+            throw new IllegalArgumentException("Light cutoff must not be negative");
+        this.lightCutoff = cutoff;
+        preparedLights = null;
+        return this;
+    }
+
+    /**
+     * Sets the maximum recursion level of the color calculation, the amount of reflections and refractions a
+     * ray may go through (1 for no reflections and refractions at all). The default is 10.
+     *
+     * @param level the maximum recursion level
+     * @return this ray tracer
+     * @throws IllegalArgumentException if the level is lower than 1
+     */
+    public SimpleRayTracer setMaxLevel(int level) {
+        if (level < 1)
+            throw new IllegalArgumentException("Maximum recursion level must be at least 1");
+        this.maxLevel = level;
         return this;
     }
 
+    /**
+     * Lowers the quality by a step: first the sampling grid of the soft shadows is halved along both of its
+     * dimensions, down to a single shadow ray per light, and then the maximum recursion level is halved,
+     * down to 1. The soft shadows are reduced only if the scene has lights which cast them.
+     *
+     * @return true if the quality was lowered, false if it is already the lowest
+     */
+    @Override
+    public boolean reduceQuality() {
+        if ((Nx_of_light >> shadowReduction > 1 || Ny_of_light >> shadowReduction > 1)
+                && Arrays.stream(preparedLights().lights()).anyMatch(light -> light.soft)) {
+            ++shadowReduction;
+            preparedLights = null;
+            return true;
+        }
+        if (maxLevel >> levelReduction > 1) {
+            ++levelReduction;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void restoreQuality() {
+        if (shadowReduction > 0)
+            preparedLights = null;
+        shadowReduction = levelReduction = 0;
+    }
+
+    /**
+     * Whether the soft shadows are sampled adaptively (see {@link #setAdaptiveSoftShadow(boolean)}).
+     */
+    private boolean adaptiveSoftShadow = false;
+
+    /**
+     * Sets the adaptive soft shadow mode. Instead of a shadow ray per cell of the light's sampling grid,
+     * the corners and the center of the light's area are tested first, and the area is refined only where
+     * they disagree, up to the resolution of the sampling grid.
+     *
+     * @param adaptive true for adaptive soft shadows, false for jittered sampling of the whole grid
+     * @return this ray tracer
+     */
+    public SimpleRayTracer setAdaptiveSoftShadow(boolean adaptive) {
+        this.adaptiveSoftShadow = adaptive;
+        return this;
+    }
+
+    /**
+     * Whether the camera rays and the shadow rays are searched in single precision
+     * (see {@link #setSinglePrecision(boolean)}).
+     */
+    private boolean singlePrecision = false;
+
+    /**
+     * Sets the single precision mode. The intersections of the camera rays and of the shadow rays are
+     * searched in single precision by the geometries which support it (see {@link HitRecord#singlePrecision}),
+     * and the heads of the shadow rays are offset by the rounding error of their points instead of a fixed
+     * distance (see {@link Ray#SINGLE_PRECISION_ERROR}). The reflected and the refracted rays are traced in
+     * double precision.
+     *
+     * @param single true for single precision camera and shadow rays, false for double precision
+     * @return this ray tracer
+     */
+    public SimpleRayTracer setSinglePrecision(boolean single) {
+        this.singlePrecision = single;
+        return this;
+    }
+
+
+    /**
+     * Returns the amount of shadow rays which were blocked by the cached last occluder of their light source.
+     *
+     * @return the amount of occluder cache hits
+     */
+    public long getOccluderCacheHits() {
+        return occluderCacheHits.sum();
+    }
+
+    /**
+     * Returns the amount of shadow rays which were not blocked by a cached occluder and needed a traversal
+     * of the whole scene.
+     *
+     * @return the amount of occluder cache misses
+     */
+    public long getOccluderCacheMisses() {
+        return occluderCacheMisses.sum();
+    }
 
     /**
      * Constructor for SimpleRayTracer.
@@ -66,15 +259,102 @@ public class SimpleRayTracer extends RayTracerBase {
         this._numRays = _numRays;//for the soft Shadows
     }
 
+    /**
+     * Sets the many-light sampling mode. Instead of shading all the lights which reach a point, a fixed
+     * amount of lights is sampled per shading point, each by the probability of its power, and the
+     * contribution of a sample is divided by its probability - so the expected color is that of the
+     * exhaustive mode, and the cost of a point does not grow with the amount of lights.
+     *
+     * @param samples the amount of lights to sample per shading point, 0 for shading all the lights
+     * @return this ray tracer
+     * @throws IllegalArgumentException if the amount is negative
+     */
+    public SimpleRayTracer setLightSamples(int samples) {
+        if (samples < 0)
+            throw new IllegalArgumentException("Light samples must not be negative");
+        this.lightSamples = samples;
+        preparedLights = null;
+        return this;
+    }
+
+    @Override
+    public void prepare() {
+        List<LightSource> lights = scene.getLights();
+        PreparedLight[] prepared = new PreparedLight[lights.size()];
+        double[] centers = new double[3 * prepared.length];
+        double[] radii = new double[prepared.length];
+        double[] powers = new double[prepared.length];
+        int i = 0;
+        for (LightSource light : lights) {
+            PreparedLight p = new PreparedLight(light);
+            centers[3 * i] = p.x;
+            centers[3 * i + 1] = p.y;
+            centers[3 * i + 2] = p.z;
+            radii[i] = p.radius;
+            powers[i] = light.getPower();
+            prepared[i++] = p;
+        }
+        // The power distribution is needed only for sampling the lights
+        preparedLights = new PreparedLights(prepared, new LightIndex(centers, radii),
+                lightSamples == 0 || prepared.length == 0 ? null : new AliasTable(powers));
+    }
+
+    /**
+     * Returns the prepared data of the scene's light sources, preparing it on the first use if the
+     * ray tracer is used without a camera.
+     *
+     * @return the prepared lights
+     */
+    private PreparedLights preparedLights() {
+        PreparedLights prepared = preparedLights;
+        if (prepared == null) {
+            synchronized (this) {
+                if (preparedLights == null) {
+                    prepare();
+                }
+                prepared = preparedLights;
+            }
+        }
+        return prepared;
+    }
+
     @Override
     public Color traceRay(Ray ray) {
-        GeoPoint closestPoint = findClosestIntersection(ray);
+        GeoPoint closestPoint = findClosestIntersection(ray, singlePrecision);
         if (closestPoint == null) {
             return scene.getBackground();
         }
         return calcColor(closestPoint, ray);
     }
 
+    /**
+     * Traces the rays in packets of up to {@link RayPacket#MAX_SIZE} rays: the closest intersections of each
+     * packet are found together, and the colors are calculated for each ray on its own.
+     *
+     * @param rays the rays to be traced, all from a common head
+     * @return the colors resulting from tracing the rays, by the order of the rays
+     */
+    @Override
+    public Color[] traceRays(Ray[] rays) {
+        Color[] colors = new Color[rays.length];
+        HitRecord[] hits = packetRecords.get();
+        for (int start = 0; start < rays.length; start += RayPacket.MAX_SIZE) {
+            int size = Math.min(RayPacket.MAX_SIZE, rays.length - start);
+            RayPacket packet = new RayPacket(Arrays.copyOfRange(rays, start, start + size));
+            for (int i = 0; i < size; ++i) {
+                hits[i].reset(Double.POSITIVE_INFINITY);
+                hits[i].singlePrecision = singlePrecision;
+            }
+            scene.getGeometries().findClosestHits(packet, hits);
+            for (int i = 0; i < size; ++i) {
+                Ray ray = rays[start + i];
+                colors[start + i] = hits[i].geometry == null ? scene.getBackground()
+                        : calcColor(new GeoPoint(hits[i].geometry, hits[i].point), ray);
+            }
+        }
+        return colors;
+    }
+
     /**
      * Calculate the local effect of light sources on a point.
      *
@@ -96,22 +376,64 @@ public class SimpleRayTracer extends RayTracerBase {
         Double3 ks = intersection.geometry.getMaterial().getkS();
         Color color = Color.BLACK;
 
-        for (LightSource lightSource : scene.getLights()) {
-            Vector l = lightSource.getL(intersection.point);
-            double nl = alignZero(n.dotProduct(l));
-            if (nl * nv > 0) {
-                Double3 ktr = transparency(intersection, lightSource, l, n);
-                if (!ktr.product(INITIAL_K).lowerThan(MIN_CALC_COLOR_K)) {
-                    Color iL = lightSource.getIntensity(intersection.point).scale(ktr);
-                    color = color.add(
-                            calcDiffusive(kd, n, l, iL),
-                            calcSpecular(ks, l, n, v, nShininess, iL));
+        PreparedLights lights = preparedLights();
+        if (lightSamples > 0) {
+            if (lights.distribution == null) {
+                return color;
+            }
+            for (int k = 0; k < lightSamples; ++k) {
+                int index = lights.distribution.sample(random(0, 1));
+                double pdf = lights.distribution.pdf(index);
+                PreparedLight prepared = lights.lights[index];
+                if (pdf > 0 && prepared.reaches(intersection.point)) {
+                    color = color.add(calcLightEffect(intersection, prepared, n, v, nv, kd, ks, nShininess)
+                            .scale(1 / (lightSamples * pdf)));
                 }
             }
+            return color;
+        }
+
+        Double3 p = intersection.point.xyz;
+        for (int index : lights.index.candidates(p.d1, p.d2, p.d3)) {
+            PreparedLight prepared = lights.lights[index];
+            if (prepared.reaches(intersection.point)) {
+                color = color.add(calcLightEffect(intersection, prepared, n, v, nv, kd, ks, nShininess));
+            }
         }
         return color;
     }
 
+    /**
+     * Calculate the effect of a single light source on a point.
+     *
+     * @param intersection the intersection point.
+     * @param prepared     the prepared light source.
+     * @param n            the normal at the point.
+     * @param v            the direction of the viewer.
+     * @param nv           the dot product of the normal and the direction of the viewer.
+     * @param kd           the diffuse attenuation factor.
+     * @param ks           the specular attenuation factor.
+     * @param nShininess   the shininess factor of the material.
+     * @return the diffuse and specular color of the light at the point.
+     */
+    private Color calcLightEffect(GeoPoint intersection, PreparedLight prepared, Vector n, Vector v, double nv,
+                                  Double3 kd, Double3 ks, int nShininess) {
+        LightSource lightSource = prepared.light;
+        Vector l = lightSource.getL(intersection.point);
+        double nl = alignZero(n.dotProduct(l));
+        if (nl * nv <= 0) {
+            return Color.BLACK;
+        }
+        // The distance serves both the shadow rays and the attenuation of the light
+        double distance = lightSource.getDistance(intersection.point);
+        Double3 ktr = transparency(intersection, prepared, l, n, distance);
+        if (ktr.product(INITIAL_K).lowerThan(MIN_CALC_COLOR_K)) {
+            return Color.BLACK;
+        }
+        Color iL = lightSource.getIntensity(intersection.point, distance).scale(ktr);
+        return calcDiffusive(kd, n, l, iL).add(calcSpecular(ks, l, n, v, nShininess, iL));
+    }
+
     /**
      * Calculates the global effects (reflection and refraction) at a given intersection point.
      *
@@ -145,7 +467,7 @@ public class SimpleRayTracer extends RayTracerBase {
         if (kkx.lowerThan(MIN_CALC_COLOR_K)) {
             return Color.BLACK;
         }
-        GeoPoint gp = findClosestIntersection(ray);
+        GeoPoint gp = findClosestIntersection(ray, false);
         if (gp == null) {
             return scene.getBackground().scale(kx);
         }
@@ -178,7 +500,7 @@ public class SimpleRayTracer extends RayTracerBase {
      */
 
     private Color calcColor(GeoPoint gp, Ray ray) {
-        return calcColor(gp, ray, MAX_CALC_COLOR_LEVEL, INITIAL_K).add(scene.getAmbientLight().getIntensity());
+        return calcColor(gp, ray, maxLevel >> levelReduction, INITIAL_K).add(scene.getAmbientLight().getIntensity());
     }
 
     /**
@@ -211,8 +533,8 @@ public class SimpleRayTracer extends RayTracerBase {
 
     private Color calcSpecular(Double3 ks, Vector l, Vector n, Vector v, int nShininess, Color lightIntensity) {
         double nl = n.dotProduct(l);
-        Vector r = l.add(n.scale(-2 * nl));
-        double minusVR = -alignZero(r.dotProduct(v));
+        // r = l - 2(n.l)n, so r.v = l.v - 2(n.l)(n.v) without building the reflected vector
+        double minusVR = -alignZero(l.dotProduct(v) - 2 * nl * n.dotProduct(v));
         if (minusVR <= 0) {
             return Color.BLACK;
         }
@@ -223,16 +545,14 @@ public class SimpleRayTracer extends RayTracerBase {
     /**
      * Finds the closest intersection point of the ray with the geometry.
      *
-     * @param ray the ray.
+     * @param ray             the ray.
+     * @param singlePrecision whether the intersection may be searched in single precision.
      * @return the closest intersection point.
      */
-    private GeoPoint findClosestIntersection(Ray ray) {
-        List<GeoPoint> intersections = scene.getGeometries().findGeoIntersections(ray);
-        if (intersections == null || intersections.isEmpty()) {
-            return null;
-        } else {
-            return ray.findClosestGeoPoint(intersections);
-        }
+    private GeoPoint findClosestIntersection(Ray ray, boolean singlePrecision) {
+        HitRecord hit = hitRecord.get().reset(Double.POSITIVE_INFINITY);
+        hit.singlePrecision = singlePrecision;
+        return scene.getGeometries().findClosestHit(ray, hit) ? new GeoPoint(hit.geometry, hit.point) : null;
     }
 
     /**
@@ -270,94 +590,353 @@ public class SimpleRayTracer extends RayTracerBase {
 
     }
 
+    /**
+     * Constructs a shadow ray from a point, offset from the surface of the point - by the rounding error of
+     * single precision in the single precision mode, by a fixed distance otherwise.
+     *
+     * @param point     the point on the surface of the geometry
+     * @param direction the direction towards the light
+     * @param n         the normal at the point
+     * @return the shadow ray
+     */
+    private Ray constructShadowRay(Point point, Vector direction, Vector n) {
+        return singlePrecision ? new Ray(point, direction, n, Ray.SINGLE_PRECISION_ERROR)
+                : new Ray(point, direction, n);
+    }
+
     /**
      * Calculates the transparency factor for a given point, light source, and surface normal.
      * This method determines the transparency of the point by checking if there are any intersections
      * between the point and the light source, taking into account the transparency of the intersected geometries.
      *
      * @param gp The point on the surface of the geometry.
-     * @param light The light source illuminating the geometry.
+     * @param light The prepared light source illuminating the geometry.
      * @param l The direction from the point to the light source.
      * @param n The surface normal at the point.
+     * @param distance The distance from the point to the light source.
      * @return The transparency factor as a Double3 vector. If the transparency is negligible, it returns Double3.ZERO.
      */
-    private Double3 transparency(GeoPoint gp, LightSource light, Vector l, Vector n) {
+    private Double3 transparency(GeoPoint gp, PreparedLight light, Vector l, Vector n, double distance) {
         // Compute the direction from the point to the light source
         Vector lightDirection = l.scale(-1);
-        if(light.isSoftShadow()){
-            return this.softShadow(gp,light,lightDirection,n);
+        if (light.soft) {
+            return this.softShadow(gp, light, lightDirection, n);
         }
 
         // Create a shadow ray from the offset point to the light source
-        Ray lightRay = new Ray(gp.point, lightDirection, n);
+        Ray lightRay = constructShadowRay(gp.point, lightDirection, n);
 
-        // Get the maximum distance to the light source
-        double maxDistance = light.getDistance(gp.point);
+        // Multiply the transparency coefficients of the occluders, until the light is blocked
+        return occlusion(lightRay, distance, light.light);
 
-        // Find intersections between the shadow ray and geometries
-        List<GeoPoint> intersections = scene.getGeometries().findGeoIntersections(lightRay, maxDistance);
+    }
 
-        // Check if the intersections list is empty
-        if (intersections == null || intersections.isEmpty()) {
-            return Double3.ONE;
+    /**
+     * Calculates the transparency along a shadow ray towards a light source. Neighbouring points are
+     * usually blocked by the same geometry, so the geometry which blocked the last shadow ray of the thread
+     * towards the same light is tested first, and the whole scene is traversed only if it does not block
+     * the ray.
+     *
+     * @param shadowRay   the shadow ray
+     * @param maxDistance the distance to the light source
+     * @param light       the light source
+     * @return the transparency along the shadow ray
+     */
+    private Double3 occlusion(Ray shadowRay, double maxDistance, LightSource light) {
+        Map<LightSource, Geometry> occluders = lastOccluders.get();
+        Geometry occluder = occluders.get(light);
+        if (occluder != null) {
+            Double3 ktr = occluder.findTransparency(shadowRay, maxDistance, MIN_CALC_COLOR_K);
+            if (ktr.lowerThan(MIN_CALC_COLOR_K)) {
+                occluderCacheHits.increment();
+                return ktr;
+            }
+        }
+        occluderCacheMisses.increment();
+        HitRecord record = occluderRecord.get().reset(maxDistance);
+        record.singlePrecision = singlePrecision;
+        Double3 ktr = scene.getGeometries().findTransparency(shadowRay, maxDistance, MIN_CALC_COLOR_K, record);
+        if (record.geometry != null) {
+            occluders.put(light, record.geometry);
+        }
+        return ktr;
+    }
+    /**
+     * Calculates the soft shadow at a given geometry point caused by a light source.
+     * The area of the light faces the point, so its frame is built per point - from scalars, without
+     * temporary vectors - and the shadow rays go towards one of the light's pre-jittered sample patterns.
+     *
+     * @param gp             The geometric point where the shadow is calculated.
+     * @param light          The prepared light source casting the shadow.
+     * @param lightDirection The direction vector from the point to the light source.
+     * @param n              The normal vector at the geometric point.
+     * @return               The total transparency (shadow intensity) at the geometric point.
+     **/
+    private Double3 softShadow(GeoPoint gp, PreparedLight light, Vector lightDirection, Vector n) {
+        Double3 d = lightDirection.xyz;
+        // v_Up = d x (1,0,0), or d x (0,0,1) if the light is along the x axis
+        double[] up = isZero(d.d2) && isZero(d.d3)
+                ? new double[]{d.d2, -d.d1, 0}
+                : new double[]{0, d.d3, -d.d2};
+        VectorMath.normalize(up);
+        double[] right = VectorMath.cross(new double[]{d.d1, d.d2, d.d3}, up, new double[3]);
+        VectorMath.normalize(right);
+
+        if (adaptiveSoftShadow) {
+            return adaptiveSoftShadow(gp, light, n, right, up);
         }
 
-        Double3 ktr = Double3.ONE;
-
-        // Loop over the intersections and calculate transparency
-        for (GeoPoint intersection : intersections) {
-
-            // Multiply ktr by the transparency coefficient of the geometry
-            ktr= ktr.product( intersection.geometry.getMaterial().getkT()); // Multiply by kT of the geometry.
+        double[] pattern = light.patterns[(int) random(0, LIGHT_PATTERNS) % LIGHT_PATTERNS];
+        double cx = light.x, cy = light.y, cz = light.z;
+        Double3 totalTransparency = Double3.ZERO;
+        for (int k = 0; k < pattern.length; k += 2) {
+            double u = pattern[k], v = pattern[k + 1];
+            Point sample = new Point(cx + u * right[0] + v * up[0],
+                    cy + u * right[1] + v * up[1],
+                    cz + u * right[2] + v * up[2]);
+            totalTransparency = totalTransparency.add(lightSampleTransparency(gp, n, light.light, sample));
         }
 
-        return ktr;
+        return totalTransparency.reduce(pattern.length / 2);
+    }
 
+    /**
+     * Calculates the transparency between a point and a sample point on the area of a light source.
+     *
+     * @param gp     the geometric point where the shadow is calculated
+     * @param n      the normal vector at the geometric point
+     * @param light  the light source
+     * @param sample the sample point on the light
+     * @return the transparency along the shadow ray to the sample
+     */
+    private Double3 lightSampleTransparency(GeoPoint gp, Vector n, LightSource light, Point sample) {
+        Ray shadowRay = constructShadowRay(gp.point, sample.subtract(gp.point), n);
+        return occlusion(shadowRay, gp.point.distance(sample), light);
     }
-/**
- * Calculates the soft shadow at a given geometry point caused by a light source.
- *
- * @param gp             The geometric point where the shadow is calculated.
- * @param light          The light source casting the shadow.
- * @param lightDirection The direction vector from the point to the light source.
- * @param n              The normal vector at the geometric point.
- * @return               The total transparency (shadow intensity) at the geometric point.
- **/
-
-private Double3 softShadow(GeoPoint gp, LightSource light, Vector lightDirection, Vector n) {
-
-        paln_board board = new paln_board(light.getWidth_light(), light.getHeight_light(), Nx_of_light, Ny_of_light);
-        board.setCenter_board(light.getPosition());
-
-        Vector v_Right, v_Up;
-        if (lightDirection.equals(new Vector(1,0,0)) || lightDirection.equals(new Vector(-1,0,0))) {
-            v_Up = lightDirection.crossProduct(new Vector(0,0,1));
+
+    /**
+     * Calculates the soft shadow adaptively: the corners and the center of the light's area are sampled
+     * first, and an area is divided into quarters only when its samples disagree, down to the resolution
+     * of the light's sampling grid. Fully lit and fully shadowed points take 5 shadow rays per light,
+     * and the refinement is spent in the penumbra only.
+     *
+     * @param gp      the geometric point where the shadow is calculated
+     * @param light   the prepared light source casting the shadow
+     * @param n       the normal vector at the geometric point
+     * @param v_Right the horizontal direction of the light's area
+     * @param v_Up    the vertical direction of the light's area
+     * @return the total transparency at the geometric point
+     */
+    private Double3 adaptiveSoftShadow(GeoPoint gp, PreparedLight light, Vector n, double[] v_Right, double[] v_Up) {
+        // Refine until the cells are as small as the cells of the sampling grid
+        int depth = light.depth;
+        double width = light.width, height = light.height;
+        double u = -width / 2, v = -height / 2;
+        LightArea area = new LightArea(gp, n, light, v_Right, v_Up);
+        return area.refine(u, v, width, height,
+                area.sample(u, v), area.sample(u + width, v),
+                area.sample(u, v + height), area.sample(u + width, v + height), depth);
+    }
+
+    /**
+     * The sampling frame of an adaptive soft shadow calculation - the shaded point and the light's area.
+     */
+    private class LightArea {
+        /**
+         * The geometric point where the shadow is calculated.
+         */
+        private final GeoPoint gp;
+        /**
+         * The normal vector at the geometric point.
+         */
+        private final Vector n;
+        /**
+         * The light source.
+         */
+        private final PreparedLight light;
+        /**
+         * The horizontal direction of the light's area.
+         */
+        private final double[] v_Right;
+        /**
+         * The vertical direction of the light's area.
+         */
+        private final double[] v_Up;
+
+        /**
+         * Constructs the sampling frame.
+         *
+         * @param gp      the geometric point where the shadow is calculated
+         * @param n       the normal vector at the geometric point
+         * @param light   the prepared light source
+         * @param v_Right the horizontal direction of the light's area
+         * @param v_Up    the vertical direction of the light's area
+         */
+        private LightArea(GeoPoint gp, Vector n, PreparedLight light, double[] v_Right, double[] v_Up) {
+            this.gp = gp;
+            this.n = n;
+            this.light = light;
+            this.v_Right = v_Right;
+            this.v_Up = v_Up;
         }
-        else {
-            v_Up = lightDirection.crossProduct(new Vector(1,0,0));
+
+        /**
+         * Calculates the transparency towards a point of the light's area.
+         *
+         * @param u the horizontal offset of the point from the center of the area
+         * @param v the vertical offset of the point from the center of the area
+         * @return the transparency along the shadow ray to the point
+         */
+        private Double3 sample(double u, double v) {
+            Point sample = new Point(light.x + u * v_Right[0] + v * v_Up[0],
+                    light.y + u * v_Right[1] + v * v_Up[1],
+                    light.z + u * v_Right[2] + v * v_Up[2]);
+            return lightSampleTransparency(gp, n, light.light, sample);
         }
-        v_Right = lightDirection.crossProduct(v_Up);
 
-        List<Point> jitteredPoints = board.Jittered(v_Right, v_Up);
+        /**
+         * Calculates the average transparency towards a rectangle of the light's area, given the
+         * transparencies towards its corners.
+         *
+         * @param u     the horizontal offset of the rectangle's first corner
+         * @param v     the vertical offset of the rectangle's first corner
+         * @param w     the width of the rectangle
+         * @param h     the height of the rectangle
+         * @param k1    the transparency towards the corner (u, v)
+         * @param k2    the transparency towards the corner (u + w, v)
+         * @param k3    the transparency towards the corner (u, v + h)
+         * @param k4    the transparency towards the corner (u + w, v + h)
+         * @param depth the remaining refinement depth
+         * @return the average transparency towards the rectangle
+         */
+        private Double3 refine(double u, double v, double w, double h,
+                               Double3 k1, Double3 k2, Double3 k3, Double3 k4, int depth) {
+            double hw = w / 2, hh = h / 2;
+            Double3 kc = sample(u + hw, v + hh);
+            if (depth == 0 || (kc.equals(k1) && kc.equals(k2) && kc.equals(k3) && kc.equals(k4))) {
+                // The center stands for half of the area, the corners for the other half
+                return k1.add(k2).add(k3).add(k4).reduce(8).add(kc.reduce(2));
+            }
+            // The middles of the sides are shared by the quarters
+            Double3 top = sample(u + hw, v), bottom = sample(u + hw, v + h);
+            Double3 left = sample(u, v + hh), right = sample(u + w, v + hh);
+            return refine(u, v, hw, hh, k1, top, left, kc, depth - 1)
+                    .add(refine(u + hw, v, hw, hh, top, k2, kc, right, depth - 1))
+                    .add(refine(u, v + hh, hw, hh, left, kc, k3, bottom, depth - 1))
+                    .add(refine(u + hw, v + hh, hw, hh, kc, right, bottom, k4, depth - 1))
+                    .reduce(4);
+        }
+    }
 
-        Double3 totalTransparency = Double3.ZERO;
-        for (Point jitteredPoint : jitteredPoints) {
-            Ray shadowRay = new Ray(gp.point, jitteredPoint.subtract(gp.point), n);
-            double maxDistance = light.getDistance(jitteredPoint);
 
-            List<GeoPoint> intersections = scene.getGeometries().findGeoIntersections(shadowRay, maxDistance);
+    /**
+     * The prepared light sources of the scene, the spatial index over their influence and the distribution
+     * of their power.
+     *
+     * @param lights       the prepared light sources, in the order of the scene
+     * @param index        the index of the lights' influence
+     * @param distribution the power distribution of the lights, null if there are no lights or they are not sampled
+     */
+    private record PreparedLights(PreparedLight[] lights, LightIndex index, AliasTable distribution) {
+    }
 
-            Double3 ktr = Double3.ONE;
-            if (intersections != null) {
-                for (GeoPoint intersection : intersections) {
-                    ktr = ktr.product(intersection.geometry.getMaterial().getkT());
+    /**
+     * The data of a light source which does not change during the rendering of an image: the position and
+     * the dimensions of its area, its influence radius, and pre-jittered sample patterns on the area. Each pattern holds a
+     * (u, v) offset from the center of the area per cell of the light's sampling grid, jittered inside
+     * the cell as {@link paln_board#Jittered} does.
+     */
+    private final class PreparedLight {
+        /**
+         * The light source.
+         */
+        private final LightSource light;
+        /**
+         * Whether the light casts soft shadows.
+         */
+        private final boolean soft;
+        /**
+         * The position of the light, the center of its area (0 if the light has no position).
+         */
+        private final double x, y, z;
+        /**
+         * The distance beyond which the light is below the cutoff of the ray tracer.
+         */
+        private final double radius;
+        /**
+         * The dimensions of the light's area.
+         */
+        private final double width, height;
+        /**
+         * The refinement depth of the adaptive soft shadows.
+         */
+        private final int depth;
+        /**
+         * The pre-jittered sample patterns - 2 offsets (u, v) per sample, null for a light without soft shadows.
+         */
+        private final double[][] patterns;
+
+        /**
+         * Prepares the data of a light source for the current sampling settings of the ray tracer.
+         *
+         * @param light the light source
+         */
+        private PreparedLight(LightSource light) {
+            this.light = light;
+            Point position = light.getPosition();
+            this.radius = position == null ? Double.POSITIVE_INFINITY : light.getInfluenceRadius(lightCutoff);
+            if (position == null) {
+                x = y = z = 0;
+            } else {
+                x = position.xyz.d1;
+                y = position.xyz.d2;
+                z = position.xyz.d3;
+            }
+            this.soft = light.isSoftShadow();
+            if (!soft) {
+                width = height = 0;
+                depth = 0;
+                patterns = null;
+                return;
+            }
+            width = light.getWidth_light();
+            height = light.getHeight_light();
+            // The sampling grid, as reduced by the quality of the ray tracer
+            int nx = Math.max(1, Nx_of_light >> shadowReduction), ny = Math.max(1, Ny_of_light >> shadowReduction);
+            depth = 32 - Integer.numberOfLeadingZeros(Math.max(nx, ny) - 1);
+
+            double cellWidth = width / nx, cellHeight = height / ny;
+            double jitterX = ((width - 1) / nx) / 2, jitterY = ((height - 1) / ny) / 2;
+            patterns = new double[LIGHT_PATTERNS][];
+            for (int p = 0; p < LIGHT_PATTERNS; ++p) {
+                double[] pattern = new double[2 * nx * ny];
+                int k = 0;
+                for (int i = 0; i < nx; i++) {
+                    for (int j = 0; j < ny; j++) {
+                        pattern[k++] = (j - (nx - 1) / 2d) * cellWidth + random(-jitterX, jitterX);
+                        pattern[k++] = -(i - (ny - 1) / 2d) * cellHeight + random(-jitterY, jitterY);
+                    }
                 }
+                patterns[p] = pattern;
             }
-
-            totalTransparency = totalTransparency.add(ktr);
         }
 
-        return totalTransparency.reduce(Nx_of_light * Ny_of_light);
+        /**
+         * Indicates whether the light may contribute to a point - the point is within the influence radius
+         * and the light illuminates it at all.
+         *
+         * @param point the point
+         * @return true if the light may contribute to the point
+         */
+        private boolean reaches(Point point) {
+            if (radius != Double.POSITIVE_INFINITY) {
+                Double3 p = point.xyz;
+                double dx = p.d1 - x, dy = p.d2 - y, dz = p.d3 - z;
+                if (dx * dx + dy * dy + dz * dz > radius * radius) {
+                    return false;
+                }
+            }
+            return light.illuminates(point);
+        }
     }
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,65 @@
+package renderer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/** TileManager is a helper class for tile-based multi-threaded rendering.<br/>
+ * The image is divided into square tiles which are dealt in advance to a deque per
+ * rendering thread. Each thread takes tiles from the head of its own deque, and when it
+ * runs out of work it steals tiles from the tail of the other threads' deques, so all the
+ * threads stay busy until the last tile is done even when the cost per pixel is uneven.
+ * @author Isca Fitousi and Avital Orenstin
+ */
+class TileManager {
+    /**
+     * Immutable class for object containing allocated tile (with its first row and column
+     * and its size)
+     */
+    record Tile(int row, int col, int rows, int cols) {
+    }
+
+    /**
+     * The tiles dealt to each thread
+     */
+    private final List<ConcurrentLinkedDeque<Tile>> deques;
+
+    /**
+     * Initialize tile manager data for multi-threading
+     *
+     * @param maxRows  the amount of pixel rows
+     * @param maxCols  the amount of pixel columns
+     * @param tileSize the size (in pixels) of a tile edge
+     * @param threads  the amount of rendering threads
+     */
+    TileManager(int maxRows, int maxCols, int tileSize, int threads) {
+        deques = new ArrayList<>(threads);
+        for (int t = 0; t < threads; ++t)
+            deques.add(new ConcurrentLinkedDeque<>());
+
+        // Deal the tiles round-robin so that expensive regions are shared between threads
+        int next = 0;
+        for (int row = 0; row < maxRows; row += tileSize)
+            for (int col = 0; col < maxCols; col += tileSize) {
+                deques.get(next).addLast(
+                        new Tile(row, col, Math.min(tileSize, maxRows - row), Math.min(tileSize, maxCols - col)));
+                next = (next + 1) % threads;
+            }
+    }
+
+    /** Provides the next tile for a thread - from its own deque if possible, otherwise
+     * stolen from another thread's deque.
+     * @param thread the index of the requesting thread
+     * @return the next tile, or null if there are no more tiles
+     */
+    Tile nextTile(int thread) {
+        Tile tile = deques.get(thread).pollFirst();
+        if (tile != null) return tile;
+        int threads = deques.size();
+        for (int i = 1; i < threads; ++i) {
+            tile = deques.get((thread + i) % threads).pollLast();
+            if (tile != null) return tile;
+        }
+        return null;
+    }
+}
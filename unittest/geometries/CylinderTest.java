@@ -0,0 +1,74 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Unit tests for the geometries.Cylinder class.
+ *
+ * @author Isca Fitousi and Avital Orenstin
+ */
+class CylinderTest {
+
+    /**
+     * The cylinder of the tests: radius 1 around the z axis, between z = 0 and z = 2.
+     */
+    private final Cylinder cylinder = new Cylinder(new Ray(new Point(0, 0, 0), new Vector(0, 0, 1)), 1.0, 2.0);
+
+    /**
+     * Test method for {@link geometries.Cylinder#getNormal(primitives.Point)}.
+     */
+    @Test
+    void testGetNormal() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Point on the side
+        assertEquals(new Vector(1, 0, 0), cylinder.getNormal(new Point(1, 0, 1)), "Wrong normal on the side");
+        // TC02: Point on the bottom cap
+        assertEquals(new Vector(0, 0, -1), cylinder.getNormal(new Point(0.5, 0, 0)), "Wrong normal on the bottom");
+        // TC03: Point on the top cap
+        assertEquals(new Vector(0, 0, 1), cylinder.getNormal(new Point(0.5, 0, 2)), "Wrong normal on the top");
+    }
+
+    /**
+     * Test method for {@link geometries.Cylinder#findIntersections(primitives.Ray)}.
+     */
+    @Test
+    void testFindIntersections() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray crosses the side twice (2 points)
+        assertEquals(List.of(new Point(-1, 0, 1), new Point(1, 0, 1)),
+                cylinder.findIntersections(new Ray(new Point(-2, 0, 1), new Vector(1, 0, 0))),
+                "Wrong intersection points through the side");
+
+        // TC02: Ray enters through a cap and leaves through the side (2 points)
+        assertEquals(List.of(new Point(0.5, 0, 2), new Point(1, 0, 1.5)),
+                cylinder.findIntersections(new Ray(new Point(0, 0, 2.5), new Vector(1, 0, -1))),
+                "Wrong intersection points through a cap and the side");
+
+        // TC03: Ray along the axis crosses both caps (2 points)
+        assertEquals(List.of(new Point(0.5, 0, 0), new Point(0.5, 0, 2)),
+                cylinder.findIntersections(new Ray(new Point(0.5, 0, -1), new Vector(0, 0, 1))),
+                "Wrong intersection points through the caps");
+
+        // TC04: Ray crosses the infinite tube beyond the height (0 points)
+        assertNull(cylinder.findIntersections(new Ray(new Point(-2, 0, 3), new Vector(1, 0, 0))),
+                "Ray above the cylinder");
+
+        // TC05: Ray starts inside the cylinder (1 point)
+        assertEquals(List.of(new Point(1, 0, 1)),
+                cylinder.findIntersections(new Ray(new Point(0, 0, 1), new Vector(1, 0, 0))),
+                "Wrong intersection point from inside");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: Cylinder beyond the maximal distance (1 point)
+        assertEquals(1, cylinder.findGeoIntersections(new Ray(new Point(-2, 0, 1), new Vector(1, 0, 0)), 2).size(),
+                "Wrong number of points within the maximal distance");
+    }
+}
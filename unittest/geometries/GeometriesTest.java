@@ -1,14 +1,21 @@
 package geometries;
 
 import org.junit.jupiter.api.Test;
+import primitives.Double3;
+import primitives.Material;
 import primitives.Point;
 import primitives.Ray;
+import primitives.RayPacket;
 import primitives.Vector;
 
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class GeometriesTest {
 
@@ -86,4 +93,240 @@ class GeometriesTest {
                 "All geometries are cut");
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void testBuildBVH() {
+        Geometries flat = new Geometries();
+        Geometries bvh = new Geometries();
+        for (int i = 0; i < 10; i++) {
+            Sphere sphere = new Sphere(new Point(3 * i, 0, -10), 1d);
+            Triangle triangle = new Triangle(
+                    new Point(3 * i - 1, 5, -5),
+                    new Point(3 * i + 1, 5, -5),
+                    new Point(3 * i, 7, -5));
+            flat.add(sphere, triangle);
+            bvh.add(sphere, triangle);
+        }
+        Plane plane = new Plane(new Point(0, 0, -20), new Vector(0, 0, 1));
+        flat.add(plane);
+        bvh.add(plane);
+        bvh.buildBVH();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray through a sphere of the hierarchy and the plane (3 points)
+        Ray ray1 = new Ray(new Point(12, 0, 10), new Vector(0, 0, -1));
+        assertEquals(flat.findIntersections(ray1).size(), bvh.findIntersections(ray1).size(),
+                "BVH changed the intersections with a sphere");
+        assertEquals(3, bvh.findIntersections(ray1).size(), "Wrong number of points");
+
+        // TC02: Ray through a triangle of the hierarchy and the plane (2 points)
+        Ray ray2 = new Ray(new Point(21, 5.5, 10), new Vector(0, 0, -1));
+        assertEquals(2, bvh.findIntersections(ray2).size(), "Wrong number of points");
+
+        // TC03: Ray that misses the hierarchy and the plane (0 points)
+        assertNull(bvh.findIntersections(new Ray(new Point(12, 0, 10), new Vector(0, 0, 1))),
+                "Ray misses all the geometries");
+
+        // =============== Boundary Values Tests ==================
+        // TC04: Ray that misses the hierarchy but cuts the plane (1 point)
+        assertEquals(1, bvh.findIntersections(new Ray(new Point(-50, 50, 10), new Vector(0, 0, -1))).size(),
+                "Only the unbounded plane is cut");
+
+        // TC05: Statistics of the hierarchy over the 20 bounded geometries
+        BVHStats stats = bvh.getBVHStats();
+        assertEquals(20, stats.leaves() * stats.averageLeafSize(), 1e-9, "The leaves must hold all the geometries");
+        assertNull(flat.getBVHStats(), "No statistics without a hierarchy");
+
+        // TC06: Building the hierarchy again keeps all the geometries
+        bvh.buildBVH();
+        assertEquals(3, bvh.findIntersections(ray1).size(), "Rebuilding the BVH lost geometries");
+        assertEquals(20, bvh.getBVHStats().leaves() * bvh.getBVHStats().averageLeafSize(), 1e-9,
+                "Rebuilding the BVH lost geometries");
+    }
+
+    @Test
+    void testFindClosestHit() {
+        Sphere sphere = new Sphere(new Point(0, 0, -10), 2d);
+        Triangle triangle = new Triangle(
+                new Point(-5, -5, -5),
+                new Point(5, -5, -5),
+                new Point(0, 5, -5));
+        Plane plane = new Plane(new Point(0, 0, -20), new Vector(0, 0, 1));
+        Geometries geometries = new Geometries(plane, sphere, triangle);
+        Intersectable.HitRecord hit = new Intersectable.HitRecord();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray cuts all the geometries - the triangle is the closest
+        Ray ray1 = new Ray(new Point(0, 0, 10), new Vector(0, 0, -1));
+        assertTrue(geometries.findClosestHit(ray1, hit.reset(Double.POSITIVE_INFINITY)), "Closest hit not found");
+        assertEquals(triangle, hit.geometry, "Wrong closest geometry");
+        assertEquals(new Point(0, 0, -5), hit.point, "Wrong closest point");
+        assertEquals(ray1.findClosestGeoPoint(geometries.findGeoIntersections(ray1)).point, hit.point,
+                "Closest hit differs from the closest point of all the intersections");
+
+        // TC02: Ray starts between the triangle and the sphere - the sphere is the closest
+        Ray ray2 = new Ray(new Point(0, 0, -6), new Vector(0, 0, -1));
+        assertTrue(geometries.findClosestHit(ray2, hit.reset(Double.POSITIVE_INFINITY)), "Closest hit not found");
+        assertEquals(sphere, hit.geometry, "Wrong closest geometry");
+        assertEquals(new Point(0, 0, -8), hit.point, "Wrong closest point");
+
+        // TC03: Ray misses all the geometries
+        assertFalse(geometries.findClosestHit(new Ray(new Point(0, 0, 10), new Vector(0, 0, 1)),
+                hit.reset(Double.POSITIVE_INFINITY)), "Ray misses all the geometries");
+        assertNull(hit.geometry, "No geometry expected");
+
+        // =============== Boundary Values Tests ==================
+        // TC04: All the intersections are beyond the maximal distance
+        assertFalse(geometries.findClosestHit(ray1, hit.reset(10)), "Intersections beyond the maximal distance");
+    }
+
+    @Test
+    void testFindTransparency() {
+        Sphere glass = new Sphere(new Point(0, 0, -10), 2d);
+        glass.setMaterial(new Material().setkT(0.5));
+        Sphere opaque = new Sphere(new Point(0, 0, -20), 2d);
+        Geometries geometries = new Geometries(glass, opaque);
+        Ray ray = new Ray(new Point(0, 0, 10), new Vector(0, 0, -1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Shadow ray through the transparent sphere only (both its points)
+        assertEquals(new Double3(0.25), geometries.findTransparency(ray, 25, 0.001),
+                "Wrong transparency through a transparent sphere");
+
+        // TC02: Shadow ray blocked by the opaque sphere
+        assertTrue(geometries.findTransparency(ray, 100, 0.001).lowerThan(0.001),
+                "Shadow ray should be blocked by the opaque sphere");
+
+        // TC03: The blocking geometry is reported
+        Intersectable.HitRecord occluder = new Intersectable.HitRecord();
+        geometries.findTransparency(ray, 100, 0.001, occluder);
+        assertSame(opaque, occluder.geometry, "Wrong occluder");
+
+        // =============== Boundary Values Tests ==================
+        // TC04: All the geometries are beyond the maximal distance
+        assertEquals(Double3.ONE, geometries.findTransparency(ray, 5, 0.001),
+                "Geometries beyond the light should not cast shadow");
+
+        // TC05: No occluder is reported for a shadow ray which is not blocked
+        occluder.reset(25);
+        geometries.findTransparency(ray, 25, 0.001, occluder);
+        assertNull(occluder.geometry, "A transparent geometry was reported as an occluder");
+    }
+
+    @Test
+    void testBuildGrid() {
+        // A block of transparent spheres of random sizes, some of them overlapping several cells
+        Random random = new Random(11);
+        Geometries flat = new Geometries();
+        Geometries grid = new Geometries();
+        for (int i = 0; i < 300; i++) {
+            Sphere sphere = new Sphere(new Point(random.nextDouble() * 40, random.nextDouble() * 40,
+                    random.nextDouble() * -40), 0.5 + random.nextDouble() * 2);
+            sphere.setMaterial(new Material().setkT(0.9));
+            flat.add(sphere);
+            grid.add(sphere);
+        }
+        Plane plane = new Plane(new Point(0, 0, -60), new Vector(0, 0, 1));
+        flat.add(plane);
+        grid.add(plane);
+        grid.buildGrid();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The grid finds the same closest hits, intersections and transparencies as the linear search
+        Intersectable.HitRecord flatHit = new Intersectable.HitRecord();
+        Intersectable.HitRecord gridHit = new Intersectable.HitRecord();
+        for (int i = 0; i < 300; i++) {
+            Ray ray = new Ray(new Point(random.nextDouble() * 40, random.nextDouble() * 40, 10),
+                    new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, -1));
+            boolean found = grid.findClosestHit(ray, gridHit.reset(Double.POSITIVE_INFINITY));
+            assertEquals(flat.findClosestHit(ray, flatHit.reset(Double.POSITIVE_INFINITY)), found,
+                    "The grid and the linear search disagree on a hit");
+            if (found) {
+                assertSame(flatHit.geometry, gridHit.geometry, "Wrong closest geometry");
+                assertEquals(flatHit.t, gridHit.t, 1e-9, "Wrong closest distance");
+            }
+            List<Point> expected = flat.findIntersections(ray);
+            List<Point> result = grid.findIntersections(ray);
+            assertEquals(expected == null ? 0 : expected.size(), result == null ? 0 : result.size(),
+                    "A geometry in several cells must be intersected once");
+            Double3 ktr = grid.findTransparency(ray, 40, 0.001);
+            assertEquals(flat.findTransparency(ray, 40, 0.001).d1, ktr.d1, 1e-9, "Wrong transparency");
+        }
+        assertNull(grid.getBVHStats(), "A grid has no hierarchy statistics");
+
+        // =============== Boundary Values Tests ==================
+        // TC02: Ray along an axis, starting inside the grid
+        Ray ray = new Ray(new Point(20, 20, -20), new Vector(0, 0, -1));
+        assertEquals(flat.findClosestHit(ray, flatHit.reset(Double.POSITIVE_INFINITY)),
+                grid.findClosestHit(ray, gridHit.reset(Double.POSITIVE_INFINITY)), "Wrong hit along an axis");
+        assertSame(flatHit.geometry, gridHit.geometry, "Wrong closest geometry along an axis");
+
+        // TC03: A flat grid of triangles on a single plane
+        Geometries triangles = new Geometries();
+        for (int i = 0; i < 10; i++)
+            triangles.add(new Triangle(new Point(i, 0, 0), new Point(i + 1, 0, 0), new Point(i, 1, 0)));
+        triangles.buildGrid();
+        assertTrue(triangles.findClosestHit(new Ray(new Point(5.2, 0.3, 1), new Vector(0, 0, -1)),
+                gridHit.reset(Double.POSITIVE_INFINITY)), "Ray must hit a triangle of a flat grid");
+        assertEquals(1, gridHit.t, 1e-9, "Wrong distance to a triangle of a flat grid");
+    }
+
+    @Test
+    void testFindClosestHits() {
+        // Spheres and triangles in front of a plane, organized by a hierarchy, a grid and not at all
+        Random random = new Random(21);
+        Geometries flat = new Geometries();
+        Geometries bvh = new Geometries();
+        Geometries grid = new Geometries();
+        for (int i = 0; i < 100; i++) {
+            Point center = new Point(random.nextDouble() * 20 - 10, random.nextDouble() * 20 - 10,
+                    random.nextDouble() * -20 - 5);
+            Intersectable geometry = i % 2 == 0 ? new Sphere(center, 0.3 + random.nextDouble())
+                    : new Triangle(center, center.add(new Vector(1.5, 0.2, 0.3)), center.add(new Vector(0.1, 1.5, -0.4)));
+            flat.add(geometry);
+            bvh.add(geometry);
+            grid.add(geometry);
+        }
+        Plane plane = new Plane(new Point(0, 0, -30), new Vector(0, 0.1, 1));
+        flat.add(plane);
+        bvh.add(plane);
+        grid.add(plane);
+        bvh.buildBVH();
+        grid.buildGrid();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Packets of neighbouring rays find the same closest hits as the rays one by one
+        Intersectable.HitRecord expected = new Intersectable.HitRecord();
+        Intersectable.HitRecord[] hits = new Intersectable.HitRecord[RayPacket.MAX_SIZE];
+        for (int i = 0; i < hits.length; i++) hits[i] = new Intersectable.HitRecord();
+        Point head = new Point(0, 0, 10);
+        for (int p = 0; p < 50; p++) {
+            double x = random.nextDouble() - 0.5, y = random.nextDouble() - 0.5;
+            Ray[] rays = new Ray[RayPacket.MAX_SIZE];
+            for (int i = 0; i < rays.length; i++)
+                rays[i] = new Ray(head, new Vector(x + random.nextDouble() * 0.05, y + random.nextDouble() * 0.05, -1));
+            RayPacket packet = new RayPacket(rays);
+            for (Geometries geometries : List.of(flat, bvh, grid)) {
+                for (Intersectable.HitRecord hit : hits) hit.reset(Double.POSITIVE_INFINITY);
+                geometries.findClosestHits(packet, hits);
+                for (int i = 0; i < rays.length; i++) {
+                    boolean found = flat.findClosestHit(rays[i], expected.reset(Double.POSITIVE_INFINITY));
+                    assertSame(found ? expected.geometry : null, hits[i].geometry, "Wrong closest geometry");
+                    assertEquals(expected.point, hits[i].point, "Wrong closest point");
+                }
+            }
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC02: A packet which misses all the bounded geometries hits the plane only
+        Ray[] rays = {new Ray(head, new Vector(5, 5, -1)), new Ray(head, new Vector(5.1, 5, -1))};
+        for (Intersectable.HitRecord hit : hits) hit.reset(Double.POSITIVE_INFINITY);
+        assertTrue(bvh.findClosestHits(new RayPacket(rays), hits), "The packet must hit the plane");
+        assertSame(plane, hits[0].geometry, "Wrong closest geometry");
+        assertSame(plane, hits[1].geometry, "Wrong closest geometry");
+
+        // TC03: All the intersections are beyond the maximal distances
+        for (Intersectable.HitRecord hit : hits) hit.reset(1);
+        assertFalse(bvh.findClosestHits(new RayPacket(rays), hits), "Intersections beyond the maximal distance");
+    }
+}
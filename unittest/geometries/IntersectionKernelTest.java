@@ -0,0 +1,155 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Vector;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link IntersectionKernel}.
+ */
+class IntersectionKernelTest {
+
+    /**
+     * Builds random triangles around the origin, each of its own vertices, in a single list.
+     *
+     * @param random  the random generator
+     * @param count   the amount of triangles
+     * @param padding the padding of the arrays
+     * @return the triangles
+     */
+    private static TriangleArrays randomTriangles(Random random, int count, int padding) {
+        double[] vertices = new double[9 * count];
+        int[] indices = new int[3 * count];
+        int[] order = new int[count];
+        for (int i = 0; i < vertices.length; ++i) vertices[i] = random.nextDouble() * 10 - 5;
+        for (int i = 0; i < indices.length; ++i) indices[i] = i;
+        for (int i = 0; i < count; ++i) order[i] = i;
+        return new TriangleArrays(vertices, indices, order, padding);
+    }
+
+    /**
+     * Checks that a kernel gives the distances of {@link Triangle#intersect} for a run of triangles.
+     *
+     * @param kernel      the kernel
+     * @param triangles   the triangles
+     * @param start       the first triangle of the run
+     * @param count       the amount of triangles in the run
+     * @param o           the head of the ray
+     * @param d           the direction of the ray
+     * @param maxDistance the maximal distance
+     */
+    private static void assertKernel(IntersectionKernel kernel, TriangleArrays triangles, int start, int count,
+                                     Double3 o, Double3 d, double maxDistance) {
+        double[] distances = new double[count + kernel.lanes()];
+        kernel.intersectTriangles(triangles, start, count, o, d, maxDistance, distances);
+        for (int i = 0; i < count; ++i) {
+            int k = start + i;
+            double expected = Triangle.intersect(o, d, triangles.p0x[k], triangles.p0y[k], triangles.p0z[k],
+                    triangles.e1x[k], triangles.e1y[k], triangles.e1z[k],
+                    triangles.e2x[k], triangles.e2y[k], triangles.e2z[k], maxDistance, null);
+            assertEquals(expected, distances[i], 0, kernel + " kernel differs from the scalar test");
+        }
+    }
+
+    /**
+     * Test method for
+     * {@link IntersectionKernel#intersectTriangles(TriangleArrays, int, int, Double3, Double3, double, double[])}.
+     */
+    @Test
+    void testIntersectTriangles() {
+        Random random = new Random(22);
+        int count = 200;
+        int padding = IntersectionKernel.INSTANCE.lanes();
+        TriangleArrays triangles = randomTriangles(random, count, padding);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Random rays against runs of all the lengths of a leaf, with the kernel of the JVM and the scalar one
+        for (int r = 0; r < 500; ++r) {
+            Double3 o = new Point(random.nextDouble() * 20 - 10, random.nextDouble() * 20 - 10, 10).xyz;
+            Double3 d = new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, -1).normalize().xyz;
+            int start = random.nextInt(count - 8);
+            int length = 1 + random.nextInt(8);
+            double maxDistance = r % 2 == 0 ? Double.POSITIVE_INFINITY : 5 + random.nextDouble() * 10;
+            assertKernel(IntersectionKernel.INSTANCE, triangles, start, length, o, d, maxDistance);
+            assertKernel(IntersectionKernel.SCALAR, triangles, start, length, o, d, maxDistance);
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC02: A ray parallel to a triangle, a ray through its vertex and a ray through its edge
+        TriangleArrays flat = new TriangleArrays(new double[]{0, 0, 0, 2, 0, 0, 0, 2, 0}, new int[]{0, 1, 2},
+                new int[]{0}, padding);
+        Double3 o = new Point(1, 1, 1).xyz;
+        assertKernel(IntersectionKernel.INSTANCE, flat, 0, 1, new Point(-1, 0.5, 0).xyz,
+                new Vector(1, 0, 0).xyz, Double.POSITIVE_INFINITY);
+        assertKernel(IntersectionKernel.INSTANCE, flat, 0, 1, o, new Vector(-1, -1, -1).normalize().xyz,
+                Double.POSITIVE_INFINITY);
+        assertKernel(IntersectionKernel.INSTANCE, flat, 0, 1, o, new Vector(0, -1, -1).normalize().xyz,
+                Double.POSITIVE_INFINITY);
+
+        // TC03: The triangle is exactly at the maximal distance
+        assertKernel(IntersectionKernel.INSTANCE, flat, 0, 1, new Point(0.5, 0.5, 1).xyz,
+                new Vector(0, 0, -1).xyz, 1);
+    }
+
+    /**
+     * Test method for
+     * {@link IntersectionKernel#intersectTriangles(FloatTriangleArrays, int, int, float, float, float, float, float,
+     * float, float, float, float[])}.
+     */
+    @Test
+    void testIntersectTrianglesSingle() {
+        Random random = new Random(23);
+        int count = 200;
+        int lanes = IntersectionKernel.INSTANCE.lanes();
+        TriangleArrays triangles = randomTriangles(random, count, lanes);
+        FloatTriangleArrays single = new FloatTriangleArrays(triangles);
+        float[] distances = new float[8 + lanes];
+        float error = IntersectionKernel.singleError(10);
+        int hits = 0;
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The kernel of the JVM gives the distances of the scalar test, and every hit of the double
+        // precision test is a hit of the single precision test, at nearly the same distance
+        for (int r = 0; r < 500; ++r) {
+            Double3 o = new Point(random.nextDouble() * 20 - 10, random.nextDouble() * 20 - 10, 10).xyz;
+            Double3 d = new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, -1).normalize().xyz;
+            int start = random.nextInt(count - 8);
+            int length = 1 + random.nextInt(8);
+            IntersectionKernel.INSTANCE.intersectTriangles(single, start, length, (float) o.d1, (float) o.d2,
+                    (float) o.d3, (float) d.d1, (float) d.d2, (float) d.d3, Float.POSITIVE_INFINITY, error, distances);
+            for (int i = 0; i < length; ++i) {
+                int k = start + i;
+                float expected = IntersectionKernel.intersect(single, k, (float) o.d1, (float) o.d2, (float) o.d3,
+                        (float) d.d1, (float) d.d2, (float) d.d3, Float.POSITIVE_INFINITY, error);
+                assertEquals(expected, distances[i], 0, "The kernel differs from the scalar single precision test");
+                double t = Triangle.intersect(o, d, triangles.p0x[k], triangles.p0y[k], triangles.p0z[k],
+                        triangles.e1x[k], triangles.e1y[k], triangles.e1z[k],
+                        triangles.e2x[k], triangles.e2y[k], triangles.e2z[k], Double.POSITIVE_INFINITY, null);
+                if (t > 0) {
+                    ++hits;
+                    assertEquals(t, distances[i], 1e-4, "The single precision test misses a hit");
+                }
+            }
+        }
+        assertTrue(hits > 0, "The test rays should hit the triangles");
+
+        // =============== Boundary Values Tests ==================
+        // TC02: A ray through the vertex of a triangle hits it, a ray parallel to the triangle does not
+        FloatTriangleArrays flat = new FloatTriangleArrays(new TriangleArrays(new double[]{0, 0, 0, 2, 0, 0, 0, 2, 0},
+                new int[]{0, 1, 2}, new int[]{0}, lanes));
+        assertEquals(1, IntersectionKernel.intersect(flat, 0, 0, 0, 1, 0, 0, -1, Float.POSITIVE_INFINITY, error), 0,
+                "Missed the vertex of the triangle");
+        assertEquals(0, IntersectionKernel.intersect(flat, 0, -1, 0.5f, 0, 1, 0, 0, Float.POSITIVE_INFINITY, error), 0,
+                "Hit a parallel triangle");
+
+        // TC03: The triangle is exactly at the maximal distance
+        assertEquals(1, IntersectionKernel.intersect(flat, 0, 0.5f, 0.5f, 1, 0, 0, -1, 1, error), 0,
+                "Missed the triangle at the maximal distance");
+    }
+}
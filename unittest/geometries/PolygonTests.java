@@ -2,8 +2,11 @@ package geometries;
 
 import org.junit.jupiter.api.Test;
 import primitives.Point;
+import primitives.Ray;
 import primitives.Vector;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -115,4 +118,45 @@ public class PolygonTests {
                     "Polygon's normal is not orthogonal to one of the edges");
     }
 
+    /**
+     * Test method for {@link geometries.Polygon#findIntersections(primitives.Ray)}.
+     */
+    @Test
+    public void testFindIntersections() {
+        Polygon square = new Polygon(
+                new Point(0, 0, 0),
+                new Point(2, 0, 0),
+                new Point(2, 2, 0),
+                new Point(0, 2, 0));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray hits inside the polygon (1 point)
+        List<Point> result = square.findIntersections(new Ray(new Point(1.5, 0.5, 2), new Vector(0, 0, -1)));
+        assertEquals(List.of(new Point(1.5, 0.5, 0)), result, "Wrong intersection point");
+
+        // TC02: Ray hits the plane outside against an edge (0 points)
+        assertNull(square.findIntersections(new Ray(new Point(3, 1, 2), new Vector(0, 0, -1))),
+                "Point outside against edge");
+
+        // TC03: Ray hits the plane outside against a vertex (0 points)
+        assertNull(square.findIntersections(new Ray(new Point(3, 3, 2), new Vector(0, 0, -1))),
+                "Point outside against vertex");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: Point on an edge (0 points)
+        assertNull(square.findIntersections(new Ray(new Point(1, 0, 2), new Vector(0, 0, -1))),
+                "Point on edge");
+
+        // TC11: Point in a vertex (0 points)
+        assertNull(square.findIntersections(new Ray(new Point(2, 2, 2), new Vector(0, 0, -1))),
+                "Point in vertex");
+
+        // TC12: Point on an edge's continuation (0 points)
+        assertNull(square.findIntersections(new Ray(new Point(3, 0, 2), new Vector(0, 0, -1))),
+                "Point on edge's continuation");
+
+        // TC13: Polygon beyond the maximal distance (0 points)
+        assertNull(square.findGeoIntersections(new Ray(new Point(1, 1, 2), new Vector(0, 0, -1)), 1),
+                "Intersection beyond the maximal distance");
+    }
 }
@@ -252,5 +252,31 @@ class SphereTest {
 
 
 
+    }
+
+    /**
+     * Test method for {@link geometries.Sphere#findGeoIntersections(primitives.Ray, double)}.
+     */
+    @Test
+    void testFindGeoIntersectionsWithMaxDistance() {
+        Sphere sphere = new Sphere(new Point(1, 0, 0), 1d);
+        Ray ray = new Ray(new Point(-2, 0, 0), new Vector(1, 0, 0));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Both points before the maximal distance (2 points)
+        assertEquals(2, sphere.findGeoIntersections(ray, 10).size(), "Wrong number of points");
+
+        // TC02: Only the closer point before the maximal distance (1 point)
+        List<Intersectable.GeoPoint> result = sphere.findGeoIntersections(ray, 3);
+        assertEquals(1, result.size(), "Wrong number of points");
+        assertEquals(new Point(0, 0, 0), result.getFirst().point, "Wrong point before the maximal distance");
+
+        // TC03: Both points beyond the maximal distance (0 points)
+        assertNull(sphere.findGeoIntersections(ray, 1), "Points beyond the maximal distance");
+
+        // =============== Boundary Values Tests ==================
+        // TC04: Ray starts at the center, the sphere is beyond the maximal distance (0 points)
+        assertNull(sphere.findGeoIntersections(new Ray(new Point(1, 0, 0), new Vector(1, 0, 0)), 0.5),
+                "Point beyond the maximal distance");
     }
 }
@@ -0,0 +1,280 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Double3;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TriangleMeshTest {
+
+    /**
+     * Builds a grid of size x size squares on the plane z = 0, between (0,0) and (size,size),
+     * each square made of two triangles.
+     *
+     * @param size the amount of squares along each side
+     * @return the grid mesh
+     */
+    private static TriangleMesh grid(int size) {
+        double[] vertices = new double[3 * (size + 1) * (size + 1)];
+        for (int i = 0; i <= size; ++i)
+            for (int j = 0; j <= size; ++j) {
+                int v = 3 * (i * (size + 1) + j);
+                vertices[v] = i;
+                vertices[v + 1] = j;
+            }
+        int[] indices = new int[6 * size * size];
+        int k = 0;
+        for (int i = 0; i < size; ++i)
+            for (int j = 0; j < size; ++j) {
+                int a = i * (size + 1) + j, b = a + 1, c = a + size + 1, d = c + 1;
+                indices[k++] = a;
+                indices[k++] = c;
+                indices[k++] = b;
+                indices[k++] = b;
+                indices[k++] = c;
+                indices[k++] = d;
+            }
+        return new TriangleMesh(vertices, indices);
+    }
+
+    @Test
+    void testConstructor() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Correct mesh
+        TriangleMesh mesh = grid(4);
+        assertEquals(32, mesh.getTriangleCount(), "Wrong amount of triangles");
+        BoundingBox box = mesh.getBoundingBox();
+        assertEquals(0, box.minX, "Wrong bounding box");
+        assertEquals(4, box.maxY, "Wrong bounding box");
+
+        // TC02: Indices array which is not made of triangles
+        assertThrows(IllegalArgumentException.class,
+                () -> new TriangleMesh(new double[]{0, 0, 0, 1, 0, 0, 0, 1, 0}, new int[]{0, 1}),
+                "Constructed a mesh with a partial triangle");
+
+        // TC03: Index out of range
+        assertThrows(IllegalArgumentException.class,
+                () -> new TriangleMesh(new double[]{0, 0, 0, 1, 0, 0, 0, 1, 0}, new int[]{0, 1, 3}),
+                "Constructed a mesh with an index out of range");
+    }
+
+    @Test
+    void testGetNormal() {
+        // The corner of a cube: a face on each of the planes z = 0, x = 0 and y = 0
+        TriangleMesh corner = new TriangleMesh(new double[]{0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0, 1},
+                new int[]{0, 1, 2, 0, 2, 3, 0, 3, 1});
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A point inside each face gets the normal of its face
+        assertEquals(new Vector(0, 0, 1), corner.getNormal(new Point(0.2, 0.3, 0)), "Wrong normal of the face z = 0");
+        assertEquals(new Vector(1, 0, 0), corner.getNormal(new Point(0, 0.2, 0.3)), "Wrong normal of the face x = 0");
+        assertEquals(new Vector(0, 1, 0), corner.getNormal(new Point(0.3, 0, 0.2)), "Wrong normal of the face y = 0");
+
+        // TC02: A point near the mesh gets the normal of the nearest face
+        assertEquals(new Vector(0, 0, 1), corner.getNormal(new Point(0.2, 0.3, 0.01)), "Wrong normal near a face");
+        assertEquals(new Vector(0, 0, 1), corner.getNormal(new Point(5, 5, 0)), "Wrong normal beyond an edge");
+
+        // TC03: The normal of the mesh is the normal of the face of an intersection
+        TriangleMesh mesh = grid(64);
+        Point point = new Point(40.3, 17.6, 0);
+        Ray ray = new Ray(new Point(40.3, 17.6, 1), new Vector(0, 0, -1));
+        Intersectable.GeoPoint hit = mesh.findGeoIntersections(ray).get(0);
+        assertEquals(hit.geometry.getNormal(point), mesh.getNormal(point), "Wrong normal of a large mesh");
+
+        // =============== Boundary Values Tests ==================
+        // TC04: A point on an edge between two faces gets the normal of one of them
+        Vector normal = corner.getNormal(new Point(0, 0.5, 0));
+        assertTrue(normal.equals(new Vector(0, 0, 1)) || normal.equals(new Vector(1, 0, 0)),
+                "Wrong normal on an edge");
+    }
+
+    @Test
+    void testFindIntersections() {
+        TriangleMesh mesh = grid(8);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray hits a face of the mesh (1 point)
+        Ray ray = new Ray(new Point(2.3, 5.6, 1), new Vector(0, 0, -1));
+        List<Intersectable.GeoPoint> result = mesh.findGeoIntersections(ray);
+        assertEquals(1, result.size(), "Wrong number of points");
+        assertEquals(new Point(2.3, 5.6, 0), result.getFirst().point, "Wrong intersection point");
+        assertEquals(new Vector(0, 0, 1), result.getFirst().geometry.getNormal(result.getFirst().point).normalize(),
+                "Wrong normal of the face");
+
+        // TC02: Ray misses the mesh (0 points)
+        assertNull(mesh.findIntersections(new Ray(new Point(9, 5, 1), new Vector(0, 0, -1))),
+                "Ray outside the mesh");
+
+        // TC03: Ray starts after the mesh (0 points)
+        assertNull(mesh.findIntersections(new Ray(new Point(2.3, 5.6, -1), new Vector(0, 0, -1))),
+                "Ray starts after the mesh");
+
+        // TC04: The faces take the material of the mesh
+        Material material = new Material().setKd(0.3);
+        mesh.setMaterial(material);
+        assertSame(material, mesh.findGeoIntersections(ray).getFirst().geometry.getMaterial(),
+                "The face does not take the material of the mesh");
+
+        // =============== Boundary Values Tests ==================
+        // TC05: Ray beyond the maximal distance (0 points)
+        assertNull(mesh.findGeoIntersections(ray, 0.5), "Intersection beyond the maximal distance");
+    }
+
+    @Test
+    void testSameAsTriangles() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The mesh finds the same closest hits as the separate triangles of a random soup
+        Random random = new Random(7);
+        int count = 200;
+        double[] vertices = new double[9 * count];
+        int[] indices = new int[3 * count];
+        Geometries triangles = new Geometries();
+        for (int tri = 0; tri < count; ++tri) {
+            double cx = random.nextDouble() * 20 - 10, cy = random.nextDouble() * 20 - 10, cz = random.nextDouble() * 20 - 10;
+            Point[] points = new Point[3];
+            for (int v = 0; v < 3; ++v) {
+                int i = 9 * tri + 3 * v;
+                vertices[i] = cx + random.nextDouble() * 2 - 1;
+                vertices[i + 1] = cy + random.nextDouble() * 2 - 1;
+                vertices[i + 2] = cz + random.nextDouble() * 2 - 1;
+                indices[3 * tri + v] = 3 * tri + v;
+                points[v] = new Point(vertices[i], vertices[i + 1], vertices[i + 2]);
+            }
+            triangles.add(new Triangle(points));
+        }
+        TriangleMesh mesh = new TriangleMesh(vertices, indices);
+
+        Intersectable.HitRecord meshHit = new Intersectable.HitRecord();
+        Intersectable.HitRecord trianglesHit = new Intersectable.HitRecord();
+        int hits = 0;
+        for (int i = 0; i < 500; ++i) {
+            Ray ray = new Ray(new Point(0, 0, 0),
+                    new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, random.nextDouble() - 0.5));
+            boolean found = mesh.findClosestHit(ray, meshHit.reset(Double.POSITIVE_INFINITY));
+            assertEquals(triangles.findClosestHit(ray, trianglesHit.reset(Double.POSITIVE_INFINITY)), found,
+                    "The mesh and the triangles disagree on a hit");
+            if (found) {
+                ++hits;
+                assertEquals(trianglesHit.t, meshHit.t, 1e-9, "Wrong closest distance");
+            }
+            List<Point> all = mesh.findIntersections(ray);
+            List<Point> expected = triangles.findIntersections(ray);
+            assertEquals(expected == null ? 0 : expected.size(), all == null ? 0 : all.size(),
+                    "Wrong number of points");
+        }
+        assertTrue(hits > 0, "The test rays should hit the mesh");
+    }
+
+    @Test
+    void testFindTransparency() {
+        TriangleMesh mesh = grid(2);
+        mesh.setMaterial(new Material().setkT(0.5));
+        Ray ray = new Ray(new Point(0.3, 0.6, 1), new Vector(0, 0, -1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The shadow ray passes through one transparent face
+        assertEquals(new Double3(0.5), mesh.findTransparency(ray, 5, 0.001), "Wrong transparency");
+
+        // TC02: The light is before the mesh
+        assertEquals(Double3.ONE, mesh.findTransparency(ray, 0.5, 0.001), "Wrong transparency");
+    }
+
+    @Test
+    void testSinglePrecision() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The single precision search finds the closest hits of the double precision search
+        Random random = new Random(11);
+        int count = 300;
+        double[] vertices = new double[9 * count];
+        int[] indices = new int[3 * count];
+        for (int i = 0; i < vertices.length; ++i) vertices[i] = random.nextDouble() * 20 - 10;
+        for (int i = 0; i < indices.length; ++i) indices[i] = i;
+        TriangleMesh mesh = new TriangleMesh(vertices, indices);
+
+        Intersectable.HitRecord single = new Intersectable.HitRecord();
+        single.singlePrecision = true;
+        Intersectable.HitRecord expected = new Intersectable.HitRecord();
+        int hits = 0;
+        for (int i = 0; i < 500; ++i) {
+            Ray ray = new Ray(new Point(random.nextDouble() * 4 - 2, random.nextDouble() * 4 - 2, 30),
+                    new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, -2));
+            boolean found = mesh.findClosestHit(ray, single.reset(Double.POSITIVE_INFINITY));
+            assertEquals(mesh.findClosestHit(ray, expected.reset(Double.POSITIVE_INFINITY)), found,
+                    "The single precision search disagrees on a hit");
+            if (found) {
+                ++hits;
+                assertTrue(single.singlePrecision, "The record must keep its precision");
+                assertEquals(expected.geometry, single.geometry, "Wrong closest face");
+                assertEquals(expected.t, single.t, 0, "The distance must be calculated in double precision");
+            }
+        }
+        assertTrue(hits > 0, "The test rays should hit the mesh");
+
+        // TC02: An opaque mesh blocks a shadow ray in single precision, and reports the blocking face
+        TriangleMesh grid = grid(8);
+        Ray shadow = new Ray(new Point(2.3, 5.6, 1), new Vector(0, 0, -1));
+        Intersectable.HitRecord occluder = new Intersectable.HitRecord().reset(5);
+        occluder.singlePrecision = true;
+        assertTrue(grid.findTransparency(shadow, 5, 0.001, occluder).lowerThan(0.001), "The mesh must block the ray");
+        assertNotNull(occluder.geometry, "The blocking face must be reported");
+
+        // =============== Boundary Values Tests ==================
+        // TC03: A shadow ray from a point of the mesh, offset by the rounding error of single precision
+        Ray fromSurface = new Ray(new Point(2.3, 5.6, 0), new Vector(1, 1, 1), new Vector(0, 0, 1),
+                Ray.SINGLE_PRECISION_ERROR);
+        assertEquals(Double3.ONE, grid.findTransparency(fromSurface, 5, 0.001, occluder.reset(5)),
+                "The ray must not hit the surface of its own point");
+    }
+
+    @Test
+    void testBVHStats() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A mesh large enough to be built in parallel
+        TriangleMesh mesh = grid(64);
+        BVHStats stats = mesh.getBVHStats();
+        assertEquals(2 * stats.leaves() - 1, stats.nodes(), "A binary hierarchy has a leaf more than inner nodes");
+        assertEquals(mesh.getTriangleCount(), stats.leaves() * stats.averageLeafSize(), 1e-6,
+                "The leaves must hold all the triangles");
+        assertTrue(stats.maxDepth() < 64, "Too deep hierarchy");
+        assertTrue(stats.sahCost() > 0, "Wrong cost of the hierarchy");
+
+        // TC02: Every face of the large mesh is found
+        for (int i = 0; i < 64; i += 7)
+            for (int j = 0; j < 64; j += 5) {
+                Ray ray = new Ray(new Point(i + 0.3, j + 0.6, 1), new Vector(0, 0, -1));
+                assertEquals(1, mesh.findGeoIntersections(ray).size(), "Wrong number of points");
+            }
+
+        // =============== Boundary Values Tests ==================
+        // TC03: A single triangle is a single leaf
+        stats = new TriangleMesh(new double[]{0, 0, 0, 1, 0, 0, 0, 1, 0}, new int[]{0, 1, 2}).getBVHStats();
+        assertEquals(1, stats.nodes(), "A single triangle must be a single leaf");
+        assertEquals(0, stats.maxDepth(), "A single leaf has no depth");
+    }
+
+    @Test
+    void testFootprint() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A large mesh keeps a single copy of its triangles and its hierarchy
+        TriangleMesh mesh = grid(64);
+        double perTriangle = (double) mesh.footprint() / mesh.getTriangleCount();
+        assertTrue(perTriangle >= 72, "The triangles must be kept in double precision");
+        assertTrue(perTriangle < 120, "The mesh takes " + perTriangle + " bytes per triangle");
+
+        // TC02: The single precision copy is added on the first query which allows it
+        Intersectable.HitRecord hit = new Intersectable.HitRecord().reset(Double.POSITIVE_INFINITY);
+        hit.singlePrecision = true;
+        assertTrue(mesh.findClosestHit(new Ray(new Point(2.3, 5.6, 1), new Vector(0, 0, -1)), hit),
+                "The ray must hit the mesh");
+        double withSingle = (double) mesh.footprint() / mesh.getTriangleCount();
+        assertTrue(withSingle >= perTriangle + 40, "The single precision triangles must be added");
+        assertTrue(withSingle < 180, "The mesh takes " + withSingle + " bytes per triangle with the copy");
+    }
+}
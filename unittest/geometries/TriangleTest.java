@@ -73,4 +73,40 @@ class TriangleTest {
                 "Point on edge's continuation");
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void testFindIntersectionDistance() {
+        Triangle triangle = new Triangle(
+                new Point(0, 0, 0),
+                new Point(2, 0, 0),
+                new Point(0, 2, 0));
+        double[] uv = new double[2];
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray hits the triangle - distance and barycentric coordinates
+        assertEquals(3,
+                triangle.findIntersectionDistance(new Ray(new Point(0.5, 1, 3), new Vector(0, 0, -1)),
+                        Double.POSITIVE_INFINITY, uv),
+                1e-10, "Wrong distance");
+        assertEquals(0.25, uv[0], 1e-10, "Wrong barycentric u");
+        assertEquals(0.5, uv[1], 1e-10, "Wrong barycentric v");
+
+        // TC02: Ray misses the triangle
+        assertEquals(0,
+                triangle.findIntersectionDistance(new Ray(new Point(1.5, 1.5, 3), new Vector(0, 0, -1)),
+                        Double.POSITIVE_INFINITY, uv),
+                "Ray outside the triangle");
+
+        // =============== Boundary Values Tests ==================
+        // TC03: The triangle is beyond the maximal distance
+        assertEquals(0,
+                triangle.findIntersectionDistance(new Ray(new Point(0.5, 1, 3), new Vector(0, 0, -1)), 2, uv),
+                "Intersection beyond the maximal distance");
+
+        // TC04: Ray parallel to the triangle
+        assertEquals(0,
+                triangle.findIntersectionDistance(new Ray(new Point(-1, 0.5, 0), new Vector(1, 0, 0)),
+                        Double.POSITIVE_INFINITY, uv),
+                "Ray parallel to the triangle");
+    }
+}
@@ -5,7 +5,10 @@ import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 /**
  * Unit tests for the  geometries.Tube class.
@@ -37,4 +40,41 @@ class TubeTest {
                 "ERROR: not the correct normal");
     }
 
+    /**
+     * Test method for {@link geometries.Tube#findIntersections(primitives.Ray)}.
+     */
+    @Test
+    void testFindIntersections() {
+        Tube tube = new Tube(1.0, new Ray(new Point(0, 0, 0), new Vector(0, 0, 1)));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray crosses the tube (2 points)
+        List<Point> result = tube.findIntersections(new Ray(new Point(-2, 0, 1), new Vector(1, 0, 0)));
+        assertEquals(List.of(new Point(-1, 0, 1), new Point(1, 0, 1)), result, "Wrong intersection points");
+
+        // TC02: Ray starts inside the tube (1 point)
+        result = tube.findIntersections(new Ray(new Point(0.5, 0, 3), new Vector(1, 0, 1)));
+        assertEquals(List.of(new Point(1, 0, 3.5)), result, "Wrong intersection point");
+
+        // TC03: Ray misses the tube (0 points)
+        assertNull(tube.findIntersections(new Ray(new Point(-2, 2, 0), new Vector(1, 0, 0))),
+                "Ray outside the tube");
+
+        // TC04: Ray starts after the tube (0 points)
+        assertNull(tube.findIntersections(new Ray(new Point(2, 0, 0), new Vector(1, 0, 0))),
+                "Ray starts after the tube");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: Ray parallel to the axis (0 points)
+        assertNull(tube.findIntersections(new Ray(new Point(0.5, 0, 0), new Vector(0, 0, 1))),
+                "Ray parallel to the axis");
+
+        // TC11: Ray tangent to the tube (0 points)
+        assertNull(tube.findIntersections(new Ray(new Point(-2, 1, 0), new Vector(1, 0, 0))),
+                "Ray tangent to the tube");
+
+        // TC12: Tube beyond the maximal distance (1 point)
+        assertEquals(1, tube.findGeoIntersections(new Ray(new Point(-2, 0, 1), new Vector(1, 0, 0)), 2).size(),
+                "Wrong number of points within the maximal distance");
+    }
 }
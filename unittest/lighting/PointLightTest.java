@@ -0,0 +1,102 @@
+package lighting;
+
+import geometries.Sphere;
+import org.junit.jupiter.api.Test;
+import primitives.Color;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+import renderer.SimpleRayTracer;
+import scene.Scene;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PointLightTest {
+
+    @Test
+    void testGetInfluenceRadius() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Quadratic attenuation - the intensity at the radius is the threshold
+        PointLight light = new PointLight(new Color(100, 400, 200), new Point(0, 0, 0)).setKl(0.1).setKq(0.01);
+        double radius = light.getInfluenceRadius(1);
+        assertEquals(1, light.getIntensity(new Point(radius, 0, 0)).max(), 1e-9, "Wrong influence radius");
+
+        // TC02: Linear attenuation only
+        light = new PointLight(new Color(100, 100, 100), new Point(0, 0, 0)).setKl(0.5);
+        assertEquals(198, light.getInfluenceRadius(1), 1e-9, "Wrong influence radius");
+
+        // TC03: No attenuation - unbounded influence
+        light = new PointLight(new Color(100, 100, 100), new Point(0, 0, 0));
+        assertEquals(Double.POSITIVE_INFINITY, light.getInfluenceRadius(1), "Unattenuated light must be unbounded");
+
+        // =============== Boundary Values Tests ==================
+        // TC04: The light is below the threshold even at its position
+        light = new PointLight(new Color(1, 1, 1), new Point(0, 0, 0)).setKq(0.1);
+        assertEquals(0, light.getInfluenceRadius(2), "Too dim light must have no influence");
+
+        // TC05: Zero threshold - unbounded influence
+        assertEquals(Double.POSITIVE_INFINITY, light.getInfluenceRadius(0), "Zero threshold must be unbounded");
+    }
+
+    @Test
+    void testIlluminates() {
+        SpotLight spot = new SpotLight(new Color(100, 100, 100), new Point(0, 0, 0), new Vector(0, 0, -1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Point in front of the spot
+        assertTrue(spot.illuminates(new Point(1, 2, -3)), "The spot must illuminate a point in front of it");
+
+        // TC02: Point behind the spot
+        assertFalse(spot.illuminates(new Point(1, 2, 3)), "The spot must not illuminate a point behind it");
+
+        // =============== Boundary Values Tests ==================
+        // TC03: Point on the plane of the spot
+        assertFalse(spot.illuminates(new Point(1, 2, 0)), "The spot must not illuminate the plane of its position");
+    }
+
+    @Test
+    void testGetPower() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Constant attenuation - the power of the light at its position
+        PointLight light = new PointLight(new Color(100, 100, 100), new Point(0, 0, 0)).setKc(2).setKl(0.1);
+        assertEquals(50, light.getPower(), 1e-9, "Wrong power");
+
+        // TC02: No constant attenuation - the power of the light at the unit distance
+        light = new PointLight(new Color(100, 100, 100), new Point(0, 0, 0)).setKc(0).setKl(0.001);
+        assertEquals(100000, light.getPower(), 1e-6, "Wrong power without constant attenuation");
+
+        // TC03: No constant attenuation - the power of a soft light at the size of its area
+        light.setSoftShadow(10, 4);
+        assertEquals(10000, light.getPower(), 1e-6, "Wrong power of a soft light without constant attenuation");
+
+        // =============== Boundary Values Tests ==================
+        // TC04: No attenuation at all - the power is finite
+        light = new PointLight(new Color(100, 100, 100), new Point(0, 0, 0)).setKc(0);
+        assertTrue(Double.isFinite(light.getPower()), "The power must be finite");
+    }
+
+    @Test
+    void testTraceWithoutConstantAttenuation() {
+        Scene scene = new Scene("Test scene");
+        scene.geometries.add(new Sphere(new Point(0, 0, -10), 5d)
+                .setEmission(new Color(20, 20, 20)).setMaterial(new Material().setKd(0.5)));
+        // The lights are far enough to be attenuated at the sphere
+        scene.lights.add(new PointLight(new Color(1000, 1000, 1000), new Point(0, 0, 2000)).setKc(0).setKl(0.001));
+        scene.lights.add(new SpotLight(new Color(1000, 1000, 1000), new Point(0, 0, 100), new Vector(0, 0, -1))
+                .setKc(0).setKq(0.001));
+        Ray ray = new Ray(new Point(0, 0, 10), new Vector(0, 0, -1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Lights without constant attenuation, shading all the lights
+        SimpleRayTracer tracer = new SimpleRayTracer(scene);
+        tracer.prepare();
+        Color color = tracer.traceRay(ray);
+
+        // TC02: Lights without constant attenuation, sampling the lights by their power
+        tracer = new SimpleRayTracer(scene).setLightSamples(2);
+        tracer.prepare();
+        assertTrue(tracer.traceRay(ray).max() > 20, "The sampled lights must shade the sphere");
+        assertTrue(color.max() > 20, "The lights must shade the sphere");
+    }
+}
@@ -0,0 +1,82 @@
+package primitives;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link RayPacket}.
+ */
+class RayPacketTest {
+
+    /**
+     * A packet of 4 rays from the origin towards the corners of a small square around (0, 0, -10).
+     */
+    private final RayPacket packet = new RayPacket(
+            new Ray(Point.ZERO, new Vector(-1, -1, -10)),
+            new Ray(Point.ZERO, new Vector(1, -1, -10)),
+            new Ray(Point.ZERO, new Vector(-1, 1, -10)),
+            new Ray(Point.ZERO, new Vector(1, 1, -10)));
+
+    /**
+     * Test method for {@link RayPacket#RayPacket(Ray...)}.
+     */
+    @Test
+    void testConstructor() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Rays from different heads
+        assertThrows(IllegalArgumentException.class,
+                () -> new RayPacket(new Ray(Point.ZERO, new Vector(0, 0, -1)),
+                        new Ray(new Point(1, 0, 0), new Vector(0, 0, -1))),
+                "The rays of a packet must have a common head");
+
+        // =============== Boundary Values Tests ==================
+        // TC02: An empty packet
+        assertThrows(IllegalArgumentException.class, RayPacket::new, "A packet must have rays");
+
+        // TC03: Too many rays
+        Ray[] rays = new Ray[RayPacket.MAX_SIZE + 1];
+        for (int i = 0; i < rays.length; ++i) rays[i] = new Ray(Point.ZERO, new Vector(i + 1, 1, -10));
+        assertThrows(IllegalArgumentException.class, () -> new RayPacket(rays), "A packet is limited in size");
+    }
+
+    /**
+     * Test method for {@link RayPacket#missesBox(double, double, double, double, double, double, double)}.
+     */
+    @Test
+    void testMissesBox() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A box across the frustum of the packet
+        assertFalse(packet.missesBox(-2, -2, -12, 2, 2, -11, Double.POSITIVE_INFINITY),
+                "A box across the rays is not missed");
+
+        // TC02: A box hit by one of the rays only
+        assertFalse(packet.missesBox(0.9, 0.9, -10.5, 1.5, 1.5, -9.5, Double.POSITIVE_INFINITY),
+                "A box hit by a ray is not missed");
+
+        // TC03: A box aside of the frustum
+        assertTrue(packet.missesBox(5, 5, -12, 6, 6, -11, Double.POSITIVE_INFINITY),
+                "A box aside of the rays is missed");
+
+        // TC04: A box behind the head
+        assertTrue(packet.missesBox(-1, -1, 5, 1, 1, 6, Double.POSITIVE_INFINITY),
+                "A box behind the rays is missed");
+
+        // TC05: A box beyond the maximal distance
+        assertTrue(packet.missesBox(-1, -1, -22, 1, 1, -21, 20), "A box beyond the distance is missed");
+
+        // =============== Boundary Values Tests ==================
+        // TC06: A box around the head
+        assertFalse(packet.missesBox(-1, -1, -1, 1, 1, 1, Double.POSITIVE_INFINITY),
+                "A box around the head is not missed");
+
+        // TC07: Rays parallel to the planes of the axes
+        RayPacket parallel = new RayPacket(new Ray(Point.ZERO, new Vector(0, 0, -1)));
+        assertTrue(parallel.missesBox(5, 5, -12, 6, 6, -11, Double.POSITIVE_INFINITY),
+                "A box aside of an axis is missed by a ray along it");
+        assertFalse(parallel.missesBox(0, 0, -12, 1, 1, -11, Double.POSITIVE_INFINITY),
+                "A box touching an axis is not missed by a ray along it");
+    }
+}
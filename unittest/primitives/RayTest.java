@@ -47,6 +47,26 @@ class RayTest {
                 "the distance should be zero.");
     }
 
+    /**
+     * Test method for {@link Ray#Ray(Point, Vector, Vector, double)}.
+     */
+    @Test
+    void testOffsetConstructor() {
+        Vector n = new Vector(0, 0, 1);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The head is offset by the relative error of the largest coordinate, to the side of the direction
+        Ray ray = new Ray(new Point(1000, 2, 3), new Vector(1, 0, 1), n, 0.001);
+        assertEquals(new Point(1000, 2, 4), ray.getHead(), "Wrong offset of a ray leaving the surface");
+        ray = new Ray(new Point(1000, 2, 3), new Vector(1, 0, -1), n, 0.001);
+        assertEquals(new Point(1000, 2, 2), ray.getHead(), "Wrong offset of a ray entering the surface");
+
+        // =============== Boundary Values Tests ==================
+        // TC02: Near the origin the offset is the relative error itself
+        ray = new Ray(new Point(0, 0, 0), new Vector(0, 1, 1), n, 0.001);
+        assertEquals(new Point(0, 0, 0.001), ray.getHead(), "Wrong offset near the origin");
+    }
+
     /**
      * Test method for {@link Ray#findClosestPoint(List)} .
      */
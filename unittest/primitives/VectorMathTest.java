@@ -0,0 +1,111 @@
+package primitives;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VectorMathTest {
+
+    public static final double DELTA = 0.0001;
+
+    /**
+     * Test method for {@link primitives.VectorMath#set(primitives.Double3, double[])}.
+     */
+    @Test
+    void testSet() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The components of the triad are copied into the array
+        double[] out = new double[3];
+        assertSame(out, VectorMath.set(new Double3(1, -2, 3), out), "ERROR: set does not return its array");
+        assertArrayEquals(new double[]{1, -2, 3}, out, "ERROR: set does not copy the components");
+    }
+
+    /**
+     * Test method for {@link primitives.VectorMath#dot(double, double, double, double, double, double)}.
+     */
+    @Test
+    void testDot() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The dot product of two vectors, as of the Vector class
+        Vector v1 = new Vector(1, 2, 3), v2 = new Vector(-2, -4, 1);
+        assertEquals(v1.dotProduct(v2), VectorMath.dot(1, 2, 3, -2, -4, 1), DELTA,
+                "ERROR: dot product wrong value");
+
+        // =============== Boundary Values Tests ==================
+        // TC02: Orthogonal vectors
+        assertEquals(0, VectorMath.dot(1, 2, 3, 0, 3, -2), DELTA,
+                "ERROR: dot product of orthogonal vectors is not zero");
+    }
+
+    /**
+     * Test method for {@link primitives.VectorMath#tripleProduct}.
+     */
+    @Test
+    void testTripleProduct() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The sign tells the side of the plane of a and b (a = x, b = y)
+        assertEquals(2, VectorMath.tripleProduct(1, 1, 2, 1, 0, 0, 0, 1, 0), DELTA,
+                "ERROR: triple product wrong value");
+        assertEquals(-2, VectorMath.tripleProduct(1, 1, -2, 1, 0, 0, 0, 1, 0), DELTA,
+                "ERROR: triple product wrong sign");
+
+        // =============== Boundary Values Tests ==================
+        // TC02: A vector on the plane of a and b
+        assertEquals(0, VectorMath.tripleProduct(3, -1, 0, 1, 0, 0, 0, 1, 0), DELTA,
+                "ERROR: triple product of a vector on the plane is not zero");
+    }
+
+    /**
+     * Test method for {@link primitives.VectorMath#cross(double[], double[], double[])}.
+     */
+    @Test
+    void testCross() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The cross product of two vectors, as of the Vector class
+        Vector expected = new Vector(1, 2, 3).crossProduct(new Vector(0, 3, -2));
+        double[] out = new double[3];
+        assertSame(out, VectorMath.cross(new double[]{1, 2, 3}, new double[]{0, 3, -2}, out),
+                "ERROR: cross does not return its array");
+        assertArrayEquals(new double[]{expected.xyz.d1, expected.xyz.d2, expected.xyz.d3}, out, DELTA,
+                "ERROR: cross product wrong result");
+
+        // =============== Boundary Values Tests ==================
+        // TC02: Parallel vectors
+        assertArrayEquals(new double[]{0, 0, 0}, VectorMath.cross(new double[]{1, 2, 3}, new double[]{-2, -4, -6},
+                out), DELTA, "ERROR: cross product of parallel vectors is not zero");
+    }
+
+    /**
+     * Test method for {@link primitives.VectorMath#scaleAdd(double[], primitives.Double3, double)}.
+     */
+    @Test
+    void testScaleAdd() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A scaled vector is added in place
+        double[] p = {1, 2, 3};
+        assertSame(p, VectorMath.scaleAdd(p, new Double3(1, -1, 2), 2), "ERROR: scaleAdd does not return its array");
+        assertArrayEquals(new double[]{3, 0, 7}, p, DELTA, "ERROR: scaleAdd wrong result");
+
+        // =============== Boundary Values Tests ==================
+        // TC02: A zero scale keeps the triad
+        assertArrayEquals(new double[]{3, 0, 7}, VectorMath.scaleAdd(p, new Double3(1, -1, 2), 0), DELTA,
+                "ERROR: scaleAdd with a zero scale changes the triad");
+    }
+
+    /**
+     * Test method for {@link primitives.VectorMath#normalize(double[])}.
+     */
+    @Test
+    void testNormalize() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The vector is normalized in place, and its former length is returned
+        double[] v = {1, 2, 2};
+        assertEquals(3, VectorMath.normalize(v), DELTA, "ERROR: normalize returns a wrong length");
+        assertArrayEquals(new double[]{1d / 3, 2d / 3, 2d / 3}, v, DELTA, "ERROR: normalize wrong result");
+
+        // =============== Boundary Values Tests ==================
+        // TC02: A unit vector stays the same
+        assertEquals(1, VectorMath.normalize(v), DELTA, "ERROR: the normalized vector is not a unit vector");
+        assertArrayEquals(new double[]{1d / 3, 2d / 3, 2d / 3}, v, DELTA, "ERROR: normalize changes a unit vector");
+    }
+}
@@ -0,0 +1,44 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AliasTableTest {
+
+    @Test
+    void testSample() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The sampled frequencies follow the weights
+        double[] weights = {1, 0, 3, 4};
+        AliasTable table = new AliasTable(weights);
+        int[] counts = new int[weights.length];
+        Random random = new Random(3);
+        int n = 200000;
+        for (int i = 0; i < n; ++i)
+            ++counts[table.sample(random.nextDouble())];
+        for (int i = 0; i < weights.length; ++i) {
+            assertEquals(weights[i] / 8, table.pdf(i), 1e-12, "Wrong probability");
+            assertEquals(weights[i] / 8, (double) counts[i] / n, 0.01, "Wrong sampled frequency");
+        }
+
+        // TC02: Negative weight
+        assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[]{1, -1}),
+                "Constructed a table with a negative weight");
+
+        // =============== Boundary Values Tests ==================
+        // TC03: All the weights are zero - uniform distribution
+        table = new AliasTable(new double[]{0, 0});
+        assertEquals(0.5, table.pdf(1), 1e-12, "Zero weights must give a uniform distribution");
+
+        // TC04: No weights
+        assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[0]),
+                "Constructed an empty table");
+
+        // TC05: A single weight, with the largest uniform number
+        table = new AliasTable(new double[]{2});
+        assertEquals(0, table.sample(Math.nextDown(1.0)), "Wrong index of a single weight");
+    }
+}
@@ -1,12 +1,21 @@
 package renderer;
 
 import org.junit.jupiter.api.Test;
+import primitives.Color;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 import scene.Scene;
 
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Testing Camera Class
@@ -73,4 +82,204 @@ class CameraTest {
 
     }
 
+    /**
+     * Test method for adaptive super-sampling: every sub-pixel lattice ray is traced once.
+     */
+    @Test
+    void testAdaptiveSampling() {
+        Set<Ray> traced = new HashSet<>();
+        AtomicInteger count = new AtomicInteger();
+        // A tracer with an edge between the left and the right halves of the view plane
+        RayTracerBase tracer = new RayTracerBase(new Scene("Test")) {
+            @Override
+            public Color traceRay(Ray ray) {
+                count.incrementAndGet();
+                traced.add(ray);
+                return ray.direction.xyz.d1 < 0.05 ? new Color(10, 10, 10) : new Color(200, 200, 200);
+            }
+        };
+        Camera.Builder builder = Camera.getBuilder()
+                .setLocation(Point.ZERO)
+                .setDirection(new Vector(0, 0, -1), new Vector(0, -1, 0))
+                .setVpDistance(10).setVpSize(8, 8)
+                .setImageWriter(new ImageWriter("Test", 4, 4))
+                .setAntiAliasing(2, 2).setAdaptive(3);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A flat image needs the corners of the pixels only, shared by the neighbouring pixels
+        builder.setRayTracer(new RayTracerBase(new Scene("Test")) {
+            @Override
+            public Color traceRay(Ray ray) {
+                count.incrementAndGet();
+                return new Color(10, 10, 10);
+            }
+        }).build().renderImage();
+        assertEquals(25, count.get(), "Wrong amount of traced rays for a flat image");
+
+        // TC02: An edge is refined, and no lattice ray is traced twice
+        count.set(0);
+        builder.setRayTracer(tracer).build().renderImage();
+        assertEquals(traced.size(), count.get(), "A lattice ray was traced more than once");
+        assertTrue(count.get() > 25, "The edge was not refined");
+        assertTrue(count.get() < 33 * 33, "The flat regions were refined");
+    }
+
+    /**
+     * Test method for the adaptive sampling threshold and for variance-driven sampling.
+     */
+    @Test
+    void testAdaptiveThreshold() {
+        AtomicInteger count = new AtomicInteger();
+        // A tracer with a weak edge between the left and the right halves of the view plane
+        RayTracerBase edge = new RayTracerBase(new Scene("Test")) {
+            @Override
+            public Color traceRay(Ray ray) {
+                count.incrementAndGet();
+                return ray.direction.xyz.d1 < 0.05 ? new Color(10, 10, 10) : new Color(12, 12, 12);
+            }
+        };
+        // A noisy tracer
+        Random random = new Random(1);
+        RayTracerBase noise = new RayTracerBase(new Scene("Test")) {
+            @Override
+            public Color traceRay(Ray ray) {
+                count.incrementAndGet();
+                double value = random.nextDouble() * 255;
+                return new Color(value, value, value);
+            }
+        };
+        Camera.Builder builder = Camera.getBuilder()
+                .setLocation(Point.ZERO)
+                .setDirection(new Vector(0, 0, -1), new Vector(0, -1, 0))
+                .setVpDistance(10).setVpSize(8, 8)
+                .setImageWriter(new ImageWriter("Test", 4, 4));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Adaptive super-sampling does not refine differences within the threshold
+        builder.setAntiAliasing(2, 2).setAdaptive(3).setAdaptiveThreshold(5).setRayTracer(edge).build().renderImage();
+        assertEquals(25, count.get(), "A difference within the threshold was refined");
+
+        // TC02: Variance-driven sampling of a flat image takes the minimal amount of samples
+        count.set(0);
+        builder.setAdaptiveSamples(4, 64).setRayTracer(edge).build().renderImage();
+        assertTrue(count.get() < 16 * 64, "The flat pixels took the maximal amount of samples");
+
+        // TC03: Variance-driven sampling of noise takes the maximal amount of samples
+        count.set(0);
+        builder.setAdaptiveThreshold(1).setRayTracer(noise).build().renderImage();
+        assertEquals(16 * 64, count.get(), "Noisy pixels did not take the maximal amount of samples");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: The minimum is higher than the maximum
+        assertThrows(IllegalArgumentException.class, () -> builder.setAdaptiveSamples(8, 4),
+                "Accepted a minimal budget higher than the maximal one");
+    }
+
+    /**
+     * Test method for progressive rendering: the passes, the convergence and the stopping criteria.
+     */
+    @Test
+    void testProgressive() {
+        AtomicInteger count = new AtomicInteger();
+        AtomicInteger passes = new AtomicInteger();
+        RayTracerBase flat = new RayTracerBase(new Scene("Test")) {
+            @Override
+            public Color traceRay(Ray ray) {
+                count.incrementAndGet();
+                return new Color(10, 10, 10);
+            }
+        };
+        Camera.Builder builder = Camera.getBuilder()
+                .setLocation(Point.ZERO)
+                .setDirection(new Vector(0, 0, -1), new Vector(0, -1, 0))
+                .setVpDistance(10).setVpSize(8, 8)
+                .setImageWriter(new ImageWriter("Test", 4, 4))
+                .setRayTracer(flat).setAntiAliasing(2, 2).setProgressive(8)
+                .setPassListener((pass, active) -> passes.incrementAndGet() == pass);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Without a threshold every pass samples every pixel
+        builder.build().renderImage();
+        assertEquals(8 * 16, count.get(), "Wrong amount of samples");
+        assertEquals(8, passes.get(), "Wrong amount of passes");
+
+        // TC02: Flat pixels converge after the minimal amount of samples
+        count.set(0);
+        passes.set(0);
+        builder.setAdaptiveThreshold(1).setAdaptiveSamples(3, 0).build().renderImage();
+        assertEquals(3 * 16, count.get(), "The converged pixels were sampled");
+        assertEquals(3, passes.get(), "The rendering did not stop when all the pixels converged");
+
+        // TC03: The listener stops the rendering
+        count.set(0);
+        builder.setAdaptiveThreshold(0).setPassListener((pass, active) -> pass < 2).build().renderImage();
+        assertEquals(2 * 16, count.get(), "The listener did not stop the rendering");
+
+        // TC04: Multithreaded passes sample every pixel once per pass
+        count.set(0);
+        builder.setMultithreading(3).build().renderImage();
+        assertEquals(2 * 16, count.get(), "Wrong amount of multithreaded samples");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: A budget which is over at once stops after the first pass, which is always finished
+        count.set(0);
+        builder.setMultithreading(0).setPassListener(null).setProgressiveBudget(1e-9).build().renderImage();
+        assertEquals(16, count.get(), "The first pass was not finished");
+
+        // TC11: Negative amount of passes and negative budget
+        assertThrows(IllegalArgumentException.class, () -> builder.setProgressive(-1),
+                "Accepted a negative amount of passes");
+        assertThrows(IllegalArgumentException.class, () -> builder.setProgressiveBudget(-1),
+                "Accepted a negative budget");
+    }
+
+    /**
+     * Test method for rendering within a time budget.
+     */
+    @Test
+    void testTimeBudget() {
+        AtomicInteger count = new AtomicInteger();
+        // A tracer which takes a millisecond per ray
+        RayTracerBase slow = new RayTracerBase(new Scene("Test")) {
+            @Override
+            public Color traceRay(Ray ray) {
+                count.incrementAndGet();
+                long end = System.nanoTime() + 1_000_000;
+                while (System.nanoTime() < end) Thread.onSpinWait();
+                return new Color(10, 10, 10);
+            }
+        };
+        Camera.Builder builder = Camera.getBuilder()
+                .setLocation(Point.ZERO)
+                .setDirection(new Vector(0, 0, -1), new Vector(0, -1, 0))
+                .setVpDistance(10).setVpSize(8, 8)
+                .setImageWriter(new ImageWriter("Test", 4, 4))
+                .setRayTracer(slow).setAntiAliasing(4, 4);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A sufficient budget keeps all the samples
+        builder.setTimeBudget(60).build().renderImage();
+        assertTrue(count.get() >= 16 * 16, "The samples were reduced within a sufficient budget");
+
+        // TC02: A short budget reduces the samples
+        count.set(0);
+        builder.setTimeBudget(0.1).build().renderImage();
+        assertTrue(count.get() < 16 * 16, "The samples were not reduced to fit the budget");
+
+        // TC03: The ray tracer lowers the recursion level down to 1 and restores it
+        SimpleRayTracer tracer = new SimpleRayTracer(new Scene("Test")).setMaxLevel(10);
+        assertTrue(tracer.reduceQuality() && tracer.reduceQuality() && tracer.reduceQuality(),
+                "The recursion level was not lowered");
+        assertFalse(tracer.reduceQuality(), "The recursion level was lowered below 1");
+        tracer.restoreQuality();
+        assertTrue(tracer.reduceQuality(), "The quality was not restored");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: Negative budget and recursion level below 1
+        assertThrows(IllegalArgumentException.class, () -> builder.setTimeBudget(-1),
+                "Accepted a negative budget");
+        assertThrows(IllegalArgumentException.class, () -> tracer.setMaxLevel(0),
+                "Accepted a recursion level below 1");
+    }
+
 }
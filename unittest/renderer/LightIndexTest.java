@@ -0,0 +1,34 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LightIndexTest {
+
+    @Test
+    void testCandidates() {
+        // Two small lights far apart, and one light of unbounded influence between them
+        double inf = Double.POSITIVE_INFINITY;
+        LightIndex index = new LightIndex(new double[]{0, 0, 0, 50, 0, 0, 100, 0, 0}, new double[]{1, inf, 1});
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Point near the first light
+        assertArrayEquals(new int[]{0, 1}, index.candidates(0.5, 0, 0), "Wrong lights near the first light");
+
+        // TC02: Point near the last light
+        assertArrayEquals(new int[]{1, 2}, index.candidates(100, 0.5, 0), "Wrong lights near the last light");
+
+        // TC03: Point outside the grid
+        assertArrayEquals(new int[]{1}, index.candidates(0, 30, 0), "Only the unbounded light reaches far points");
+
+        // =============== Boundary Values Tests ==================
+        // TC04: No bounded lights
+        index = new LightIndex(new double[3], new double[]{inf});
+        assertArrayEquals(new int[]{0}, index.candidates(5, 5, 5), "The unbounded light must reach every point");
+
+        // TC05: No lights at all
+        index = new LightIndex(new double[0], new double[0]);
+        assertEquals(0, index.candidates(5, 5, 5).length, "There are no lights");
+    }
+}
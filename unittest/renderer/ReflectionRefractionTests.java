@@ -17,6 +17,8 @@ import primitives.*;
 import renderer.*;
 import scene.Scene;
 
+import java.util.Random;
+
 /** Tests for reflection and transparency functionality, test for partial
  * shadows
  * (with transparency)
@@ -361,7 +363,7 @@ public class ReflectionRefractionTests {
                 .writeToImage();
     }
     // create square from 2 triangles function.
-    private void addSquareFromTriangles(Scene scene, Point p1, Point p2, Point p3,
+    private static void addSquareFromTriangles(Scene scene, Point p1, Point p2, Point p3,
                                         Color color,double kd,double ks,int Shininess) {
         double dx = p3.xyz.d1 - p1.xyz.d1;
         double dy = p3.xyz.d2 - p1.xyz.d2;
@@ -513,8 +515,14 @@ public class ReflectionRefractionTests {
                 .renderImage()
                 .writeToImage();
     }
-    @Test
-    public void HouseWithImprovements() {
+    /**
+     * Fills a scene with the house with improvements: the house, the grass hill, the moon light
+     * and a random starry sky (shared with the rendering benchmarks).
+     *
+     * @param scene  the scene to fill
+     * @param random the random generator of the stars
+     */
+    static void houseWithImprovementsScene(Scene scene, Random random) {
         //building
         addSquareFromTriangles(
                 scene,
@@ -603,13 +611,13 @@ public class ReflectionRefractionTests {
         );
 //stars
 
-        int numStars = (int) (Math.random() * 101) + 100;
+        int numStars = (int) (random.nextDouble() * 101) + 100;
 
         for (int i = 0; i < numStars; i++) {
             // Generate random position within the upper part of the scene
-            double x = Math.random() * 180-60; // Adjusted range for a wider spread
-            double y = Math.random() * 7+10; // Adjusted range to spread across the upper half of the scene
-            double z = Math.random() * -20 - 50; // Varying depths within the scene
+            double x = random.nextDouble() * 180-60; // Adjusted range for a wider spread
+            double y = random.nextDouble() * 7+10; // Adjusted range to spread across the upper half of the scene
+            double z = random.nextDouble() * -20 - 50; // Varying depths within the scene
 
             // Create a small white sphere for the star with random position
             scene.geometries.add(
@@ -636,6 +644,11 @@ public class ReflectionRefractionTests {
                         new Color(255, 255, 180), // Warm yellow light
                         new Point(8.5, 9, -20) // Positioned at the center of the moon
                 ).setSoftShadow(20,20));
+    }
+
+    @Test
+    public void HouseWithImprovements() {
+        houseWithImprovementsScene(scene, new Random());
 
         // Camera setup
         cameraBuilder.setLocation(new Point(0, 0, 1000))
@@ -649,6 +662,28 @@ public class ReflectionRefractionTests {
                 .writeToImage();
     }
 
+    /**
+     * Renders the house with improvements with the acceleration modes: the polygons in a bounding volume
+     * hierarchy, and the image in tiles rendered by all the available threads.
+     */
+    @Test
+    public void HouseWithImprovementsAccelerated() {
+        houseWithImprovementsScene(scene, new Random(1));
+        scene.geometries.buildBVH();
+
+        cameraBuilder.setLocation(new Point(0, 0, 1000))
+                .setVpDistance(1000)
+                .setVpSize(25, 25)
+                .setImageWriter(new ImageWriter("HouseWithImprovementsAccelerated", 800, 800))
+                .setAntiAliasing(9,9)
+                .setAdaptive(3)
+                .setMultithreading(-2)
+                .setTileSize(16)
+                .build()
+                .renderImage()
+                .writeToImage();
+    }
+
     @Test
     void AntiAliasing_And_SoftShadowTest() {
         final Scene scene = new Scene("Test Anti-Aliasing and Soft-Shadows");
@@ -112,6 +112,29 @@ public class softShadow {
                 .writeToImage();
     }
     @Test
+    public void adaptiveSoftShadowsTest() {
+        // The soft shadows of a 16x16 light grid, refined only in the penumbra
+        final Scene scene = new Scene("Test Adaptive Soft-Shadows");
+        scene.geometries.add(
+                new Plane(Point.ZERO, new Point(0, 0, 1), new Point(0, 1, 0))
+                        .setEmission(new Color(129, 133, 137))
+                        .setMaterial(new Material().setKd(0.5)),
+
+                new Sphere(new Point(0, 0, 5),5d).setEmission(new Color(137, 148, 153))
+                        .setMaterial(new Material().setKs(0.4).setShininess(70))
+        );
+        scene.lights.add(
+                new SpotLight(new Color(255,230,89), new Point(15, 0, -10), new Vector(-1, 0, 1)).setSoftShadow(10,10).setKl(0.1).setKq(0.002)
+        );
+
+        camera
+                .setImageWriter(new ImageWriter("AdaptiveSoftShadowsTestImage", 500,500))
+                .setRayTracer(new SimpleRayTracer(scene).setNy_NX_of_light(16, 16).setAdaptiveSoftShadow(true))
+                .build()
+                .renderImage()
+                .writeToImage();
+    }
+    @Test
     public void shtrianglesSphere() {
         scene2.geometries.add(
                 new Triangle(
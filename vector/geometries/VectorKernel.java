@@ -0,0 +1,143 @@
+package geometries;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+import primitives.Double3;
+
+/**
+ * VectorKernel is the SIMD intersection kernel of the Vector API: it intersects a ray with the 4 triangles of
+ * a whole vector at once (AVX2 and AVX-512).<br/>
+ * The kernel calculates the Möller–Trumbore test of {@link Triangle#intersect} with the same operations in
+ * the same order for all the lanes, and rejects the lanes by masks instead of branches, so its distances are
+ * the same as those of the scalar calculation to the last bit. A lane that passes a check is never close to
+ * zero, so the alignments of the scalar calculation are replaced by comparisons with the bound of zero.<br/>
+ * The triangles of single precision are intersected by vectors of the same amount of lanes, which are half as
+ * wide, with the same operations as {@link IntersectionKernel#intersect(FloatTriangleArrays, int, float, float,
+ * float, float, float, float, float, float)}.<br/>
+ * The class is loaded only if the {@code jdk.incubator.vector} module is present (see
+ * {@link IntersectionKernel}).
+ *
+ * @author Isca Fitousi and Avital Orenstin
+ */
+final class VectorKernel extends IntersectionKernel {
+    /**
+     * The vector shape: 4 lanes, which hold a whole leaf of a mesh, unless the machine has narrower vectors.
+     * Wider vectors (8 lanes of AVX-512) are slower on leaves of 4 triangles.
+     */
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED.length() >= 4
+            ? DoubleVector.SPECIES_256 : DoubleVector.SPECIES_PREFERRED;
+    /**
+     * The vector shape of single precision, with the lanes of {@link #SPECIES}.
+     */
+    private static final VectorSpecies<Float> FLOAT_SPECIES =
+            VectorSpecies.of(float.class, VectorShape.forBitSize(Float.SIZE * SPECIES.length()));
+    /**
+     * The bound of the numbers which are considered zero (see {@link primitives.Util#isZero(double)}).
+     */
+    private static final double ZERO_BOUND = 0x1p-40;
+
+    @Override
+    int lanes() {
+        return SPECIES.length();
+    }
+
+    @Override
+    void intersectTriangles(TriangleArrays triangles, int start, int count, Double3 o, Double3 d,
+                            double maxDistance, double[] distances) {
+        // The whole calculation is in one method, so the vectors are never boxed. The checks of the aligned
+        // numbers (see primitives.Util#alignZero) are folded into comparisons with the bound of zero:
+        // x <= 0 after alignment is x < bound, x >= 0 after alignment is x > -bound,
+        // and x > 0 after alignment is x >= bound
+        for (int i = 0; i < count; i += SPECIES.length()) {
+            int k = start + i;
+            DoubleVector e1x = DoubleVector.fromArray(SPECIES, triangles.e1x, k);
+            DoubleVector e1y = DoubleVector.fromArray(SPECIES, triangles.e1y, k);
+            DoubleVector e1z = DoubleVector.fromArray(SPECIES, triangles.e1z, k);
+            DoubleVector e2x = DoubleVector.fromArray(SPECIES, triangles.e2x, k);
+            DoubleVector e2y = DoubleVector.fromArray(SPECIES, triangles.e2y, k);
+            DoubleVector e2z = DoubleVector.fromArray(SPECIES, triangles.e2z, k);
+
+            // p = d x e2, the determinant is zero if the ray is parallel to the triangle
+            DoubleVector px = e2z.mul(d.d2).sub(e2y.mul(d.d3));
+            DoubleVector py = e2x.mul(d.d3).sub(e2z.mul(d.d1));
+            DoubleVector pz = e2y.mul(d.d1).sub(e2x.mul(d.d2));
+            DoubleVector det = e1x.mul(px).add(e1y.mul(py)).add(e1z.mul(pz));
+            VectorMask<Double> hit = det.abs().compare(VectorOperators.LT, ZERO_BOUND).not();
+            DoubleVector inverse = DoubleVector.broadcast(SPECIES, 1).div(det);
+
+            // Vector from the first vertex to the head of the ray
+            DoubleVector p0x = DoubleVector.fromArray(SPECIES, triangles.p0x, k);
+            DoubleVector p0y = DoubleVector.fromArray(SPECIES, triangles.p0y, k);
+            DoubleVector p0z = DoubleVector.fromArray(SPECIES, triangles.p0z, k);
+            DoubleVector sx = DoubleVector.broadcast(SPECIES, o.d1).sub(p0x);
+            DoubleVector sy = DoubleVector.broadcast(SPECIES, o.d2).sub(p0y);
+            DoubleVector sz = DoubleVector.broadcast(SPECIES, o.d3).sub(p0z);
+            DoubleVector u = sx.mul(px).add(sy.mul(py)).add(sz.mul(pz)).mul(inverse);
+            hit = hit.andNot(u.compare(VectorOperators.LT, ZERO_BOUND))
+                    .andNot(u.sub(1).compare(VectorOperators.GT, -ZERO_BOUND));
+
+            // q = s x e1
+            DoubleVector qx = sy.mul(e1z).sub(sz.mul(e1y));
+            DoubleVector qy = sz.mul(e1x).sub(sx.mul(e1z));
+            DoubleVector qz = sx.mul(e1y).sub(sy.mul(e1x));
+            DoubleVector v = qx.mul(d.d1).add(qy.mul(d.d2)).add(qz.mul(d.d3)).mul(inverse);
+            hit = hit.andNot(v.compare(VectorOperators.LT, ZERO_BOUND))
+                    .andNot(u.add(v).sub(1).compare(VectorOperators.GT, -ZERO_BOUND));
+
+            DoubleVector t = e2x.mul(qx).add(e2y.mul(qy)).add(e2z.mul(qz)).mul(inverse);
+            hit = hit.andNot(t.compare(VectorOperators.LT, ZERO_BOUND))
+                    .andNot(t.sub(maxDistance).compare(VectorOperators.GE, ZERO_BOUND));
+            DoubleVector.zero(SPECIES).blend(t, hit).intoArray(distances, i);
+        }
+    }
+
+    @Override
+    void intersectTriangles(FloatTriangleArrays triangles, int start, int count, float ox, float oy, float oz,
+                            float dx, float dy, float dz, float maxDistance, float error, float[] distances) {
+        for (int i = 0; i < count; i += FLOAT_SPECIES.length()) {
+            int k = start + i;
+            FloatVector e1x = FloatVector.fromArray(FLOAT_SPECIES, triangles.e1x, k);
+            FloatVector e1y = FloatVector.fromArray(FLOAT_SPECIES, triangles.e1y, k);
+            FloatVector e1z = FloatVector.fromArray(FLOAT_SPECIES, triangles.e1z, k);
+            FloatVector e2x = FloatVector.fromArray(FLOAT_SPECIES, triangles.e2x, k);
+            FloatVector e2y = FloatVector.fromArray(FLOAT_SPECIES, triangles.e2y, k);
+            FloatVector e2z = FloatVector.fromArray(FLOAT_SPECIES, triangles.e2z, k);
+
+            // p = d x e2, the determinant is zero if the ray is parallel to the triangle
+            FloatVector px = e2z.mul(dy).sub(e2y.mul(dz));
+            FloatVector py = e2x.mul(dz).sub(e2z.mul(dx));
+            FloatVector pz = e2y.mul(dx).sub(e2x.mul(dy));
+            FloatVector det = e1x.mul(px).add(e1y.mul(py)).add(e1z.mul(pz));
+            VectorMask<Float> hit = det.abs().compare(VectorOperators.GT, 0);
+            FloatVector inverse = FloatVector.broadcast(FLOAT_SPECIES, 1).div(det);
+            FloatVector margin = FloatVector.fromArray(FLOAT_SPECIES, triangles.inverseAltitude, k).mul(error)
+                    .add(SINGLE_MARGIN).min(MAX_SINGLE_MARGIN);
+            FloatVector lower = margin.neg(), upper = margin.add(1);
+
+            // Vector from the first vertex to the head of the ray
+            FloatVector sx = FloatVector.broadcast(FLOAT_SPECIES, ox)
+                    .sub(FloatVector.fromArray(FLOAT_SPECIES, triangles.p0x, k));
+            FloatVector sy = FloatVector.broadcast(FLOAT_SPECIES, oy)
+                    .sub(FloatVector.fromArray(FLOAT_SPECIES, triangles.p0y, k));
+            FloatVector sz = FloatVector.broadcast(FLOAT_SPECIES, oz)
+                    .sub(FloatVector.fromArray(FLOAT_SPECIES, triangles.p0z, k));
+            FloatVector u = sx.mul(px).add(sy.mul(py)).add(sz.mul(pz)).mul(inverse);
+            hit = hit.and(u.compare(VectorOperators.GE, lower)).and(u.compare(VectorOperators.LE, upper));
+
+            // q = s x e1
+            FloatVector qx = sy.mul(e1z).sub(sz.mul(e1y));
+            FloatVector qy = sz.mul(e1x).sub(sx.mul(e1z));
+            FloatVector qz = sx.mul(e1y).sub(sy.mul(e1x));
+            FloatVector v = qx.mul(dx).add(qy.mul(dy)).add(qz.mul(dz)).mul(inverse);
+            hit = hit.and(v.compare(VectorOperators.GE, lower)).and(u.add(v).compare(VectorOperators.LE, upper));
+
+            FloatVector t = e2x.mul(qx).add(e2y.mul(qy)).add(e2z.mul(qz)).mul(inverse);
+            hit = hit.and(t.compare(VectorOperators.GT, 0)).and(t.compare(VectorOperators.LE, maxDistance));
+            FloatVector.zero(FLOAT_SPECIES).blend(t, hit).intoArray(distances, i);
+        }
+    }
+}